@@ -0,0 +1,38 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.functions;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Rebuilds the part of the project affected by a set of file changes, the changes found during the quiet period of
+ * the {@link io.fabric8.vertx.maven.plugin.utils.IncrementalBuilder} are handed at once. The callback does not
+ * reload the application itself, the builder reloads it once when any of the builds of the quiet period changed the
+ * classes directory
+ */
+@FunctionalInterface
+public interface BuildCallback {
+
+    /**
+     * @param changed - the files created or modified
+     * @param deleted - the files deleted
+     * @return true when the build changed the classes directory and the application has to be reloaded
+     * @throws Exception - any error while building
+     */
+    boolean build(Set<Path> changed, Set<Path> deleted) throws Exception;
+}
@@ -0,0 +1,58 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.functions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Merges the resources that exist in more than one jar of the fat jar, instead of keeping the resource of the last
+ * jar. The entries are handed to the transformer one by one while the fat jar is written, in the order of the jars,
+ * and the merged resources are written at the end of the fat jar.
+ * <p>
+ * The transformers are configured the same way as the maven-shade-plugin ones, e.g.
+ * <pre>
+ * &lt;transformers&gt;
+ *   &lt;transformer implementation="io.fabric8.vertx.maven.plugin.utils.AppendingResourceTransformer"&gt;
+ *     &lt;resource&gt;reference.conf&lt;/resource&gt;
+ *   &lt;/transformer&gt;
+ * &lt;/transformers&gt;
+ * </pre>
+ */
+public interface ResourceTransformer {
+
+    /**
+     * @param name - the entry name, e.g. META-INF/services/io.vertx.core.spi.VerticleFactory
+     * @return true if the entry is merged by this transformer, the entry is then not copied in to the fat jar
+     */
+    boolean canTransform(String name);
+
+    /**
+     * Handles one entry accepted by {@link #canTransform(String)}, the stream must not be closed
+     *
+     * @param name - the entry name
+     * @param in   - the content of the entry
+     * @throws IOException - any error while reading the entry
+     */
+    void transform(String name, InputStream in) throws IOException;
+
+    /**
+     * @return the merged resources keyed by entry name, in the order they will be written in to the fat jar
+     */
+    Map<String, byte[]> getTransformedResources();
+}
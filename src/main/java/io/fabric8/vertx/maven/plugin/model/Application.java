@@ -0,0 +1,98 @@
+package io.fabric8.vertx.maven.plugin.model;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * An application started in background by the start goal along with others, e.g.
+ * <pre>
+ * &lt;application&gt;
+ *   &lt;id&gt;orders&lt;/id&gt;
+ *   &lt;verticle&gt;com.example.OrdersVerticle&lt;/verticle&gt;
+ *   &lt;group&gt;1&lt;/group&gt;
+ *   &lt;readinessPort&gt;8081&lt;/readinessPort&gt;
+ * &lt;/application&gt;
+ * </pre>
+ * The applications of a group are started in parallel once all the applications of the previous groups are ready,
+ * an application without readiness check is deemed ready once started
+ */
+public class Application {
+
+    private String id;
+    private String verticle;
+    private int group;
+    private File config;
+    private List<String> jvmArgs;
+    private Integer readinessPort;
+    private String readinessPath;
+    private String readinessLogPattern;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getVerticle() {
+        return verticle;
+    }
+
+    public void setVerticle(String verticle) {
+        this.verticle = verticle;
+    }
+
+    public int getGroup() {
+        return group;
+    }
+
+    public void setGroup(int group) {
+        this.group = group;
+    }
+
+    public File getConfig() {
+        return config;
+    }
+
+    public void setConfig(File config) {
+        this.config = config;
+    }
+
+    public List<String> getJvmArgs() {
+        return jvmArgs;
+    }
+
+    public void setJvmArgs(List<String> jvmArgs) {
+        this.jvmArgs = jvmArgs;
+    }
+
+    public Integer getReadinessPort() {
+        return readinessPort;
+    }
+
+    public void setReadinessPort(Integer readinessPort) {
+        this.readinessPort = readinessPort;
+    }
+
+    public String getReadinessPath() {
+        return readinessPath;
+    }
+
+    public void setReadinessPath(String readinessPath) {
+        this.readinessPath = readinessPath;
+    }
+
+    public String getReadinessLogPattern() {
+        return readinessLogPattern;
+    }
+
+    public void setReadinessLogPattern(String readinessLogPattern) {
+        this.readinessLogPattern = readinessLogPattern;
+    }
+
+    @Override
+    public String toString() {
+        return id + " (" + verticle + ")";
+    }
+}
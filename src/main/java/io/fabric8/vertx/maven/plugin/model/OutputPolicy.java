@@ -0,0 +1,31 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.model;
+
+/**
+ * What happens to the output of the forked application when the Maven log cannot keep up with it
+ */
+public enum OutputPolicy {
+    /**
+     * the application waits until the buffered lines are logged, no line is lost
+     */
+    block,
+    /**
+     * the lines that do not fit in the buffer are dropped and counted, the application never waits
+     */
+    drop
+}
@@ -0,0 +1,32 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.model;
+
+/**
+ * How the application is redeployed by the run goal when the project changes
+ */
+public enum RedeployMode {
+    /**
+     * the vert.x Launcher undeploys and redeploys the verticle, see the --redeploy option of vert.x
+     */
+    restart,
+    /**
+     * the verticle is redeployed from a new class loader holding only the project classes and resources, the
+     * vert.x instance and the dependency classes stay loaded
+     */
+    reload
+}
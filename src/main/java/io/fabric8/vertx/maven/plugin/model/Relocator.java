@@ -1,12 +1,21 @@
 package io.fabric8.vertx.maven.plugin.model;
 
+import java.util.List;
+
 /**
+ * A relocation of the fat jar. When a pattern is given, the classes of the pattern package, e.g. io.netty, are moved
+ * to the shaded pattern package, e.g. shaded.io.netty, and every reference to them is rewritten; the classes matching
+ * one of the excludes, e.g. io.netty.util.internal.*, are not moved
+ *
  * @author kameshs
  */
 public class Relocator {
 
     private String serviceInterface;
     private RelocatorMode mode;
+    private String pattern;
+    private String shadedPattern;
+    private List<String> excludes;
 
     public String getServiceInterface() {
         return serviceInterface;
@@ -24,4 +33,32 @@ public class Relocator {
         this.mode = mode;
     }
 
+    public String getPattern() {
+        return pattern;
+    }
+
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public String getShadedPattern() {
+        return shadedPattern;
+    }
+
+    public void setShadedPattern(String shadedPattern) {
+        this.shadedPattern = shadedPattern;
+    }
+
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    public void setExcludes(List<String> excludes) {
+        this.excludes = excludes;
+    }
+
+    @Override
+    public String toString() {
+        return pattern + " -> " + shadedPattern + (excludes != null ? " excluding " + excludes : "");
+    }
 }
@@ -0,0 +1,31 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.model;
+
+/**
+ * How the run goal watches the project sources and resources for changes
+ */
+public enum WatcherMode {
+    /**
+     * the file system notifies the changes, see {@link java.nio.file.WatchService}
+     */
+    watch,
+    /**
+     * the directories are scanned periodically for changes
+     */
+    poll
+}
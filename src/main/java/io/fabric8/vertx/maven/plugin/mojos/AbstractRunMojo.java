@@ -16,8 +16,13 @@
 
 package io.fabric8.vertx.maven.plugin.mojos;
 
+import io.fabric8.vertx.maven.plugin.functions.BuildCallback;
+import io.fabric8.vertx.maven.plugin.model.OutputPolicy;
+import io.fabric8.vertx.maven.plugin.model.RedeployMode;
+import io.fabric8.vertx.maven.plugin.model.WatcherMode;
 import io.fabric8.vertx.maven.plugin.utils.*;
 import org.apache.commons.lang3.ClassUtils;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -26,15 +31,22 @@ import org.codehaus.plexus.util.DirectoryScanner;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -50,6 +62,54 @@ public class AbstractRunMojo extends AbstractVertxMojo {
     @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
     protected File classesDirectory;
 
+    /**
+     * The classpath of each project keyed by build session, so that the run, start and stop mojos of the same
+     * reactor build resolve it only once. A session no longer used is dropped with its classpaths
+     */
+    private static final Map<MavenSession, Map<String, CachedClassPath>> CLASSPATH_CACHE = new WeakHashMap<>();
+
+    /**
+     * The directory, under the project build directory, holding the hot reload bootstrap class and trigger file
+     */
+    protected static final String VERTX_RELOAD_DIR = "vertx-reload";
+
+    /**
+     * The file touched after each rebuild to make the forked application reload the project classes
+     */
+    private File reloadTrigger;
+
+    /**
+     * The file, under the project build directory, the timeline of the redeploys is appended to
+     */
+    protected static final String VERTX_REDEPLOY_REPORT_FILE = "vertx-redeploy-report.json";
+
+    /**
+     * The directory, under the project build directory, holding the state files of the daemons and the handles of
+     * the applications they run
+     */
+    protected static final String VERTX_DAEMON_DIR = "vertx-daemon";
+
+    /**
+     * The extension of the file, in the daemon directory, written by the start goal for each application started on
+     * a daemon
+     */
+    protected static final String VERTX_DAEMON_HANDLE_EXTENSION = ".handle";
+
+    /**
+     * The client of the daemon running the application, when it runs on a daemon
+     */
+    protected DaemonClient daemonClient;
+
+    /**
+     * The id of the application on the daemon, when it runs on a daemon
+     */
+    protected String daemonApplicationId;
+
+    /**
+     * Records the timeline of the redeploys, when redeploy is enabled
+     */
+    private RedeployTimeline redeployTimeline;
+
     /**
      * This property is used to enable vertx to do redeployment of the verticles in case of modifications
      * to the sources.
@@ -66,6 +126,94 @@ public class AbstractRunMojo extends AbstractVertxMojo {
     @Parameter(name = "redeployPatterns")
     protected List<String> redeployPatterns;
 
+    /**
+     * How the application is redeployed when redeploy is enabled: restart lets the vert.x Launcher undeploy and
+     * redeploy the verticle, reload keeps the vert.x instance and the dependencies loaded and redeploys the verticle
+     * from a new class loader holding only the project classes and resources
+     */
+    @Parameter(name = "redeployMode", property = "vertx.redeployMode", defaultValue = "restart")
+    protected RedeployMode redeployMode;
+
+    /**
+     * How the changes of the sources are detected when redeploy is enabled: watch is notified by the file system,
+     * poll scans the source and resource directories every redeployScanPeriod milliseconds. watch falls back to poll
+     * where the file system has no native notifications, e.g. on macOS
+     */
+    @Parameter(name = "redeployWatcher", property = "vertx.redeployWatcher", defaultValue = "watch")
+    protected WatcherMode redeployWatcher;
+
+    /**
+     * The interval in milliseconds between two scans of the source and resource directories, used when
+     * redeployWatcher is poll
+     */
+    @Parameter(name = "redeployScanPeriod", property = "vertx.redeployScanPeriod", defaultValue = "1000")
+    protected long redeployScanPeriod;
+
+    /**
+     * The time in milliseconds without any change after which the changes are rebuilt, all the changes found
+     * meanwhile are compiled and copied at once
+     */
+    @Parameter(name = "redeployQuietPeriod", property = "vertx.redeployQuietPeriod", defaultValue = "200")
+    protected long redeployQuietPeriod;
+
+    /**
+     * Whether the changed sources and their dependents are compiled in the maven JVM instead of running the
+     * maven-compiler-plugin for every change, it needs maven to run on a JDK
+     */
+    @Parameter(name = "redeployIncrementalCompile", property = "vertx.redeployIncrementalCompile",
+            defaultValue = "true")
+    protected boolean redeployIncrementalCompile;
+
+    /**
+     * Whether the changed resources that are not filtered are hard linked in to the classes directory instead of
+     * being copied
+     */
+    @Parameter(name = "redeployResourceLinks", property = "vertx.redeployResourceLinks", defaultValue = "false")
+    protected boolean redeployResourceLinks;
+
+    /**
+     * Whether the application runs in a forked JVM, when false the run goal starts the application in the Maven JVM
+     * from an isolated class loader. With redeploy, the dependency classes then stay loaded and only the verticle is
+     * redeployed, the application output is not pumped and the JVM options are those of Maven
+     */
+    @Parameter(name = "fork", property = "vertx.fork", defaultValue = "true")
+    protected boolean fork;
+
+    /**
+     * Whether the application is deployed on a vert.x daemon, a JVM kept running between the builds with the
+     * dependencies loaded and JIT compiled, instead of a new JVM. The daemon is started when none runs yet for the
+     * same dependencies, the run and start goals deploy the verticle from the project classes and resources, the
+     * stop goal undeploys it. It needs a verticle
+     */
+    @Parameter(name = "daemon", property = "vertx.daemon", defaultValue = "false")
+    protected boolean daemon;
+
+    /**
+     * The time in minutes after which a daemon running no application exits
+     */
+    @Parameter(name = "daemonIdleTimeout", property = "vertx.daemonIdleTimeout", defaultValue = "60")
+    protected long daemonIdleTimeout;
+
+    /**
+     * What happens to the output of the application when the Maven log cannot keep up with it: block makes the
+     * application wait, drop drops the lines that do not fit in the buffer and reports how many were dropped
+     */
+    @Parameter(name = "outputPolicy", property = "vertx.outputPolicy", defaultValue = "block")
+    protected OutputPolicy outputPolicy;
+
+    /**
+     * The number of lines of the application output buffered before they are logged
+     */
+    @Parameter(name = "outputBufferSize", property = "vertx.outputBufferSize", defaultValue = "8192")
+    protected int outputBufferSize;
+
+    /**
+     * When set, the output of the application is appended as is to this file, e.g.
+     * ${project.build.directory}/vertx.log, instead of being logged by Maven
+     */
+    @Parameter(name = "outputFile", property = "vertx.outputFile")
+    protected File outputFile;
+
     /**
      * The default command to use when calling io.vertx.core.Launcher.
      * possible commands are,
@@ -105,7 +253,14 @@ public class AbstractRunMojo extends AbstractVertxMojo {
 
         getLog().info("Launching vert.x Application");
 
-        if (isVertxLauncher) {
+        if (isVertxLauncher && isDaemon()) {
+            runOnDaemon();
+            return;
+        }
+
+        if (isVertxLauncher && isHotReload()) {
+            addHotReloadArgs(argsList);
+        } else if (isVertxLauncher) {
             addVertxArgs(argsList);
         } else {
             argsList.add(launcher);
@@ -114,28 +269,6 @@ public class AbstractRunMojo extends AbstractVertxMojo {
         run(argsList);
     }
 
-    /**
-     * This add or build the classpath that will be passed to the forked process JVM i.e &quot;-cp&quot;
-     *
-     * @param args - the forked process argument list to which the classpath will be appended
-     * @throws MojoExecutionException - any error that might occur while building or adding classpath
-     */
-    protected void addClasspath(List<String> args) throws MojoExecutionException {
-        try {
-            StringBuilder classpath = new StringBuilder();
-            for (URL ele : getClassPathUrls()) {
-                classpath = classpath
-                        .append((classpath.length() > 0 ? File.pathSeparator : "")
-                                + new File(ele.toURI()));
-            }
-            getLog().debug("Classpath for forked process: " + classpath);
-            args.add("-cp");
-            args.add(classpath.toString());
-        } catch (Exception ex) {
-            throw new MojoExecutionException("Could not build classpath", ex);
-        }
-    }
-
     /**
      * This will add the ${project.build.outputDirectory} to the  classpath url collection
      *
@@ -212,6 +345,269 @@ public class AbstractRunMojo extends AbstractVertxMojo {
 
     }
 
+    /**
+     * @return true if the application is run with the classes reloaded in the same JVM, which needs a verticle to
+     * deploy
+     */
+    protected boolean isHotReload() {
+        if (!redeploy || (redeployMode != RedeployMode.reload && fork) || !"run".equals(vertxCommand)) {
+            return false;
+        }
+        if (verticle == null) {
+            getLog().warn("Reloading the classes needs a verticle, the application will be restarted instead");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the application is deployed on a daemon, which needs a verticle to deploy
+     */
+    protected boolean isDaemon() {
+        if (!daemon) {
+            return false;
+        }
+        if (verticle == null) {
+            getLog().warn("The daemon needs a verticle, the application will be run in a new JVM instead");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Deploys the application on the daemon, rebuilds it on the daemon when redeploy is enabled and undeploys it
+     * when Maven exits, returns when the daemon is over
+     *
+     * @throws MojoExecutionException - any error while starting the daemon or deploying the application
+     */
+    protected void runOnDaemon() throws MojoExecutionException {
+        String id = UUID.randomUUID().toString();
+        deployOnDaemon(id);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemonClient.send("stop", id);
+            } catch (IOException e) {
+                // the daemon is already gone
+            }
+        }, "vertx-daemon-stop"));
+
+        if (redeploy) {
+            startIncrementalBuilder();
+        }
+        try {
+            while (daemonClient.isAlive()) {
+                TimeUnit.SECONDS.sleep(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        getLog().info("The vert.x daemon is over");
+    }
+
+    /**
+     * Deploys the verticle on the daemon of the project dependencies, the daemon is started when none runs yet
+     *
+     * @param id - the id of the application on the daemon
+     * @throws MojoExecutionException - any error while starting the daemon or deploying the application
+     */
+    protected void deployOnDaemon(String id) throws MojoExecutionException {
+        daemonClient = startDaemon();
+        try {
+            StringBuilder projectDirs = new StringBuilder();
+            for (URL url : getProjectUrls()) {
+                projectDirs.append(projectDirs.length() > 0 ? File.pathSeparator : "").append(new File(url.toURI()));
+            }
+            String configFile = "";
+            if (config != null && config.isFile()) {
+                getLog().info("Using configuration from file: " + config.toString());
+                configFile = config.getAbsolutePath();
+            }
+            long start = System.currentTimeMillis();
+            daemonClient.send("start", id, projectDirs.toString(), verticle, configFile);
+            daemonApplicationId = id;
+            getLog().info("Deployed " + verticle + " on the vert.x daemon " + daemonClient.getPid() + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException | URISyntaxException e) {
+            throw new MojoExecutionException("Unable to deploy the application on the vert.x daemon", e);
+        }
+    }
+
+    /**
+     * Returns the client of the daemon running with the project dependencies, forking the daemon when none runs yet.
+     * The daemons are told apart by the hash of their classpath, a daemon started for other dependencies is left as
+     * is and exits once idle
+     *
+     * @return the client of the running daemon
+     * @throws MojoExecutionException - any error while starting the daemon
+     */
+    protected DaemonClient startDaemon() throws MojoExecutionException {
+        File daemonDir = new File(projectBuildDir, VERTX_DAEMON_DIR);
+        File bootstrapDir = new File(daemonDir, "bootstrap");
+        List<URL> classPath = getClassPathUrls();
+        classPath.removeAll(getProjectUrls());
+        try {
+            classPath.add(0, bootstrapDir.toURI().toURL());
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (URL url : classPath) {
+                digest.update(url.toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            File stateFile = new File(daemonDir,
+                    String.format("%064x", new BigInteger(1, digest.digest())) + ".daemon");
+            DaemonClient client = new DaemonClient(stateFile);
+            if (client.isAlive()) {
+                return client;
+            }
+
+            getLog().info("Starting the vert.x daemon, its output is written to "
+                    + new File(daemonDir, "daemon.log"));
+            Files.deleteIfExists(stateFile.toPath());
+            copyBootstrap(bootstrapDir);
+            new JavaProcessExecutor()
+                    .withArgs(Arrays.asList(VertxDaemon.class.getName(), stateFile.getAbsolutePath(),
+                            Long.toString(daemonIdleTimeout)))
+                    .withClassPath(classPath)
+                    .withClassPathDirectory(daemonDir)
+                    .withLogger(getLog())
+                    .withOutputFile(new File(daemonDir, "daemon.log"))
+                    .withWaitFor(false)
+                    .execute();
+
+            long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+            while (!client.isAlive()) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new MojoExecutionException("The vert.x daemon did not start, see "
+                            + new File(daemonDir, "daemon.log"));
+                }
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+            return client;
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MojoExecutionException("Unable to start the vert.x daemon", e);
+        }
+    }
+
+    /**
+     * Builds the arguments of {@link HotReloadLauncher}, which deploys the verticle from a class loader holding the
+     * project classes and resources, and redeploys it each time the trigger file is touched
+     *
+     * @param argsList - the existing collection of arguments to which the hot reload arguments will be added
+     * @throws MojoExecutionException - any error while preparing the bootstrap class
+     */
+    protected void addHotReloadArgs(List<String> argsList) throws MojoExecutionException {
+        getLog().info("VertX application hot reload enabled");
+
+        File reloadDir = new File(projectBuildDir, VERTX_RELOAD_DIR);
+        reloadTrigger = new File(reloadDir, "reload.trigger");
+        try {
+            copyBootstrap(new File(reloadDir, "bootstrap"));
+            Files.write(reloadTrigger.toPath(), new byte[0]);
+
+            StringBuilder projectDirs = new StringBuilder();
+            for (URL url : getProjectUrls()) {
+                projectDirs.append(projectDirs.length() > 0 ? File.pathSeparator : "").append(new File(url.toURI()));
+            }
+
+            argsList.add(HotReloadLauncher.class.getName());
+            argsList.add(projectDirs.toString());
+            argsList.add(reloadTrigger.getAbsolutePath());
+            argsList.add(verticle);
+            if (config != null && config.isFile()) {
+                getLog().info("Using configuration from file: " + config.toString());
+                argsList.add(config.getAbsolutePath());
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new MojoExecutionException("Unable to prepare the hot reload of the application", e);
+        }
+    }
+
+    /**
+     * Copies the {@link HotReloadLauncher} and {@link VertxDaemon} classes out of the plugin, so that the forked JVM
+     * gets them without the plugin dependencies
+     */
+    private void copyBootstrap(File bootstrapDir) throws IOException {
+        for (Class<?> bootstrapClass : Arrays.asList(HotReloadLauncher.class, VertxDaemon.class)) {
+            String classFile = bootstrapClass.getName().replace('.', '/') + ".class";
+            Path target = bootstrapDir.toPath().resolve(classFile);
+            Files.createDirectories(target.getParent());
+            try (InputStream in = bootstrapClass.getClassLoader().getResourceAsStream(classFile)) {
+                if (in == null) {
+                    throw new IOException("Unable to find " + classFile);
+                }
+                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * @return the registry of the applications started in background from the working directory
+     */
+    protected ApplicationRegistry getApplicationRegistry() {
+        return new ApplicationRegistry(new File(workDirectory, VERTX_APPLICATIONS_FILE));
+    }
+
+    /**
+     * @return the URLs of the project resources and classes directories
+     * @throws MojoExecutionException - any error while building the URLs
+     */
+    protected List<URL> getProjectUrls() throws MojoExecutionException {
+        List<URL> projectUrls = new ArrayList<>();
+        try {
+            addProjectResources(projectUrls);
+            addClassesDirectory(projectUrls);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to run:", e);
+        }
+        return projectUrls;
+    }
+
+    /**
+     * @return the classpath of the forked JVM when the classes are reloaded: the bootstrap class and the
+     * dependencies, the project classes and resources are loaded by {@link HotReloadLauncher}
+     * @throws MojoExecutionException - any error while resolving the classpath
+     */
+    protected List<URL> getHotReloadClassPathUrls() throws MojoExecutionException {
+        List<URL> classPathUrls = getClassPathUrls();
+        classPathUrls.removeAll(getProjectUrls());
+        try {
+            classPathUrls.add(0, new File(new File(projectBuildDir, VERTX_RELOAD_DIR), "bootstrap").toURI().toURL());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to run:", e);
+        }
+        return classPathUrls;
+    }
+
+    /**
+     * Called by the {@link IncrementalBuilder} once per quiet period when the rebuilt classes or resources are in the
+     * classes directory, makes the forked application reload the project classes when it runs with hot reload, or the
+     * daemon redeploy the application
+     */
+    protected void triggerReload() {
+        if (redeployTimeline != null) {
+            redeployTimeline.classesUpdated();
+        }
+        if (daemonApplicationId != null) {
+            try {
+                daemonClient.send("reload", daemonApplicationId);
+                if (redeployTimeline != null) {
+                    redeployTimeline.ready();
+                }
+            } catch (IOException e) {
+                getLog().error("Unable to reload the application on the vert.x daemon", e);
+            }
+        }
+        if (reloadTrigger != null) {
+            try {
+                // a new content, the modification time of some file systems is only precise to the second
+                Files.write(reloadTrigger.toPath(), Long.toString(System.nanoTime()).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                getLog().error("Unable to trigger the reload of the application", e);
+            }
+        }
+    }
+
     private void computeOutputDirsWildcard(StringBuilder redeployArg) {
         final String wildcardClassesDir = this.classesDirectory.toString() + "/**/*";
         redeployArg.append(wildcardClassesDir);
@@ -265,35 +661,84 @@ public class AbstractRunMojo extends AbstractVertxMojo {
 
             JavaProcessExecutor vertxExecutor = new JavaProcessExecutor()
                     .withArgs(argsList)
-                    .withClassPath(getClassPathUrls())
+                    // a fat jar started with -jar carries its own classpath
+                    .withClassPath(argsList.contains("-jar") ? Collections.emptyList()
+                            : reloadTrigger != null ? getHotReloadClassPathUrls() : getClassPathUrls())
+                    .withClassPathDirectory(new File(projectBuildDir))
                     .withLogger(getLog())
+                    .withOutputPolicy(outputPolicy)
+                    .withOutputBufferSize(outputBufferSize)
+                    .withOutputFile(outputFile)
                     .withWaitFor(true);
             //When redeploy is enabled spin up the Incremental builder in background
 
             if (redeploy && !(VERTX_COMMAND_START.equals(vertxCommand)
                     || VERTX_COMMAND_STOP.equals(vertxCommand))) {
+                startIncrementalBuilder();
+                vertxExecutor.withOutputListener(redeployTimeline::onOutput);
+            }
+
+            if (!fork && VERTX_COMMAND_RUN.equals(vertxCommand)) {
+                runInProcess(argsList);
+            } else {
+                vertxExecutor.execute();
+            }
 
-                Set<Path> inclDirs = FileUtils.includedDirs(this.project, Optional.ofNullable(redeployPatterns));
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MojoExecutionException("Unable to launch incremental builder", e);
+        }
+    }
 
-                //TODO - handle exceptions effectively
-                CompletableFuture.runAsync(() -> {
-                    try {
-                        final JavaBuildCallback buildCallback = new JavaBuildCallback();
-                        final ResourceBuildCallback resourceBuildCallback = new ResourceBuildCallback();
-                        IncrementalBuilder incrementalBuilder = new IncrementalBuilder(inclDirs,
-                                buildCallback, resourceBuildCallback, getLog(), 1000L);
-                        incrementalBuilder.run();
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                });
+    /**
+     * Starts the {@link IncrementalBuilder} in the background, it rebuilds the changed sources and resources and
+     * records the timeline of the redeploys
+     */
+    private void startIncrementalBuilder() {
+        Set<Path> inclDirs = FileUtils.includedDirs(this.project, Optional.ofNullable(redeployPatterns));
 
-            }
+        redeployTimeline = new RedeployTimeline(new File(projectBuildDir, VERTX_REDEPLOY_REPORT_FILE))
+                .withLog(getLog());
 
-            vertxExecutor.execute();
+        //TODO - handle exceptions effectively
+        CompletableFuture.runAsync(() -> {
+            try {
+                final JavaBuildCallback buildCallback = new JavaBuildCallback();
+                final ResourceBuildCallback resourceBuildCallback = new ResourceBuildCallback();
+                IncrementalBuilder incrementalBuilder = new IncrementalBuilder(inclDirs,
+                        buildCallback, resourceBuildCallback, getLog(), redeployWatcher, redeployScanPeriod)
+                        .withQuietPeriod(redeployQuietPeriod)
+                        .withTimeline(redeployTimeline)
+                        .withReload(this::triggerReload);
+                incrementalBuilder.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
 
+    /**
+     * Runs the application in the Maven JVM with an {@link IsolatedApplication}, until its non daemon threads are
+     * over
+     *
+     * @param argsList - the main class followed by its arguments
+     * @throws MojoExecutionException - any error thrown by the application
+     */
+    protected void runInProcess(List<String> argsList) throws MojoExecutionException {
+        getLog().info("Running the application in the Maven JVM");
+        List<String> args = argsList.subList(1, argsList.size()).stream()
+                // no shell parses the arguments
+                .map(arg -> arg.startsWith(VERTX_ARG_LAUNCHER_CLASS) ? arg.replace("\"", "") : arg)
+                .collect(Collectors.toList());
+        try {
+            new IsolatedApplication(reloadTrigger != null ? getHotReloadClassPathUrls() : getClassPathUrls(),
+                    argsList.get(0), args)
+                    .withLog(getLog())
+                    .withReloadListener(redeployTimeline != null ? redeployTimeline::ready : null)
+                    .run();
         } catch (Exception e) {
-            throw new MojoExecutionException("Unable to launch incremental builder", e);
+            throw new MojoExecutionException("The application failed", e);
         }
     }
 
@@ -356,24 +801,53 @@ public class AbstractRunMojo extends AbstractVertxMojo {
 
     /**
      * This will resolve the project's test and runtime dependencies along with classes directory, resources directory
-     * to the collection of classpath urls
+     * to the collection of classpath urls. The classpath is computed once per build and dependency graph, the mojos
+     * of the same build share it
      *
      * @return @{link {@link List<URL>}} which will have all the dependencies, classes directory, resources directory etc.,
      * @throws MojoExecutionException any error that might occur while building collection like resolution errors
      */
     protected List<URL> getClassPathUrls() throws MojoExecutionException {
+        if (mavenSession == null) {
+            return resolveClassPathUrls();
+        }
+
+        String projectKey = this.project.getId();
+        String graphHash = dependencyGraphHash();
+        Map<String, CachedClassPath> projects;
+        synchronized (CLASSPATH_CACHE) {
+            projects = CLASSPATH_CACHE.computeIfAbsent(mavenSession, session -> new HashMap<>());
+        }
+
+        synchronized (projects) {
+            CachedClassPath cached = projects.get(projectKey);
+            if (cached == null || !cached.graphHash.equals(graphHash)) {
+                cached = new CachedClassPath(graphHash, resolveClassPathUrls());
+                projects.put(projectKey, cached);
+            } else if (getLog().isDebugEnabled()) {
+                getLog().debug("Reusing the classpath of " + projectKey);
+            }
+            return new ArrayList<>(cached.urls);
+        }
+    }
+
+    private List<URL> resolveClassPathUrls() throws MojoExecutionException {
         List<URL> classPathUrls = new ArrayList<>();
 
         try {
             addProjectResources(classPathUrls);
             addClassesDirectory(classPathUrls);
 
+            // resolves the direct and transitive dependencies together, in a single batch
+            resolveArtifacts(this.project.getArtifacts());
+
             Set<Optional<File>> compileAndRuntimeDeps = extractArtifactPaths(this.project.getDependencyArtifacts());
 
             Set<Optional<File>> transitiveDeps = extractArtifactPaths(this.project.getArtifacts());
 
             classPathUrls.addAll(Stream.concat(compileAndRuntimeDeps.stream(), transitiveDeps.stream())
                     .filter(file -> file.isPresent())
+                    .distinct()
                     .map(file -> {
                         try {
                             return file.get().toURI().toURL();
@@ -391,6 +865,44 @@ public class AbstractRunMojo extends AbstractVertxMojo {
         return classPathUrls;
     }
 
+    /**
+     * @return the hash of everything the classpath is made of: the classes and resources directories and the
+     * coordinates, scope and file of every dependency
+     */
+    private String dependencyGraphHash() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            List<String> parts = new ArrayList<>();
+            parts.add(String.valueOf(classesDirectory));
+            this.project.getResources().forEach(resource -> parts.add(resource.getDirectory()));
+            Stream.of(this.project.getDependencyArtifacts(), this.project.getArtifacts())
+                    .filter(Objects::nonNull)
+                    .flatMap(Set::stream)
+                    .forEach(artifact -> parts.add(artifact.getId() + ':' + artifact.getScope() + ':'
+                            + artifact.getFile()));
+            for (String part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * The classpath of a project and the hash of the dependency graph it was computed from
+     */
+    private static final class CachedClassPath {
+        final String graphHash;
+        final List<URL> urls;
+
+        CachedClassPath(String graphHash, List<URL> urls) {
+            this.graphHash = graphHash;
+            this.urls = Collections.unmodifiableList(urls);
+        }
+    }
+
 
     /**
      * Method to check if the file is JSON file
@@ -413,41 +925,98 @@ public class AbstractRunMojo extends AbstractVertxMojo {
     }
 
     /**
-     *
+     * Compiles the changed sources with the {@link IncrementalCompiler}, or runs the maven-compiler-plugin when
+     * the incremental compilation is disabled or not available
      */
-    public final class JavaBuildCallback implements Callable {
+    public final class JavaBuildCallback implements BuildCallback {
+
+        private IncrementalCompiler compiler;
+
+        private boolean incremental = redeployIncrementalCompile;
 
         @Override
-        public Void call() {
+        public boolean build(Set<Path> changed, Set<Path> deleted) {
 
             final MojoUtils mojoUtils = new MojoUtils().withLog(getLog());
+            final long start = System.currentTimeMillis();
 
             try {
+                if (incremental && compiler == null) {
+                    compiler = createCompiler(mojoUtils);
+                    incremental = compiler != null;
+                }
+                if (compiler != null) {
+                    return compiler.compile(changed, deleted);
+                }
                 mojoUtils.compile(project, mavenSession, buildPluginManager);
+                return true;
             } catch (Exception e) {
                 getLog().error("Error while doing incremental build", e);
+                return false;
+            } finally {
+                recordPhase("compile", start);
+            }
+        }
+
+        private IncrementalCompiler createCompiler(MojoUtils mojoUtils) {
+            if (!IncrementalCompiler.isAvailable()) {
+                getLog().warn("No java compiler is available in the maven JVM, the maven-compiler-plugin is used");
+                return null;
+            }
+            try {
+                List<File> classPath = project.getCompileClasspathElements().stream()
+                        .map(File::new)
+                        .collect(Collectors.toList());
+                List<File> sourceRoots = project.getCompileSourceRoots().stream()
+                        .map(File::new)
+                        .collect(Collectors.toList());
+                return new IncrementalCompiler(sourceRoots, classesDirectory, classPath,
+                        mojoUtils.compilerOptions(project), mojoUtils.compilerEncoding(project))
+                        .withLog(getLog());
+            } catch (Exception e) {
+                getLog().warn("Unable to set up the incremental compilation, the maven-compiler-plugin is used", e);
+                return null;
             }
-            return null;
         }
     }
 
     /**
-     *
+     * Copies the changed resources with the {@link ResourceSync}, or runs the maven-resources-plugin when the sync
+     * fails
      */
-    public final class ResourceBuildCallback implements Callable<Void> {
+    public final class ResourceBuildCallback implements BuildCallback {
 
         @Override
-        public Void call() {
+        public boolean build(Set<Path> changed, Set<Path> deleted) {
 
             final MojoUtils mojoUtils = new MojoUtils().withLog(getLog());
+            final long start = System.currentTimeMillis();
 
             try {
-                mojoUtils.copyResources(project, mavenSession, buildPluginManager);
+                try {
+                    int synced = new ResourceSync(project, classesDirectory)
+                            .withSession(mavenSession)
+                            .withHardLinks(redeployResourceLinks)
+                            .withLog(getLog())
+                            .sync(changed, deleted);
+                    return synced > 0;
+                } catch (IOException e) {
+                    getLog().warn("Unable to copy the changed resources, copying all the resources", e);
+                    mojoUtils.copyResources(project, mavenSession, buildPluginManager);
+                }
+                return true;
             } catch (Exception e) {
                 getLog().error("Error while doing incremental build", e);
+                return false;
+            } finally {
+                recordPhase("resources", start);
             }
+        }
+    }
 
-            return null;
+    private void recordPhase(String phase, long start) {
+        if (redeployTimeline != null) {
+            redeployTimeline.phase(phase, System.currentTimeMillis() - start);
         }
     }
 
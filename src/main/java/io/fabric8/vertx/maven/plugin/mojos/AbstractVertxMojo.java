@@ -35,9 +35,15 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -73,6 +79,11 @@ public abstract class AbstractVertxMojo extends AbstractMojo {
      */
     protected static final String VERTX_ARG_JAVA_OPT = "--java-opts";
 
+    /**
+     * vert.x start argument making the started application write to the output of the launcher
+     */
+    protected static final String VERTX_ARG_REDIRECT_OUTPUT = "--redirect-output";
+
     /**
      * vert.x redeploy argument
      */
@@ -93,6 +104,11 @@ public abstract class AbstractVertxMojo extends AbstractMojo {
      */
     protected static final String VERTX_COMMAND_START = "start";
 
+    /**
+     * vert.x command run
+     */
+    protected static final String VERTX_COMMAND_RUN = "run";
+
     /**
      *
      */
@@ -103,6 +119,16 @@ public abstract class AbstractVertxMojo extends AbstractMojo {
      */
     protected static final String VERTX_PID_FILE = "vertx-start-process.id";
 
+    /**
+     * The file, in the working directory, recording every application started in background
+     */
+    protected static final String VERTX_APPLICATIONS_FILE = "vertx-applications.json";
+
+    /**
+     * The argument the vert.x start command passes to the JVM of the started application, followed by its id
+     */
+    protected static final String VERTX_ID_PROPERTY_ARG = "-Dvertx.id=";
+
     /**
      *
      */
@@ -174,74 +200,104 @@ public abstract class AbstractVertxMojo extends AbstractMojo {
     @Parameter(defaultValue = "io.vertx.core.Launcher", property = "vertx.launcher")
     protected String launcher;
 
-    public MavenProject getProject() {
-        return project;
-    }
-
     /**
-     * this method resolves maven artifact from all configured repositories using the maven coordinates
-     *
-     * @param artifact - the maven coordinates of the artifact
-     * @return {@link Optional} {@link File} pointing to the resolved artifact in local repository
+     * The files of the artifacts resolved so far, keyed by artifact id
      */
-    protected Optional<File> resolveArtifact(String artifact) {
-        ArtifactRequest artifactRequest = new ArtifactRequest();
-        artifactRequest.setArtifact(new org.eclipse.aether.artifact.DefaultArtifact(artifact));
-        try {
-            ArtifactResult artifactResult = repositorySystem.resolveArtifact(repositorySystemSession, artifactRequest);
-            if (artifactResult.isResolved()) {
-                getLog().info("Resolved :" + artifactResult.getArtifact().getArtifactId());
-                return Optional.of(artifactResult.getArtifact().getFile());
-            } else {
-                getLog().error("Unable to resolve:" + artifact);
-            }
-        } catch (ArtifactResolutionException e) {
-            getLog().error("Unable to resolve:" + artifact);
-        }
+    private final Map<String, Optional<File>> resolvedArtifacts = new HashMap<>();
 
-        return Optional.empty();
+    public MavenProject getProject() {
+        return project;
     }
 
     /**
-     * this method helps in extracting the Artifact paths from the Maven local repository
+     * this method helps in extracting the Artifact paths from the Maven local repository, the artifacts that were not
+     * resolved yet by {@link #resolveArtifacts(Collection)} are resolved first
      *
      * @param artifacts - the collection of artifacts which needs to be resolved to local {@link File}
      * @return A {@link Set} of {@link Optional} file paths
      */
     protected Set<Optional<File>> extractArtifactPaths(Set<Artifact> artifacts) {
+        if (artifacts == null) {
+            return new LinkedHashSet<>();
+        }
+        resolveArtifacts(artifacts);
         return artifacts
                 .stream()
-                .filter(e -> e.getScope().equals("compile") || e.getScope().equals("runtime"))
-                .map(artifact -> asMavenCoordinates(artifact))
-                .map(s -> resolveArtifact(s))
-                .collect(Collectors.toSet());
+                .filter(this::isPackagedScope)
+                .map(artifact -> resolvedArtifacts.get(artifact.getId()))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     /**
-     * this method helps in resolving the {@link Artifact} as maven coordinates
-     * coordinates ::= group:artifact:version:[packaging]:[classifier]
+     * Resolves the compile and runtime artifacts to their local {@link File}s. An artifact already resolved by Maven
+     * is taken as is, the others are resolved with a single batched request so that the repository system can
+     * download them in parallel. Each artifact is resolved once per mojo execution, however many times it is asked
      *
-     * @param artifact - the artifact which need to be represented as maven coordinate
-     * @return string representing the maven coordinate
+     * @param artifacts - the artifacts to resolve, e.g. the direct and the transitive dependencies together
      */
-    protected String asMavenCoordinates(Artifact artifact) {
-        // TODO-ROL: Shouldn't there be also the classified included after the groupId (if given ?)
-        // Maybe we we should simply reuse DefaultArtifact.toString() (but could be too fragile as it might change
-        // although I don't think it will change any time soon since probably many people already
-        // rely on it)
-        StringBuilder artifactCords = new StringBuilder().
-                append(artifact.getGroupId())
-                .append(":")
-                .append(artifact.getArtifactId())
-                .append(":")
-                .append(artifact.getVersion());
-        if (!"jar".equals(artifact.getType())) {
-            artifactCords.append(":").append(artifact.getType());
+    protected void resolveArtifacts(Collection<Artifact> artifacts) {
+        long start = System.nanoTime();
+        int fromProject = 0;
+        Map<String, ArtifactRequest> requests = new LinkedHashMap<>();
+
+        for (Artifact artifact : artifacts) {
+            String id = artifact.getId();
+            if (!isPackagedScope(artifact) || resolvedArtifacts.containsKey(id) || requests.containsKey(id)) {
+                continue;
+            }
+            File file = artifact.getFile();
+            if (file != null && file.exists()) {
+                resolvedArtifacts.put(id, Optional.of(file));
+                fromProject++;
+            } else {
+                requests.put(id, new ArtifactRequest(asAetherArtifact(artifact),
+                        project != null ? project.getRemoteProjectRepositories() : null, null));
+            }
         }
-        if (artifact.hasClassifier()) {
-            artifactCords.append(":").append(artifact.getClassifier());
+
+        if (!requests.isEmpty()) {
+            List<ArtifactResult> results;
+            try {
+                results = repositorySystem.resolveArtifacts(repositorySystemSession, requests.values());
+            } catch (ArtifactResolutionException e) {
+                results = e.getResults();
+            }
+            // the results are in the order of the requests
+            int i = 0;
+            for (String id : requests.keySet()) {
+                ArtifactResult result = i < results.size() ? results.get(i++) : null;
+                if (result != null && result.isResolved()) {
+                    if (getLog().isDebugEnabled()) {
+                        getLog().debug("Resolved :" + result.getArtifact().getArtifactId());
+                    }
+                    resolvedArtifacts.put(id, Optional.of(result.getArtifact().getFile()));
+                } else {
+                    getLog().error("Unable to resolve:" + id);
+                    resolvedArtifacts.put(id, Optional.empty());
+                }
+            }
+        }
+
+        if (fromProject > 0 || !requests.isEmpty()) {
+            getLog().info(String.format("Resolved %d artifact(s) in %d ms, %d already resolved by Maven and %d from "
+                            + "the repositories", fromProject + requests.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), fromProject, requests.size()));
         }
-        return artifactCords.toString();
+    }
+
+    private boolean isPackagedScope(Artifact artifact) {
+        return "compile".equals(artifact.getScope()) || "runtime".equals(artifact.getScope());
+    }
+
+    /**
+     * @param artifact - the Maven artifact
+     * @return the repository system artifact with the same coordinates
+     */
+    protected org.eclipse.aether.artifact.Artifact asAetherArtifact(Artifact artifact) {
+        String extension = artifact.getArtifactHandler() != null ? artifact.getArtifactHandler().getExtension()
+                : artifact.getType();
+        return new org.eclipse.aether.artifact.DefaultArtifact(artifact.getGroupId(), artifact.getArtifactId(),
+                artifact.getClassifier(), extension != null ? extension : "jar", artifact.getVersion());
     }
 
     /**
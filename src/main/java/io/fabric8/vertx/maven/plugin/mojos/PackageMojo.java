@@ -16,7 +16,10 @@
 
 package io.fabric8.vertx.maven.plugin.mojos;
 
+import io.fabric8.vertx.maven.plugin.functions.ResourceTransformer;
+import io.fabric8.vertx.maven.plugin.model.Relocator;
 import io.fabric8.vertx.maven.plugin.model.RelocatorMode;
+import io.fabric8.vertx.maven.plugin.utils.JarIndexCache;
 import io.fabric8.vertx.maven.plugin.utils.MojoUtils;
 import io.fabric8.vertx.maven.plugin.utils.PackageHelper;
 import org.apache.maven.artifact.Artifact;
@@ -33,6 +36,7 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -50,14 +54,89 @@ import java.util.Set;
 public class PackageMojo extends AbstractVertxMojo {
 
 
+    /**
+     * The file where the state of the previous fat jar build is saved
+     */
+    protected static final String VERTX_PACKAGE_STATE_FILE = "vertx-package.state";
+
+    /**
+     * The file listing the classes kept in a minimized fat jar and why they are kept
+     */
+    protected static final String VERTX_MINIMIZE_REPORT_FILE = "vertx-minimize-report.txt";
+
     final MojoUtils mojoUtils = new MojoUtils();
 
     /**
-     *
+     * How the service providers declared in META-INF/services by the project and its dependencies are relocated,
+     * the relocation is done while the fat jar is written
      */
     @Parameter(name = "serviceRelocator")
     protected RelocatorMode serviceRelocator;
 
+    /**
+     * The transformers merging the resources found in more than one jar while the fat jar is written, configured
+     * like the maven-shade-plugin transformers with an implementation attribute
+     */
+    @Parameter(name = "transformers")
+    protected List<ResourceTransformer> transformers;
+
+    /**
+     * The packages moved to shaded packages inside the fat jar, e.g. to embed a version of Netty that does not
+     * conflict with another one. The classes and the references to them are rewritten while the fat jar is written
+     */
+    @Parameter(name = "relocations")
+    protected List<Relocator> relocations;
+
+    /**
+     * Whether the compressed entries of the project artifact and its dependencies will be copied as is in to the
+     * fat jar, without inflating and compressing them again. Only the generated entries are compressed
+     */
+    @Parameter(name = "rawCopy", property = "vertx.package.rawCopy", defaultValue = "true")
+    protected boolean rawCopy;
+
+    /**
+     * The number of threads used to read the dependencies and compress the fat jar entries, the fat jar is the same
+     * whatever the number of threads. When 0 or less, the number of available processors is used
+     */
+    @Parameter(name = "packageThreads", property = "vertx.package.threads", defaultValue = "0")
+    protected int packageThreads;
+
+    /**
+     * Whether the fat jar is rebuilt incrementally, when only the project classes changed since the previous build,
+     * the dependency entries are copied from the previous fat jar instead of being read again from every dependency.
+     * An error while rebuilding the fat jar fails the build, the previous fat jar is never kept as if it was rebuilt
+     */
+    @Parameter(name = "incremental", property = "vertx.package.incremental", defaultValue = "true")
+    protected boolean incremental;
+
+    /**
+     * Whether the index of each dependency, i.e. its entry table, META-INF/services files and manifest, is cached
+     * across builds so that unchanged dependencies are not read again
+     */
+    @Parameter(name = "indexCache", property = "vertx.package.indexCache", defaultValue = "true")
+    protected boolean indexCache;
+
+    /**
+     * The directory of the dependency index cache, shared by all the projects of the machine
+     */
+    @Parameter(name = "indexCacheDirectory", property = "vertx.package.indexCacheDirectory",
+            defaultValue = "${user.home}/.m2/vertx-maven-plugin-cache")
+    protected File indexCacheDirectory;
+
+    /**
+     * Whether the classes that cannot be reached from the launcher, the main verticle, the service providers and the
+     * project classes are left out of the fat jar. The kept classes are listed in target/vertx-minimize-report.txt
+     */
+    @Parameter(name = "minimize", property = "vertx.package.minimize", defaultValue = "false")
+    protected boolean minimize;
+
+    /**
+     * The classes always kept in a minimized fat jar, e.g. the classes only loaded by reflection, as patterns like
+     * io.netty.handler.ssl.**
+     */
+    @Parameter(name = "minimizeIncludes")
+    protected List<String> minimizeIncludes;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
 
@@ -71,12 +150,19 @@ public class PackageMojo extends AbstractVertxMojo {
 
         //Step 0: Resolve and Collect Dependencies as g:a:v:t:c coordinates
 
+        // resolves the direct and transitive dependencies together, in a single batch
+        resolveArtifacts(this.project.getArtifacts());
+
         Set<Optional<File>> compileAndRuntimeDeps = extractArtifactPaths(this.project.getDependencyArtifacts());
         Set<Optional<File>> transitiveDeps = extractArtifactPaths(this.project.getArtifacts());
 
         PackageHelper packageHelper = new PackageHelper(this.launcher, this.verticle)
                 .compileAndRuntimeDeps(compileAndRuntimeDeps)
-                .transitiveDeps(transitiveDeps);
+                .transitiveDeps(transitiveDeps)
+                .rawCopy(rawCopy)
+                .serviceRelocator(serviceRelocator)
+                .transformers(transformers)
+                .threads(packageThreads > 0 ? packageThreads : Runtime.getRuntime().availableProcessors());
 
         //Step 1: build the jar add classifier and add it to project
 
@@ -89,18 +175,25 @@ public class PackageMojo extends AbstractVertxMojo {
 
             Path pathProjectBuildDir = Paths.get(this.projectBuildDir);
 
+            if (incremental) {
+                packageHelper.incremental(pathProjectBuildDir.resolve(VERTX_PACKAGE_STATE_FILE).toFile());
+            }
+
+            packageHelper.relocations(relocations);
+
+            if (minimize) {
+                packageHelper.minimize(minimizeIncludes,
+                        pathProjectBuildDir.resolve(VERTX_MINIMIZE_REPORT_FILE).toFile());
+            }
+
+            if (indexCache && indexCacheDirectory != null) {
+                packageHelper.indexCache(new JarIndexCache(indexCacheDirectory).withLog(getLog()));
+            }
+
             File fatJarFile = packageHelper
                     .log(getLog())
                     .build(fatJarName, pathProjectBuildDir, primaryArtifactFile.get());
 
-            /**
-             * Perform the relocation of the service providers when serviceRelocator is defined
-             */
-            if (serviceRelocator != null) {
-                packageHelper.relocateServiceInterfaces(primaryArtifactFile.get(), serviceRelocator,
-                        pathProjectBuildDir, fatJarFile);
-            }
-
             ArtifactHandler handler = new DefaultArtifactHandler("jar");
 
             Artifact vertxJarArtifact = new DefaultArtifact(artifact.getGroupId(),
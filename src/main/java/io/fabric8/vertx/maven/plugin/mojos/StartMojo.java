@@ -16,7 +16,13 @@
 
 package io.fabric8.vertx.maven.plugin.mojos;
 
+import io.fabric8.vertx.maven.plugin.model.Application;
+import io.fabric8.vertx.maven.plugin.utils.ApplicationRegistry;
+import io.fabric8.vertx.maven.plugin.utils.CdsArchive;
+import io.fabric8.vertx.maven.plugin.utils.JavaProcessExecutor;
 import io.fabric8.vertx.maven.plugin.utils.MojoUtils;
+import io.fabric8.vertx.maven.plugin.utils.ProcessSignals;
+import io.fabric8.vertx.maven.plugin.utils.ReadinessProbe;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -24,19 +30,35 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
 /**
  * This goal is used to run the vertx application in background mode, the application id will be persisted in the
- * working directory of the project with a file name vertx-start-process.id
+ * working directory of the project with a file name vertx-start-process.id. Every started application is recorded in
+ * the vertx-applications.json file of the working directory, along with the process id of its JVM
  *
  * @author kameshs
  */
@@ -48,7 +70,7 @@ public class StartMojo extends AbstractRunMojo {
 
     /**
      * this control how long the process should to start, if the process does not start within the time, its deemed as
-     * failed, the default value is 10 seconds
+     * failed, the default value is 10 seconds. It is the time the readiness checks are waited for
      */
     @Parameter(alias = "timeout", property = "vertx.start.timeout", defaultValue = "10")
     protected int timeout;
@@ -75,6 +97,62 @@ public class StartMojo extends AbstractRunMojo {
     @Parameter(alias = "jvmArgs", property = "vertx.jvmArguments")
     protected List<String> jvmArgs;
 
+    /**
+     * Whether the fat jar is started with an AppCDS archive, the archive is dumped in to the build directory by a
+     * training run of the fat jar and dumped again when the fat jar changes. It is used in jar mode, on Java 13 or
+     * later
+     */
+    @Parameter(alias = "cds", property = "vertx.start.cds", defaultValue = "false")
+    protected boolean cds;
+
+    /**
+     * How long, in seconds, the training run of the fat jar runs before it is stopped and its AppCDS archive dumped
+     */
+    @Parameter(alias = "cdsTrainingTime", property = "vertx.start.cdsTrainingTime", defaultValue = "10")
+    protected long cdsTrainingTime;
+
+    /**
+     * The port the started application listens on, the goal returns once the port accepts connections
+     */
+    @Parameter(alias = "readinessPort", property = "vertx.start.readinessPort")
+    protected Integer readinessPort;
+
+    /**
+     * The host the readiness port is checked on
+     */
+    @Parameter(alias = "readinessHost", property = "vertx.start.readinessHost", defaultValue = "localhost")
+    protected String readinessHost;
+
+    /**
+     * The HTTP path, on the readiness port, the goal polls until it answers with a 2xx or 3xx status, e.g. /health.
+     * It requires the readinessPort
+     */
+    @Parameter(alias = "readinessPath", property = "vertx.start.readinessPath")
+    protected String readinessPath;
+
+    /**
+     * The regular expression of the line the started application logs once ready, e.g. Succeeded in deploying
+     * verticle. The application output is then appended to the outputFile, or to
+     * ${project.build.directory}/vertx-start.log
+     */
+    @Parameter(alias = "readinessLogPattern", property = "vertx.start.readinessLogPattern")
+    protected String readinessLogPattern;
+
+    /**
+     * The applications started instead of the application of the project verticle, each with its own id and
+     * verticle. The applications are started by group, the applications of a group are started in parallel once
+     * the applications of the lower groups are ready. Each application gets its own JVM, its output is appended to
+     * ${project.build.directory}/vertx-start-&lt;id&gt;.log
+     */
+    @Parameter(alias = "applications")
+    protected List<Application> applications;
+
+    /**
+     * The number of applications of a group started at the same time
+     */
+    @Parameter(alias = "startThreads", property = "vertx.start.threads", defaultValue = "8")
+    protected int startThreads;
+
     private MojoUtils mojoUtils = new MojoUtils();
 
     @Override
@@ -82,6 +160,11 @@ public class StartMojo extends AbstractRunMojo {
 
         vertxCommand = VERTX_COMMAND_START;
 
+        if (applications != null && !applications.isEmpty()) {
+            startApplications();
+            return;
+        }
+
         String vertxProcId = getAppId();
 
         List<String> argsList = new ArrayList<>();
@@ -100,33 +183,28 @@ public class StartMojo extends AbstractRunMojo {
             throw new MojoExecutionException("Unable to write process file to directory :" + workDirectory.toString());
         }
 
-        boolean jarMode = VERTX_RUN_MODE_JAR.equals(runMode);
+        long start = System.currentTimeMillis();
 
-        if (jarMode) {
-
-            Optional<Artifact> vertxJar = getVertxArtifact();
-
-            if (!vertxJar.isPresent()) {
-                getLog().info("Vertx application jar not found, building ...");
-                mojoUtils.withLog(getLog()).buildVertxArtifact(this.project, this.mavenSession
-                        , this.buildPluginManager);
-            }
+        if (isDaemon()) {
+            ReadinessProbe probe = readinessProbe(readinessPort, readinessPath, readinessLogPattern,
+                    new File(new File(projectBuildDir, VERTX_DAEMON_DIR), "daemon.log"));
+            startOnDaemon(vertxProcId);
+            register(new ApplicationRegistry.Entry(vertxProcId, 0, null, null,
+                    daemonClient.getStateFile().getAbsolutePath(), start));
+            awaitReadiness(vertxProcId, probe, start);
+            return;
+        }
 
-            //Double check it
-            vertxJar = getVertxArtifact();
+        boolean jarMode = VERTX_RUN_MODE_JAR.equals(runMode);
 
-            if (vertxJar.isPresent()) {
-                argsList.add("-jar");
-                argsList.add(vertxJar.get().getFile().toString());
-            } else {
-                throw new MojoFailureException("Unable to find vertx application jar --> "
-                        + this.project.getArtifactId() + "-fat.jar");
-            }
-        } else {
-            addClasspath(argsList);
+        // in exploded mode the classpath is added by the executor
+        if (jarMode) {
+            argsList.add("-jar");
+            argsList.add(getVertxJar().toString());
         }
 
-        if (isVertxLauncher(launcher)) {
+        boolean isVertxLauncher = isVertxLauncher(launcher);
+        if (isVertxLauncher) {
             addVertxArgs(argsList);
         } else {
             argsList.add(launcher);
@@ -138,14 +216,19 @@ public class StartMojo extends AbstractRunMojo {
         removebaleArgs.add(launcher);
         removebaleArgs.add(AbstractRunMojo.VERTX_ARG_LAUNCHER_CLASS);
 
+        List<String> javaOptions = jvmArgs != null ? new ArrayList<>(jvmArgs) : new ArrayList<>();
+
         if (jarMode) {
             argsList.removeAll(removebaleArgs);
+            if (cds) {
+                prepareCdsArchive(argsList).ifPresent(javaOptions::add);
+            }
         }
         argsList.add("-id");
         argsList.add(vertxProcId);
 
-        if (jvmArgs != null && !jvmArgs.isEmpty()) {
-            String javaOpts = jvmArgs.stream().collect(Collectors.joining(" "));
+        if (!javaOptions.isEmpty()) {
+            String javaOpts = javaOptions.stream().collect(Collectors.joining(" "));
             StringBuilder argJavaOpts = new StringBuilder();
             argJavaOpts.append(VERTX_ARG_JAVA_OPT);
             argJavaOpts.append("=\"");
@@ -154,8 +237,342 @@ public class StartMojo extends AbstractRunMojo {
             argsList.add(argJavaOpts.toString());
         }
 
+        if (readinessLogPattern != null && isVertxLauncher) {
+            // the started application inherits the output of the launcher, a file it keeps writing to once the
+            // launcher is over
+            argsList.add(VERTX_ARG_REDIRECT_OUTPUT);
+            if (outputFile == null) {
+                outputFile = new File(projectBuildDir, "vertx-start.log");
+            }
+        }
+        ReadinessProbe probe = readinessProbe(readinessPort, readinessPath, readinessLogPattern, outputFile);
+
         run(argsList);
 
+        register(processEntry(vertxProcId, 0, start));
+
+        awaitReadiness(vertxProcId, probe, start);
+
+    }
+
+    /**
+     * Starts the configured applications group after group, the applications of a group in parallel, and waits for
+     * each group to be ready before starting the next one
+     *
+     * @throws MojoExecutionException - the applications cannot be started
+     * @throws MojoFailureException   - an application of a group failed to start or was not ready in time
+     */
+    private void startApplications() throws MojoExecutionException, MojoFailureException {
+        if (!isVertxLauncher(launcher)) {
+            throw new MojoExecutionException("The applications can only be started by a vert.x launcher");
+        }
+        if (daemon) {
+            getLog().warn("The applications are started in their own JVM, not on the vert.x daemon");
+        }
+
+        Map<Integer, List<Application>> groups = new TreeMap<>();
+        Set<String> ids = new HashSet<>();
+        for (Application application : applications) {
+            if (application.getId() == null) {
+                application.setId(UUID.randomUUID().toString());
+            }
+            if (application.getVerticle() == null) {
+                application.setVerticle(verticle);
+            }
+            if (application.getVerticle() == null) {
+                throw new MojoExecutionException("No verticle for the application " + application.getId());
+            }
+            if (!ids.add(application.getId())) {
+                throw new MojoExecutionException("The application id " + application.getId() + " is not unique");
+            }
+            groups.computeIfAbsent(application.getGroup(), group -> new ArrayList<>()).add(application);
+        }
+
+        boolean jarMode = VERTX_RUN_MODE_JAR.equals(runMode);
+        List<String> baseArgs = new ArrayList<>();
+        List<String> javaOptions = new ArrayList<>();
+        if (jarMode) {
+            baseArgs.add("-jar");
+            baseArgs.add(getVertxJar().toString());
+            if (cds) {
+                List<String> trainingArgs = new ArrayList<>(baseArgs);
+                trainingArgs.add(VERTX_COMMAND_START);
+                prepareCdsArchive(trainingArgs).ifPresent(javaOptions::add);
+            }
+        } else {
+            baseArgs.add(launcher);
+        }
+        List<URL> classPath = jarMode ? Collections.emptyList() : getClassPathUrls();
+
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(startThreads,
+                groups.values().stream().mapToInt(List::size).max().orElse(1))), runnable -> {
+            Thread thread = new Thread(runnable, "vertx-start");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (Map.Entry<Integer, List<Application>> group : groups.entrySet()) {
+                long groupStart = System.currentTimeMillis();
+                List<Future<?>> started = new ArrayList<>();
+                for (Application application : group.getValue()) {
+                    started.add(executor.submit(() -> {
+                        startApplication(application, baseArgs, javaOptions, classPath);
+                        return null;
+                    }));
+                }
+                List<String> failures = new ArrayList<>();
+                for (int i = 0; i < started.size(); i++) {
+                    try {
+                        started.get(i).get();
+                    } catch (ExecutionException e) {
+                        getLog().error("Unable to start " + group.getValue().get(i), e.getCause());
+                        failures.add(group.getValue().get(i) + ": " + e.getCause().getMessage());
+                    }
+                }
+                if (!failures.isEmpty()) {
+                    throw new MojoFailureException("The group " + group.getKey() + " failed to start, the started "
+                            + "applications are still running, vertx:stop stops them: " + String.join(", ", failures));
+                }
+                getLog().info("The group " + group.getKey() + " of " + group.getValue().size()
+                        + " application(s) is ready in " + (System.currentTimeMillis() - groupStart) + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoFailureException("Interrupted while starting the applications", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        getLog().info("Started " + applications.size() + " application(s) in " + (System.currentTimeMillis() - start)
+                + " ms");
+    }
+
+    /**
+     * Starts an application with the vert.x start command, records it and waits for it to be ready
+     */
+    private void startApplication(Application application, List<String> baseArgs, List<String> baseJavaOptions,
+                                  List<URL> classPath) throws Exception {
+        long start = System.currentTimeMillis();
+        File log = new File(projectBuildDir, "vertx-start-" + application.getId() + ".log");
+
+        List<String> args = new ArrayList<>(baseArgs);
+        args.add(VERTX_COMMAND_START);
+        args.add(application.getVerticle());
+        args.add(VERTX_ARG_LAUNCHER_CLASS + "=\"" + launcher + "\"");
+        File applicationConfig = application.getConfig() != null ? application.getConfig() : config;
+        if (applicationConfig != null && applicationConfig.isFile()) {
+            args.add(VERTX_ARG_CONF);
+            args.add(applicationConfig.getAbsolutePath());
+        }
+        args.add("-id");
+        args.add(application.getId());
+        List<String> javaOptions = new ArrayList<>(baseJavaOptions);
+        if (application.getJvmArgs() != null) {
+            javaOptions.addAll(application.getJvmArgs());
+        }
+        if (!javaOptions.isEmpty()) {
+            args.add(VERTX_ARG_JAVA_OPT + "=\"" + String.join(" ", javaOptions) + "\"");
+        }
+        if (application.getReadinessLogPattern() != null) {
+            args.add(VERTX_ARG_REDIRECT_OUTPUT);
+        }
+        ReadinessProbe probe = readinessProbe(application.getReadinessPort(), application.getReadinessPath(),
+                application.getReadinessLogPattern(), log);
+
+        Optional<Process> launched = new JavaProcessExecutor()
+                .withArgs(args)
+                .withClassPath(classPath)
+                .withClassPathDirectory(new File(projectBuildDir))
+                .withLogger(getLog())
+                .withOutputFile(log)
+                .withWaitFor(true)
+                .execute();
+        if (launched.isPresent() && launched.get().exitValue() != 0) {
+            throw new MojoExecutionException("The vert.x start command failed, see " + log);
+        }
+
+        register(processEntry(application.getId(), application.getGroup(), start));
+        awaitReadiness(application.getId(), probe, start);
+    }
+
+    /**
+     * @return the entry of an application running in the JVM the vert.x start command forked, recorded with the
+     * process id and start time of the JVM when it is found
+     */
+    private ApplicationRegistry.Entry processEntry(String id, int group, long start) {
+        Long pid = findPid(id);
+        Long processStart = null;
+        if (pid != null) {
+            try {
+                processStart = ProcessSignals.startTime(pid).orElse(null);
+            } catch (IOException e) {
+                getLog().debug("Unable to find the start time of the process of " + id, e);
+            }
+        }
+        return new ApplicationRegistry.Entry(id, group, pid, processStart, null, start);
+    }
+
+    /**
+     * @param id - the application id
+     * @return the process id of the JVM the vert.x start command forked for the application, null if it cannot be
+     * found
+     */
+    private Long findPid(String id) {
+        try {
+            return ProcessSignals.findPid(ProcessSignals.commandLines(), VERTX_ID_PROPERTY_ARG + id).orElse(null);
+        } catch (IOException e) {
+            getLog().debug("Unable to find the process of " + id, e);
+            return null;
+        }
+    }
+
+    private void register(ApplicationRegistry.Entry entry) throws MojoExecutionException {
+        try {
+            getApplicationRegistry().add(entry);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to record the application " + entry.getId(), e);
+        }
+    }
+
+    /**
+     * @param port       - the port the application listens on, null if it is not checked
+     * @param path       - the HTTP path on the port, null if it is not checked
+     * @param logPattern - the pattern of the line the application logs once ready, null if it is not checked
+     * @param logFile    - the file the output of the application is appended to
+     * @return the readiness checks of the application
+     * @throws MojoExecutionException - the log pattern is invalid, or the path is given without a port
+     */
+    private ReadinessProbe readinessProbe(Integer port, String path, String logPattern, File logFile)
+            throws MojoExecutionException {
+        if (path != null && port == null) {
+            // checked before the application is started
+            throw new MojoExecutionException("readinessPath requires readinessPort");
+        }
+        ReadinessProbe probe = new ReadinessProbe().withLog(getLog());
+        if (port != null) {
+            probe.withPort(readinessHost, port);
+        }
+        if (path != null) {
+            probe.withHttpPath(path);
+        }
+        if (logPattern != null && logFile != null) {
+            try {
+                probe.withLogPattern(logFile, Pattern.compile(logPattern));
+            } catch (PatternSyntaxException e) {
+                throw new MojoExecutionException("Invalid readinessLogPattern " + logPattern, e);
+            }
+        }
+        return probe;
+    }
+
+    /**
+     * Waits until the started application passes the readiness checks, at most for the timeout
+     *
+     * @param id    - the application id
+     * @param probe - the readiness checks
+     * @param start - when the application was started
+     * @throws MojoFailureException - the application was not ready in time
+     */
+    private void awaitReadiness(String id, ReadinessProbe probe, long start) throws MojoFailureException {
+        if (!probe.isConfigured()) {
+            return;
+        }
+        try {
+            probe.await(Math.max(0, TimeUnit.SECONDS.toMillis(timeout) - (System.currentTimeMillis() - start)));
+            getLog().info("The application " + id + " is ready in " + (System.currentTimeMillis() - start)
+                    + " ms");
+        } catch (IOException e) {
+            throw new MojoFailureException(e.getMessage() + ", it is still running, vertx:stop stops it", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoFailureException("Interrupted while waiting for the application " + id, e);
+        }
+    }
+
+    /**
+     * Deploys the application on the daemon and writes its handle, holding the state file of the daemon, for the
+     * stop goal. The daemon deploys the project classes, the start mode is ignored
+     *
+     * @param vertxProcId - the application id
+     * @throws MojoExecutionException - any error while deploying the application
+     */
+    private void startOnDaemon(String vertxProcId) throws MojoExecutionException {
+        if (VERTX_RUN_MODE_JAR.equals(runMode)) {
+            getLog().info("The vert.x daemon runs the application from the classes directory");
+        }
+        scanAndLoadConfigs();
+        deployOnDaemon(vertxProcId);
+        Path handle = Paths.get(projectBuildDir, VERTX_DAEMON_DIR, vertxProcId + VERTX_DAEMON_HANDLE_EXTENSION);
+        try {
+            Files.write(handle, daemonClient.getStateFile().getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write the daemon handle " + handle, e);
+        }
+    }
+
+    /**
+     * Dumps the AppCDS archive of the fat jar when there is none yet or the fat jar changed, with a training run of
+     * the fat jar
+     *
+     * @param argsList - the arguments starting the fat jar, the start command is replaced by the run command for the
+     *                 training run
+     * @return the JVM option using the archive, empty if the archive cannot be used
+     */
+    private Optional<String> prepareCdsArchive(List<String> argsList) {
+        if (!CdsArchive.isSupported()) {
+            getLog().warn("AppCDS archives need Java 13 or later, the application is started without");
+            return Optional.empty();
+        }
+        File jar = new File(argsList.get(argsList.indexOf("-jar") + 1));
+        CdsArchive archive = new CdsArchive(jar, new File(projectBuildDir)).withLog(getLog());
+        try {
+            if (archive.isValid()) {
+                getLog().info("Using the AppCDS archive " + archive.getArchive());
+            } else {
+                List<String> trainingArgs = new ArrayList<>();
+                if (jvmArgs != null) {
+                    trainingArgs.addAll(jvmArgs);
+                }
+                trainingArgs.add(archive.getTrainingOption());
+                argsList.stream()
+                        .map(arg -> VERTX_COMMAND_START.equals(arg) ? VERTX_COMMAND_RUN : arg)
+                        .forEach(trainingArgs::add);
+                archive.train(new JavaProcessExecutor()
+                        .withArgs(trainingArgs)
+                        .withClassPathDirectory(new File(projectBuildDir))
+                        .withWorkingDirectory(workDirectory)
+                        .withLogger(getLog())
+                        .withOutputFile(new File(projectBuildDir, "vertx-cds-training.log")), cdsTrainingTime);
+            }
+            return Optional.of(archive.getSharedArchiveOption());
+        } catch (Exception e) {
+            getLog().warn("Unable to dump the AppCDS archive of " + jar + ", the application is started without", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the fat jar of the project, it is built when it is not attached to the project yet
+     * @throws MojoExecutionException - any error while building the fat jar
+     * @throws MojoFailureException   - the fat jar cannot be found
+     */
+    private File getVertxJar() throws MojoExecutionException, MojoFailureException {
+        Optional<Artifact> vertxJar = getVertxArtifact();
+
+        if (!vertxJar.isPresent()) {
+            getLog().info("Vertx application jar not found, building ...");
+            mojoUtils.withLog(getLog()).buildVertxArtifact(this.project, this.mavenSession
+                    , this.buildPluginManager);
+        }
+
+        //Double check it
+        vertxJar = getVertxArtifact();
+
+        if (vertxJar.isPresent()) {
+            return vertxJar.get().getFile();
+        }
+        throw new MojoFailureException("Unable to find vertx application jar --> "
+                + this.project.getArtifactId() + "-fat.jar");
     }
 
     /**
@@ -16,21 +16,34 @@
 
 package io.fabric8.vertx.maven.plugin.mojos;
 
+import io.fabric8.vertx.maven.plugin.utils.ApplicationRegistry;
+import io.fabric8.vertx.maven.plugin.utils.DaemonClient;
+import io.fabric8.vertx.maven.plugin.utils.JavaProcessExecutor;
+import io.fabric8.vertx.maven.plugin.utils.ProcessSignals;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This goal is used to stop the vertx application in background mode identified by vertx process id stored
- * in the project workingDirectory with name vertx-start-process.id
+ * in the project workingDirectory with name vertx-start-process.id, or all the applications recorded in the
+ * vertx-applications.json file of the workingDirectory. The applications are stopped by group, in the reverse order
+ * they were started, the applications of a group in parallel
  *
  * @author kameshs
  */
@@ -40,60 +53,238 @@ import java.util.*;
 )
 public class StopMojo extends AbstractRunMojo {
 
+    /**
+     * how far apart the recorded and the current start time of a process may be, in milliseconds, for it to be the
+     * same process
+     */
+    private static final long PROCESS_START_TOLERANCE = 1000;
+
     /**
      * this control how long the process should to start, if the process does not stop within the time, its deemed as
-     * failed, the default value is 10 seconds
+     * failed, the default value is 10 seconds. The process is killed when it did not stop in time
      */
     @Parameter(alias = "timeout", property = "vertx.stop.timeout", defaultValue = "10")
     protected int timeout;
 
     /**
      * the vertx application id that will be used to stop the process, if left blank this value will be intialized
-     * form the ${project.basedir}/{@link AbstractVertxMojo#VERTX_PID_FILE}
+     * form the applications recorded in ${project.basedir}/{@link AbstractVertxMojo#VERTX_APPLICATIONS_FILE} or
+     * the ${project.basedir}/{@link AbstractVertxMojo#VERTX_PID_FILE}
      */
     @Parameter(alias = "appIds")
     protected Set<String> appIds;
 
+    /**
+     * The number of applications of a group stopped at the same time
+     */
+    @Parameter(alias = "stopThreads", property = "vertx.stop.threads", defaultValue = "8")
+    protected int stopThreads;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
 
         vertxCommand = VERTX_COMMAND_STOP;
 
-        getAppId();
+        ApplicationRegistry registry = getApplicationRegistry();
+        Map<String, ApplicationRegistry.Entry> recorded = new LinkedHashMap<>();
+        try {
+            registry.list().forEach(entry -> recorded.put(entry.getId(), entry));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to read " + VERTX_APPLICATIONS_FILE, e);
+        }
 
-        List<String> argsList = new ArrayList<>();
+        getAppId(recorded.keySet());
 
+        // the groups started last are stopped first
+        Map<Integer, List<String>> groups = new TreeMap<>(Collections.reverseOrder());
         for (String vertxProcId : appIds) {
-            try {
+            ApplicationRegistry.Entry entry = recorded.get(vertxProcId);
+            groups.computeIfAbsent(entry != null ? entry.getGroup() : 0, group -> new ArrayList<>()).add(vertxProcId);
+        }
 
-                addClasspath(argsList);
+        Map<Long, String> processes;
+        try {
+            processes = ProcessSignals.commandLines();
+        } catch (IOException e) {
+            getLog().debug("Unable to list the processes, the applications are stopped by the vert.x launcher", e);
+            processes = null;
+        }
+        Map<Long, String> commandLines = processes;
 
-                if (isVertxLauncher(launcher)) {
-                    addVertxArgs(argsList);
-                } else {
-                    argsList.add(launcher);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(stopThreads,
+                groups.values().stream().mapToInt(List::size).max().orElse(1))), runnable -> {
+            Thread thread = new Thread(runnable, "vertx-stop");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<String> failures = new ArrayList<>();
+        try {
+            for (List<String> group : groups.values()) {
+                List<Future<?>> stopped = new ArrayList<>();
+                for (String vertxProcId : group) {
+                    stopped.add(executor.submit(() -> {
+                        if (stop(vertxProcId, recorded.get(vertxProcId), commandLines)) {
+                            registry.remove(vertxProcId);
+                        } else {
+                            getLog().warn("The application " + vertxProcId + " was not found, it is kept in "
+                                    + VERTX_APPLICATIONS_FILE);
+                        }
+                        return null;
+                    }));
+                }
+                for (int i = 0; i < stopped.size(); i++) {
+                    try {
+                        stopped.get(i).get();
+                    } catch (ExecutionException e) {
+                        getLog().error("Unable to stop " + group.get(i), e.getCause());
+                        failures.add(group.get(i) + ": " + e.getCause().getMessage());
+                    }
                 }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while stopping the applications", e);
+        } finally {
+            executor.shutdownNow();
+        }
 
-                argsList.add(vertxProcId);
+        try {
+            Path pidFile = Paths.get(workDirectory.toString(), VERTX_PID_FILE);
+            if (Files.isRegularFile(pidFile) && appIds.contains(new String(Files.readAllBytes(pidFile)))) {
+                Files.delete(pidFile);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to delete " + VERTX_PID_FILE, e);
+        }
 
-                run(argsList);
+        if (!failures.isEmpty()) {
+            throw new MojoExecutionException("Unable to stop " + String.join(", ", failures));
+        }
+    }
 
-                Files.delete(Paths.get(workDirectory.toString(), VERTX_PID_FILE));
+    /**
+     * @param entry - a recorded application with a process id
+     * @return true if the running process of the id started when the application JVM did, false when it did not or
+     * the start times cannot be compared
+     */
+    private static boolean isRecordedProcess(ApplicationRegistry.Entry entry) throws IOException {
+        Optional<Long> processStart = ProcessSignals.startTime(entry.getPid());
+        return entry.getProcessStart() != null && processStart.isPresent()
+                && Math.abs(processStart.get() - entry.getProcessStart()) < PROCESS_START_TOLERANCE;
+    }
 
-            } catch (IOException e) {
-                throw new MojoExecutionException("Unable to read process file from directory :" + workDirectory.toString());
+    /**
+     * Stops an application: undeploys it from the daemon it runs on, or terminates its JVM, found from its command
+     * line or from the recorded process id, or runs the vert.x stop command when its JVM cannot be found
+     *
+     * @param vertxProcId  - the application id
+     * @param entry        - the recorded application, null if it was not recorded
+     * @param commandLines - the command lines of the running processes, null if they cannot be listed
+     * @return true if the application was stopped or is not running anymore, false if it could not be found
+     */
+    private boolean stop(String vertxProcId, ApplicationRegistry.Entry entry, Map<Long, String> commandLines)
+            throws Exception {
+        if (stopOnDaemon(vertxProcId)) {
+            return true;
+        }
+
+        Long pid = null;
+        if (commandLines != null) {
+            pid = ProcessSignals.findPid(commandLines, VERTX_ID_PROPERTY_ARG + vertxProcId).orElse(null);
+        }
+        // the arguments of the command lines are not always visible, e.g. on Windows
+        if (pid == null && entry != null && entry.getPid() != null) {
+            long recorded = entry.getPid();
+            if (!ProcessSignals.isAlive(recorded)) {
+                getLog().info("The application " + vertxProcId + " (" + recorded + ") is not running anymore");
+                return true;
+            }
+            if (!isRecordedProcess(entry)) {
+                // the process id may have been reused by an unrelated process once the application was gone
+                getLog().warn("The process " + recorded + " cannot be told to be the application " + vertxProcId
+                        + ", it is not signalled and the application is dropped from " + VERTX_APPLICATIONS_FILE);
+                return true;
+            }
+            pid = recorded;
+        }
+
+        if (pid != null) {
+            long start = System.currentTimeMillis();
+            if (ProcessSignals.stop(pid, TimeUnit.SECONDS.toMillis(timeout))) {
+                getLog().info("Stopped " + vertxProcId + " (" + pid + ") in " + (System.currentTimeMillis() - start)
+                        + " ms");
+            } else {
+                getLog().warn("Killed " + vertxProcId + " (" + pid + "), it did not stop within " + timeout + " s");
+            }
+            return true;
+        }
+
+        List<String> argsList = new ArrayList<>();
+        if (isVertxLauncher(launcher)) {
+            addVertxArgs(argsList);
+        } else {
+            argsList.add(launcher);
+        }
+        argsList.add(vertxProcId);
+        // the vert.x stop command exits with a non zero status when it does not find the application
+        Optional<Process> process = new JavaProcessExecutor()
+                .withArgs(argsList)
+                .withClassPath(getClassPathUrls())
+                .withClassPathDirectory(new File(projectBuildDir))
+                .withLogger(getLog())
+                .withOutputPolicy(outputPolicy)
+                .withOutputBufferSize(outputBufferSize)
+                .withWaitFor(true)
+                .execute();
+        return process.isPresent() && process.get().exitValue() == 0;
+    }
+
+    /**
+     * Undeploys the application from the daemon it was started on, no JVM is forked
+     *
+     * @param vertxProcId - the application id
+     * @return false if the application was not started on a daemon
+     * @throws MojoExecutionException - the daemon failed to undeploy the application
+     */
+    private boolean stopOnDaemon(String vertxProcId) throws MojoExecutionException {
+        Path handle = Paths.get(projectBuildDir, VERTX_DAEMON_DIR, vertxProcId + VERTX_DAEMON_HANDLE_EXTENSION);
+        if (!Files.isRegularFile(handle)) {
+            return false;
+        }
+        try {
+            DaemonClient client = new DaemonClient(new File(new String(Files.readAllBytes(handle),
+                    StandardCharsets.UTF_8)));
+            if (client.isAlive()) {
+                client.send("stop", vertxProcId);
+                getLog().info("Stopped " + vertxProcId + " on the vert.x daemon " + client.getPid());
+            } else {
+                getLog().warn("The vert.x daemon running " + vertxProcId + " is gone");
             }
+            Files.delete(handle);
+            return true;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to stop " + vertxProcId + " on the vert.x daemon", e);
         }
     }
 
     /**
      * This will compute the vertx application id(s) that will be passed to the vertx applicaiton with &quot;-id&quot;
      * option, if the appId is not found in the configuration an new {@link UUID}  will be generated and assigned
+     *
+     * @param recorded - the ids of the recorded applications, stopped when no appIds are configured
      */
-    private void getAppId() throws MojoExecutionException {
+    private void getAppId(Set<String> recorded) throws MojoExecutionException {
 
         if (appIds == null) {
-            appIds = new HashSet<>();
+            appIds = new LinkedHashSet<>();
+        }
+
+        if (appIds.isEmpty()) {
+            appIds.addAll(recorded);
+        }
+
+        if (!appIds.isEmpty()) {
+            return;
         }
 
         Path vertxPidFile = Paths.get(workDirectory.toString(), VERTX_PID_FILE);
@@ -0,0 +1,88 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import io.fabric8.vertx.maven.plugin.functions.ResourceTransformer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Appends the content of a resource found in several jars, in the order of the jars. It is typically used for
+ * properties files, where the last value of a key wins, or for configuration files such as reference.conf
+ */
+public class AppendingResourceTransformer implements ResourceTransformer {
+
+    private String resource;
+
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+    private boolean found;
+
+    /**
+     * the last byte of the content, -1 while it is empty, so that the content is not copied to find it
+     */
+    private int lastByte = -1;
+
+    public AppendingResourceTransformer() {
+    }
+
+    public AppendingResourceTransformer(String resource) {
+        this.resource = resource;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public void setResource(String resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public boolean canTransform(String name) {
+        return name.equals(resource);
+    }
+
+    @Override
+    public void transform(String name, InputStream in) throws IOException {
+        byte[] bytes = FileUtils.readBytes(in);
+        // keep the last line of the previous jar and the first line of this one apart
+        if (lastByte != -1 && lastByte != '\n') {
+            content.write('\n');
+            lastByte = '\n';
+        }
+        content.write(bytes);
+        if (bytes.length > 0) {
+            lastByte = bytes[bytes.length - 1] & 0xFF;
+        }
+        found = true;
+    }
+
+    @Override
+    public Map<String, byte[]> getTransformedResources() {
+        return found ? Collections.singletonMap(resource, content.toByteArray()) : Collections.emptyMap();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + resource + "]";
+    }
+}
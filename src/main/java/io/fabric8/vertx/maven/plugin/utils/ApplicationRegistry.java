@@ -0,0 +1,216 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * The state file recording every application started in background by the start goal, so that the stop goal stops
+ * them all. Each application is recorded with its group, the process id and start time of its JVM when it was found,
+ * or the state file of the daemon it runs on. The start time tells the JVM from an unrelated process that got the same
+ * id once the application is gone.
+ * <p>
+ * The file is only updated under a file lock, by the mojos of parallel builds as well as by several Maven JVMs
+ */
+public class ApplicationRegistry {
+
+    private static final Object LOCK = new Object();
+
+    private final File file;
+
+    public ApplicationRegistry(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Records an application, replacing the application of the same id
+     *
+     * @param application - the started application
+     * @throws IOException - any error while updating the file
+     */
+    public void add(Entry application) throws IOException {
+        update(applications -> {
+            applications.removeIf(recorded -> recorded.getId().equals(application.getId()));
+            applications.add(application);
+        });
+    }
+
+    /**
+     * @param id - the id of the stopped application
+     * @throws IOException - any error while updating the file
+     */
+    public void remove(String id) throws IOException {
+        update(applications -> applications.removeIf(recorded -> recorded.getId().equals(id)));
+    }
+
+    /**
+     * @return the recorded applications, in the order they were started
+     * @throws IOException - any error while reading the file
+     */
+    public List<Entry> list() throws IOException {
+        List<Entry> applications = new ArrayList<>();
+        update(applications::addAll);
+        return applications;
+    }
+
+    /**
+     * @param id - the application id
+     * @return the recorded application of the id
+     * @throws IOException - any error while reading the file
+     */
+    public Optional<Entry> get(String id) throws IOException {
+        return list().stream().filter(application -> application.getId().equals(id)).findFirst();
+    }
+
+    private void update(Consumer<List<Entry>> change) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        synchronized (LOCK) {
+            try (FileChannel channel = FileChannel.open(target.resolveSibling(file.getName() + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                List<Entry> applications = read();
+                String before = encode(applications);
+                change.accept(applications);
+                String after = encode(applications);
+                if (after.equals(before)) {
+                    return;
+                }
+                if (applications.isEmpty()) {
+                    Files.deleteIfExists(target);
+                    return;
+                }
+                Path temp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+                try {
+                    Files.write(temp, after.getBytes(StandardCharsets.UTF_8));
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+    }
+
+    private List<Entry> read() throws IOException {
+        List<Entry> applications = new ArrayList<>();
+        if (file.isFile()) {
+            JsonArray recorded;
+            try {
+                recorded = new JsonObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+                        .getJsonArray("applications", new JsonArray());
+            } catch (RuntimeException e) {
+                throw new IOException("Unable to read " + file, e);
+            }
+            for (int i = 0; i < recorded.size(); i++) {
+                JsonObject application = recorded.getJsonObject(i);
+                applications.add(new Entry(application.getString("id"),
+                        application.getInteger("group", 0),
+                        application.getLong("pid"),
+                        application.getLong("processStart"),
+                        application.getString("daemon"),
+                        application.getLong("started", 0L)));
+            }
+        }
+        return applications;
+    }
+
+    private static String encode(List<Entry> applications) {
+        JsonArray recorded = new JsonArray();
+        applications.forEach(application -> recorded.add(new JsonObject()
+                .put("id", application.getId())
+                .put("group", application.getGroup())
+                .put("pid", application.getPid())
+                .put("processStart", application.getProcessStart())
+                .put("daemon", application.getDaemon())
+                .put("started", application.getStarted())));
+        return new JsonObject().put("applications", recorded).encodePrettily();
+    }
+
+    /**
+     * An application started in background
+     */
+    public static final class Entry {
+
+        private final String id;
+
+        private final int group;
+
+        private final Long pid;
+
+        private final Long processStart;
+
+        private final String daemon;
+
+        private final long started;
+
+        /**
+         * @param id           - the application id
+         * @param group        - the start group of the application, the groups are stopped in reverse order
+         * @param pid          - the process id of the application JVM, null if unknown
+         * @param processStart - when the application JVM started in milliseconds since the epoch, null if unknown
+         * @param daemon       - the state file of the daemon running the application, null if it has its own JVM
+         * @param started      - when the application was started
+         */
+        public Entry(String id, int group, Long pid, Long processStart, String daemon, long started) {
+            this.id = id;
+            this.group = group;
+            this.pid = pid;
+            this.processStart = processStart;
+            this.daemon = daemon;
+            this.started = started;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getGroup() {
+            return group;
+        }
+
+        public Long getPid() {
+            return pid;
+        }
+
+        public Long getProcessStart() {
+            return processStart;
+        }
+
+        public String getDaemon() {
+            return daemon;
+        }
+
+        public long getStarted() {
+            return started;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The AppCDS archive of a fat jar: the classes loaded by a training run of the jar are dumped at exit in to a dynamic
+ * archive, which the later starts of the jar map instead of loading and verifying the classes again.
+ * <p>
+ * The archive is only valid for the jar and the JVM it was dumped from, a stamp file written next to the archive
+ * holds the SHA-256 hash of the jar and the JVM version. Dynamic archives need Java 13 or later
+ */
+public class CdsArchive {
+
+    private static final String ARCHIVE_EXTENSION = ".jsa";
+
+    private static final String STAMP_EXTENSION = ".sha256";
+
+    private static final long EXIT_TIMEOUT = 60;
+
+    private final File jar;
+
+    private final File archive;
+
+    private final File stamp;
+
+    private Log logger = new SystemStreamLog();
+
+    /**
+     * @param jar       - the fat jar
+     * @param directory - the directory of the archive, e.g. target
+     */
+    public CdsArchive(File jar, File directory) {
+        this.jar = jar;
+        String name = jar.getName().endsWith(".jar")
+                ? jar.getName().substring(0, jar.getName().length() - 4) : jar.getName();
+        this.archive = new File(directory, name + ARCHIVE_EXTENSION);
+        this.stamp = new File(directory, name + ARCHIVE_EXTENSION + STAMP_EXTENSION);
+    }
+
+    public CdsArchive withLog(Log logger) {
+        this.logger = logger;
+        return this;
+    }
+
+    /**
+     * @return true if the forked JVM can dump a dynamic archive, i.e. it is Java 13 or later
+     */
+    public static boolean isSupported() {
+        String version = System.getProperty("java.specification.version", "1.8");
+        try {
+            return !version.startsWith("1.") && Integer.parseInt(version) >= 13;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public File getArchive() {
+        return archive;
+    }
+
+    /**
+     * @return true if the archive exists and was dumped from the current jar by the current JVM
+     * @throws IOException - any error while hashing the jar
+     */
+    public boolean isValid() throws IOException {
+        if (!archive.isFile() || !stamp.isFile()) {
+            return false;
+        }
+        return new String(Files.readAllBytes(stamp.toPath()), StandardCharsets.UTF_8).equals(stamp());
+    }
+
+    /**
+     * @return the JVM option dumping the archive when the JVM exits
+     */
+    public String getTrainingOption() {
+        return "-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath();
+    }
+
+    /**
+     * @return the JVM option using the archive
+     */
+    public String getSharedArchiveOption() {
+        return "-XX:SharedArchiveFile=" + archive.getAbsolutePath();
+    }
+
+    /**
+     * Runs the jar to dump its archive, the jar runs until it exits or for the training time, it is then stopped
+     * gracefully so that the JVM dumps the loaded classes. The arguments of the executor must run the jar with the
+     * {@link #getTrainingOption()} JVM option
+     *
+     * @param executor     - the executor running the jar, it must not wait for the process
+     * @param trainingTime - how long the jar runs at most, in seconds
+     * @throws Exception - any error while running the jar, or no archive was dumped
+     */
+    public void train(JavaProcessExecutor executor, long trainingTime) throws Exception {
+        Files.deleteIfExists(stamp.toPath());
+        Files.deleteIfExists(archive.toPath());
+        Files.createDirectories(archive.getAbsoluteFile().getParentFile().toPath());
+
+        logger.info("Running " + jar.getName() + " for at most " + trainingTime + " s to dump its class data "
+                + "sharing archive");
+        long start = System.currentTimeMillis();
+        Optional<Process> started = executor.withWaitFor(false).execute();
+        if (!started.isPresent()) {
+            throw new IOException("Unable to run " + jar);
+        }
+        Process process = started.get();
+        if (!process.waitFor(trainingTime, TimeUnit.SECONDS)) {
+            // the archive is dumped by the shutdown of the JVM, which a kill would skip
+            process.destroy();
+        }
+        if (!process.waitFor(EXIT_TIMEOUT, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IOException("The training run of " + jar + " did not exit");
+        }
+        if (!archive.isFile()) {
+            throw new IOException("The training run of " + jar + " did not dump " + archive);
+        }
+
+        File temp = File.createTempFile(stamp.getName(), ".tmp", stamp.getAbsoluteFile().getParentFile());
+        try {
+            Files.write(temp.toPath(), stamp().getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp.toPath(), stamp.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), stamp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            temp.delete();
+        }
+        logger.info("Dumped " + archive + " (" + archive.length() / 1024 + " KB) in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private String stamp() throws IOException {
+        return "sha256=" + FileUtils.sha256(jar) + "\njava.vm.version=" + System.getProperty("java.vm.version")
+                + "\n";
+    }
+}
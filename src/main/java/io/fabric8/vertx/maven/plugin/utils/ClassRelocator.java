@@ -0,0 +1,288 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import io.fabric8.vertx.maven.plugin.model.Relocator;
+import org.codehaus.plexus.util.SelectorUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Moves the classes of the {@link Relocator} patterns to their shaded packages, e.g. io.netty to shaded.io.netty.
+ * The class files are rewritten with ASM so that every reference to a moved class, including the string constants
+ * naming it, points to the shaded class; the META-INF/services files are renamed and rewritten the same way. The
+ * classes of a multi-release jar, under META-INF/versions/N/, are relocated within their version directory.
+ * <p>
+ * This class is immutable and can be used by several threads at the same time
+ */
+public class ClassRelocator {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+    private final List<Relocation> relocations;
+
+    private final Remapper remapper = new RelocatingRemapper();
+
+    /**
+     * @param relocators - the {@link Relocator}s, the ones without a pattern only configure the service relocation
+     *                   and are ignored
+     * @throws IllegalArgumentException - if a relocator has a pattern but no shaded pattern
+     */
+    public ClassRelocator(List<Relocator> relocators) {
+        List<Relocation> list = new ArrayList<>();
+        if (relocators != null) {
+            for (Relocator relocator : relocators) {
+                if (relocator.getPattern() == null || relocator.getPattern().trim().isEmpty()) {
+                    continue;
+                }
+                if (relocator.getShadedPattern() == null || relocator.getShadedPattern().trim().isEmpty()) {
+                    throw new IllegalArgumentException("No shadedPattern for the relocation of "
+                            + relocator.getPattern());
+                }
+                list.add(new Relocation(relocator));
+            }
+        }
+        this.relocations = Collections.unmodifiableList(list);
+    }
+
+    public boolean isEmpty() {
+        return relocations.isEmpty();
+    }
+
+    /**
+     * @param name - a jar entry name, e.g. io/netty/buffer/ByteBuf.class
+     * @return the name of the entry in the fat jar, e.g. shaded/io/netty/buffer/ByteBuf.class, the version
+     * directory of a multi-release entry is kept, e.g. META-INF/versions/9/shaded/io/netty/buffer/ByteBuf.class
+     */
+    public String relocatePath(String name) {
+        int version = versionPrefixLength(name);
+        return version > 0 ? name.substring(0, version) + relocateInternalPath(name.substring(version))
+                : relocateInternalPath(name);
+    }
+
+    /**
+     * @return the length of the META-INF/versions/N/ prefix of the entry name, 0 when it has none
+     */
+    private static int versionPrefixLength(String name) {
+        if (!name.startsWith(VERSIONS_PREFIX)) {
+            return 0;
+        }
+        int end = VERSIONS_PREFIX.length();
+        while (end < name.length() && Character.isDigit(name.charAt(end))) {
+            end++;
+        }
+        return end > VERSIONS_PREFIX.length() && end < name.length() && name.charAt(end) == '/' ? end + 1 : 0;
+    }
+
+    private String relocateInternalPath(String name) {
+        String path = name.endsWith(CLASS_SUFFIX) ? name.substring(0, name.length() - CLASS_SUFFIX.length()) : name;
+        for (Relocation relocation : relocations) {
+            if (relocation.matchesPath(path)) {
+                return relocation.shadedPath + name.substring(relocation.path.length());
+            }
+        }
+        return name;
+    }
+
+    /**
+     * @param className - a class name, e.g. io.netty.buffer.ByteBuf
+     * @return the relocated class name, e.g. shaded.io.netty.buffer.ByteBuf
+     */
+    public String relocateClassName(String className) {
+        for (Relocation relocation : relocations) {
+            if (relocation.matchesClassName(className)) {
+                return relocation.shadedPattern + className.substring(relocation.pattern.length());
+            }
+        }
+        return className;
+    }
+
+    /**
+     * @param name - a jar entry name
+     * @return true if the content of the entry may reference a relocated class
+     */
+    public boolean mayRewrite(String name) {
+        return !isEmpty() && (name.endsWith(CLASS_SUFFIX) || isServiceFile(name));
+    }
+
+    /**
+     * Rewrites the references to the relocated classes found in a class file or a service file
+     *
+     * @param name    - the entry name, before relocation
+     * @param content - the entry content
+     * @return the rewritten content, the same array when nothing references a relocated class
+     */
+    public byte[] rewrite(String name, byte[] content) {
+        if (!mayRewrite(name) || !references(content)) {
+            return content;
+        }
+        if (name.endsWith(CLASS_SUFFIX)) {
+            ClassReader reader = new ClassReader(content);
+            ClassWriter writer = new ClassWriter(0);
+            reader.accept(new ClassRemapper(writer, remapper), 0);
+            return writer.toByteArray();
+        }
+        return rewriteServiceFile(content);
+    }
+
+    /**
+     * @param name - a jar entry name
+     * @return the entry name in the fat jar, service files are renamed after the relocated service interface
+     */
+    public String relocateEntryName(String name) {
+        if (isServiceFile(name)) {
+            return JarIndex.SERVICES_PREFIX + relocateClassName(name.substring(JarIndex.SERVICES_PREFIX.length()));
+        }
+        return relocatePath(name);
+    }
+
+    private byte[] rewriteServiceFile(byte[] content) {
+        StringBuilder rewritten = new StringBuilder(content.length + 64);
+        for (String line : new String(content, StandardCharsets.UTF_8).split("(?<=\n)")) {
+            int comment = line.indexOf('#');
+            String className = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (className.isEmpty()) {
+                rewritten.append(line);
+            } else {
+                int start = line.indexOf(className);
+                rewritten.append(line, 0, start)
+                        .append(relocateClassName(className))
+                        .append(line.substring(start + className.length()));
+            }
+        }
+        return rewritten.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean isServiceFile(String name) {
+        return name.startsWith(JarIndex.SERVICES_PREFIX) && name.length() > JarIndex.SERVICES_PREFIX.length()
+                && name.indexOf('/', JarIndex.SERVICES_PREFIX.length()) < 0;
+    }
+
+    /**
+     * A quick check on the raw bytes, the class names of the constant pool are stored as is, so a class file not
+     * containing any of the patterns does not need to be parsed
+     */
+    private boolean references(byte[] content) {
+        for (Relocation relocation : relocations) {
+            if (indexOf(content, relocation.pathBytes) >= 0 || indexOf(content, relocation.patternBytes) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(byte[] content, byte[] marker) {
+        int last = content.length - marker.length;
+        outer:
+        for (int i = 0; i <= last; i++) {
+            for (int j = 0; j < marker.length; j++) {
+                if (content[i + j] != marker[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return relocations.toString();
+    }
+
+    private final class RelocatingRemapper extends Remapper {
+
+        @Override
+        public String map(String internalName) {
+            return relocateInternalPath(internalName);
+        }
+
+        @Override
+        public Object mapValue(Object value) {
+            if (value instanceof String) {
+                String string = (String) value;
+                String relocated = relocateClassName(string);
+                return relocated.equals(string) ? relocateInternalPath(string) : relocated;
+            }
+            return super.mapValue(value);
+        }
+    }
+
+    /**
+     * A single relocation, the patterns are kept with a trailing separator so that io.netty does not match
+     * io.nettyx
+     */
+    private static final class Relocation {
+        final String pattern;
+        final String shadedPattern;
+        final String path;
+        final String shadedPath;
+        final List<String> excludes = new ArrayList<>();
+        final byte[] pathBytes;
+        final byte[] patternBytes;
+
+        Relocation(Relocator relocator) {
+            String trimmedPattern = trimSeparator(relocator.getPattern().trim().replace('/', '.'));
+            String trimmedShaded = trimSeparator(relocator.getShadedPattern().trim().replace('/', '.'));
+            this.pattern = trimmedPattern + '.';
+            this.shadedPattern = trimmedShaded + '.';
+            this.path = pattern.replace('.', '/');
+            this.shadedPath = shadedPattern.replace('.', '/');
+            if (relocator.getExcludes() != null) {
+                for (String exclude : relocator.getExcludes()) {
+                    excludes.add(exclude.trim().replace('.', '/'));
+                }
+            }
+            this.pathBytes = path.getBytes(StandardCharsets.UTF_8);
+            this.patternBytes = pattern.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static String trimSeparator(String value) {
+            return value.endsWith(".") ? value.substring(0, value.length() - 1) : value;
+        }
+
+        boolean matchesPath(String name) {
+            if (!name.startsWith(path)) {
+                return false;
+            }
+            for (String exclude : excludes) {
+                if (SelectorUtils.matchPath(exclude, name, "/", true)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean matchesClassName(String className) {
+            return className.startsWith(pattern) && matchesPath(className.replace('.', '/'));
+        }
+
+        @Override
+        public String toString() {
+            return pattern + " -> " + shadedPattern + (excludes.isEmpty() ? "" : " excluding " + excludes);
+        }
+    }
+}
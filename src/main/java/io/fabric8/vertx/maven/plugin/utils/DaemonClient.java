@@ -0,0 +1,139 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * Sends the requests of the plugin to a {@link VertxDaemon}, the daemon is found from the port and the token it
+ * writes in to its state file
+ */
+public class DaemonClient {
+
+    private static final int CONNECT_TIMEOUT = 1000;
+
+    private final File stateFile;
+
+    private int readTimeout = 60000;
+
+    public DaemonClient(File stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * @param readTimeout - how long to wait for the response of the daemon in milliseconds, deploying a verticle can
+     *                    take a while
+     * @return this client
+     */
+    public DaemonClient withReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    public File getStateFile() {
+        return stateFile;
+    }
+
+    /**
+     * @return true if the state file exists and the daemon answers to a ping
+     */
+    public boolean isAlive() {
+        if (!stateFile.isFile()) {
+            return false;
+        }
+        try {
+            send("ping");
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the process id of the daemon, as written in its state file
+     * @throws IOException - the state file can not be read
+     */
+    public String getPid() throws IOException {
+        return state().getProperty(VertxDaemon.PID);
+    }
+
+    /**
+     * Sends a request to the daemon
+     *
+     * @param command - the command and its arguments, none of them may contain a tab or a line break
+     * @return the fields of the response after the ok status
+     * @throws IOException - the daemon can not be reached or the request failed
+     */
+    public String send(String... command) throws IOException {
+        Properties state = state();
+        String port = state.getProperty(VertxDaemon.PORT);
+        String token = state.getProperty(VertxDaemon.TOKEN);
+        if (port == null || token == null) {
+            throw new IOException("Invalid daemon state file " + stateFile);
+        }
+        StringBuilder request = new StringBuilder(token);
+        for (String argument : command) {
+            if (argument.indexOf('\t') >= 0 || argument.indexOf('\n') >= 0 || argument.indexOf('\r') >= 0) {
+                throw new IllegalArgumentException("Invalid daemon request argument: " + argument);
+            }
+            request.append(VertxDaemon.SEPARATOR).append(argument);
+        }
+        request.append('\n');
+
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port)),
+                    CONNECT_TIMEOUT);
+            socket.setSoTimeout(readTimeout);
+            OutputStream out = socket.getOutputStream();
+            out.write(request.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            String response = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8)).readLine();
+            if (response == null) {
+                throw new IOException("The daemon closed the connection");
+            }
+            int separator = response.indexOf(VertxDaemon.SEPARATOR);
+            String status = separator < 0 ? response : response.substring(0, separator);
+            String value = separator < 0 ? "" : response.substring(separator + 1);
+            if (!VertxDaemon.OK.equals(status)) {
+                throw new IOException("The daemon request " + command[0] + " failed: " + value);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid daemon port " + port, e);
+        }
+    }
+
+    private Properties state() throws IOException {
+        Properties state = new Properties();
+        try (InputStream in = Files.newInputStream(stateFile.toPath())) {
+            state.load(in);
+        }
+        return state;
+    }
+}
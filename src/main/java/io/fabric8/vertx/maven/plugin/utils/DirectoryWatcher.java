@@ -0,0 +1,249 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import org.apache.commons.io.monitor.FileAlterationListener;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Watches directory trees with a {@link WatchService}, so the changes are notified by the file system instead of
+ * scanning the trees periodically. Every directory of the trees is registered, including the directories created
+ * later on. The files are reported to a {@link FileAlterationListener} like the commons-io monitor does.
+ * <p>
+ * The last modification time of every file is kept, so that when the file system drops events (an overflow) the
+ * trees are scanned once and the differences are reported
+ */
+public class DirectoryWatcher implements Runnable, Closeable {
+
+    private final Set<Path> roots;
+
+    private final FileAlterationListener listener;
+
+    private final Log logger;
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+
+    /**
+     * the registered directories, the values of {@link #keys}
+     */
+    private final Set<Path> directories = new HashSet<>();
+
+    private final Map<Path, Long> files = new TreeMap<>();
+
+    /**
+     * @param roots    - the directory trees to watch
+     * @param listener - the listener of the file changes, called from the thread running this watcher
+     * @param logger   - the logger
+     * @throws IOException - any error while registering the directories
+     */
+    public DirectoryWatcher(Set<Path> roots, FileAlterationListener listener, Log logger) throws IOException {
+        this.roots = roots;
+        this.listener = listener;
+        this.logger = logger;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        for (Path root : roots) {
+            logger.info("Observing path:" + root.toString());
+            register(root, false);
+        }
+    }
+
+    /**
+     * @return true if the file system notifies the changes natively, false when the JDK falls back to a watch service
+     * polling the directories, e.g. on macOS, which is slower than scanning them with a short period
+     */
+    public static boolean isNative() {
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            return !service.getClass().getName().endsWith("PollingWatchService");
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Waits for the changes until this watcher is closed
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = keys.get(key);
+                boolean overflow = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                        overflow = true;
+                    } else {
+                        onEvent(event.kind(), directory.resolve((Path) event.context()));
+                    }
+                }
+                if (!key.reset() && directory != null) {
+                    keys.remove(key);
+                    directories.remove(directory);
+                }
+                if (overflow) {
+                    logger.debug("Some file system events were lost, scanning the watched directories");
+                    rescan();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void onEvent(WatchEvent.Kind<?> kind, Path path) {
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            if (files.remove(path) != null) {
+                listener.onFileDelete(path.toFile());
+            } else {
+                // a directory, the files it contained are reported as deleted
+                List<Path> deleted = files.keySet().stream()
+                        .filter(file -> file.startsWith(path))
+                        .collect(Collectors.toList());
+                deleted.forEach(file -> {
+                    files.remove(file);
+                    listener.onFileDelete(file.toFile());
+                });
+                keys.values().removeIf(directory -> directory.startsWith(path));
+                directories.removeIf(directory -> directory.startsWith(path));
+                listener.onDirectoryDelete(path.toFile());
+            }
+        } else if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                listener.onDirectoryCreate(path.toFile());
+                try {
+                    // the files created before the directory was registered are reported as created
+                    register(path, true);
+                } catch (IOException e) {
+                    logger.error("Unable to watch the directory " + path, e);
+                }
+            }
+        } else if (Files.exists(path)) {
+            Long previous = files.put(path, path.toFile().lastModified());
+            if (previous == null) {
+                listener.onFileCreate(path.toFile());
+            } else {
+                listener.onFileChange(path.toFile());
+            }
+        }
+    }
+
+    /**
+     * Registers the directory and its sub directories
+     *
+     * @param notify - whether the files found are reported as created
+     */
+    private void register(Path start, boolean notify) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!directories.contains(dir)) {
+                    keys.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), dir);
+                    directories.add(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (files.put(file, attrs.lastModifiedTime().toMillis()) == null && notify) {
+                    listener.onFileCreate(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // deleted while walking
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Scans the watched trees, registers the new directories and reports the files that changed since the last
+     * known state
+     */
+    private void rescan() {
+        Map<Path, Long> previous = new HashMap<>(files);
+        files.clear();
+        for (Iterator<Map.Entry<WatchKey, Path>> it = keys.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<WatchKey, Path> entry = it.next();
+            if (!entry.getKey().isValid()) {
+                it.remove();
+                directories.remove(entry.getValue());
+            }
+        }
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                try {
+                    register(root, false);
+                } catch (IOException e) {
+                    logger.error("Unable to scan the directory " + root, e);
+                }
+            }
+        }
+        files.forEach((file, lastModified) -> {
+            Long known = previous.remove(file);
+            if (known == null) {
+                listener.onFileCreate(file.toFile());
+            } else if (!known.equals(lastModified)) {
+                listener.onFileChange(file.toFile());
+            }
+        });
+        previous.keySet().forEach(file -> listener.onFileDelete(file.toFile()));
+    }
+
+    /**
+     * @return the files currently known in the watched trees
+     */
+    Set<Path> getFiles() {
+        return files.keySet();
+    }
+}
@@ -0,0 +1,939 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import io.fabric8.vertx.maven.plugin.functions.ResourceTransformer;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+/**
+ * This utility builds the vert.x fat jar by streaming the entries of the source jars straight in to the target jar.
+ * Only the index of entry names is held in memory, the entry contents are never buffered.
+ * <p>
+ * The sources are processed in the order they are added, when the same entry exists in more than one source the
+ * last source wins, the generated entries e.g. MANIFEST.MF always win over the source entries.
+ * <p>
+ * When raw copy is enabled, which is the default, the compressed data of the source entries is copied as is, only
+ * the generated entries are compressed.
+ * <p>
+ * The {@link ResourceTransformer}s merge the resources found in several sources, e.g. the META-INF/services files
+ * when the services are combined. The entries they accept are handed to them while the fat jar is written and the
+ * merged resources are written at the end of the fat jar.
+ * <p>
+ * The {@link ClassRelocator} moves the classes of the relocated packages and rewrites the references to them, the
+ * class files are rewritten by the same threads that compress the entries.
+ * <p>
+ * When minimizing, the classes that cannot be reached from the Main-Class, the Main-Verticle, the service providers
+ * and the project classes are left out of the fat jar
+ */
+public class FatJarBuilder {
+
+    /**
+     * The fixed modification time (1980-01-01 00:00 in MS-DOS format) used for the generated entries, so that
+     * the fat jar is reproducible
+     */
+    static final int GENERATED_ENTRY_DOS_TIME = 0x00210000;
+
+    private final List<File> sources = new ArrayList<>();
+
+    private final Map<String, byte[]> generatedEntries = new LinkedHashMap<>();
+
+    private boolean rawCopy = true;
+
+    private int threads = 1;
+
+    private File stateFile;
+
+    private JarIndexCache indexCache;
+
+    private boolean combineServices;
+
+    private final List<ResourceTransformer> transformers = new ArrayList<>();
+
+    private List<ResourceTransformer> activeTransformers = Collections.emptyList();
+
+    private ClassRelocator relocator;
+
+    private boolean minimize;
+
+    private List<String> minimizeIncludes = Collections.emptyList();
+
+    private File minimizeReport;
+
+    private Log log = new SystemStreamLog();
+
+    public FatJarBuilder withLog(Log log) {
+        this.log = log;
+        return this;
+    }
+
+    /**
+     * @param rawCopy - whether the compressed data of the source entries will be copied as is, if false every
+     *                entry will be inflated and compressed again
+     * @return this builder
+     */
+    public FatJarBuilder rawCopy(boolean rawCopy) {
+        this.rawCopy = rawCopy;
+        return this;
+    }
+
+    /**
+     * @param threads - the number of threads used to index the sources and compress the entries, the entries are
+     *                always written in the same order so the fat jar does not depend on the number of threads
+     * @return this builder
+     */
+    public FatJarBuilder threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Enables the incremental rebuild of the fat jar, the state of each build is saved in the given file and used
+     * by the next build. The first source is expected to be the project artifact, when it is the only source that
+     * changed the entries of the other sources are copied from the previous fat jar
+     *
+     * @param stateFile - the {@link File} where the state of the build is saved, null to disable
+     * @return this builder
+     */
+    public FatJarBuilder incremental(File stateFile) {
+        this.stateFile = stateFile;
+        return this;
+    }
+
+    /**
+     * @param indexCache - the {@link JarIndexCache} used to index the dependencies, i.e. every source but the first
+     *                   one, null to always read the dependencies
+     * @return this builder
+     */
+    public FatJarBuilder indexCache(JarIndexCache indexCache) {
+        this.indexCache = indexCache;
+        return this;
+    }
+
+    /**
+     * @param combineServices - whether the META-INF/services files of all the sources are merged in to a single
+     *                        file per service instead of keeping the one of the last source
+     * @return this builder
+     */
+    public FatJarBuilder combineServices(boolean combineServices) {
+        this.combineServices = combineServices;
+        return this;
+    }
+
+    /**
+     * Adds a transformer merging the resources found in several sources, the transformers are asked in the order
+     * they are added and the first one accepting an entry gets it
+     *
+     * @param transformer - the {@link ResourceTransformer}
+     * @return this builder
+     */
+    public FatJarBuilder addTransformer(ResourceTransformer transformer) {
+        transformers.add(transformer);
+        return this;
+    }
+
+    /**
+     * @param relocator - the {@link ClassRelocator} moving the classes of the relocated packages, null or empty to
+     *                  keep every class where it is
+     * @return this builder
+     */
+    public FatJarBuilder relocator(ClassRelocator relocator) {
+        this.relocator = relocator != null && !relocator.isEmpty() ? relocator : null;
+        return this;
+    }
+
+    /**
+     * Leaves the classes that are not reachable from the roots of the application out of the fat jar. The roots are
+     * the Main-Class and Main-Verticle of the manifest, the services and service providers declared in
+     * META-INF/services, the classes of the project artifact and the classes matching one of the includes. The fat
+     * jar is always fully built when minimizing
+     *
+     * @param includes - the patterns of the classes always kept, e.g. io.netty.**, null to only keep the reachable
+     *                 classes
+     * @param report   - the {@link File} where the kept classes and the reason they are kept are written, null to
+     *                 not write any report
+     * @return this builder
+     */
+    public FatJarBuilder minimize(List<String> includes, File report) {
+        this.minimize = true;
+        this.minimizeIncludes = includes != null ? includes : Collections.emptyList();
+        this.minimizeReport = report;
+        return this;
+    }
+
+    /**
+     * Adds the jar whose entries will be copied in to the fat jar, adding the same jar twice has no effect
+     *
+     * @param source - the source jar {@link File}
+     * @return this builder
+     */
+    public FatJarBuilder addSource(File source) {
+        if (!sources.contains(source)) {
+            sources.add(source);
+        }
+        return this;
+    }
+
+    /**
+     * Adds an entry whose content is generated by the plugin e.g. META-INF/MANIFEST.MF
+     *
+     * @param name    - the entry name
+     * @param content - the content of the entry
+     * @return this builder
+     */
+    public FatJarBuilder addGeneratedEntry(String name, byte[] content) {
+        generatedEntries.put(name, content);
+        return this;
+    }
+
+    /**
+     * Builds the fat jar
+     *
+     * @param target - the fat jar {@link File} to be written
+     * @return the fat jar {@link File}
+     * @throws IOException - any error that might occur while reading the sources or writing the fat jar
+     */
+    public File build(File target) throws IOException {
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+
+        activeTransformers = new ArrayList<>(transformers);
+        if (combineServices) {
+            activeTransformers.add(new ServicesResourceTransformer());
+        }
+
+        // the kept classes depend on every source, so a minimized fat jar cannot be rebuilt incrementally
+        boolean incremental = stateFile != null && !minimize;
+
+        try {
+            FatJarState previous = incremental ? previousState(target) : null;
+
+            List<FatJarState.SourceHash> hashes = incremental ? hashSources(previous, pool) : null;
+
+            if (previous != null && rebuildIncrementally(target, previous, hashes, pool)) {
+                return target;
+            }
+
+            List<JarIndex> indexes = readIndexes(sources, pool);
+
+            Plan plan = plan(indexes, Collections.emptySet());
+
+            if (log.isDebugEnabled()) {
+                log.debug("Planned " + plan.entries.size() + " entries from " + sources.size() + " jars using "
+                        + Math.max(threads, 1) + " thread(s)");
+            }
+
+            FileChannel[] channels = new FileChannel[sources.size()];
+            long[] dependencySection;
+            try {
+                for (int i = 0; i < channels.length; i++) {
+                    channels[i] = FileChannel.open(sources.get(i).toPath(), StandardOpenOption.READ);
+                }
+                if (minimize) {
+                    minimize(plan, indexes, channels, pool);
+                }
+                try (JarWriter writer = new JarWriter(target)) {
+                    dependencySection = write(writer, plan, channels, pool);
+                    writeTransformedResources(writer);
+                }
+            } finally {
+                close(channels);
+            }
+
+            if (incremental) {
+                saveState(target, hashes, dependencySection, plan.headDirectories, plan.dependencyWinners);
+            }
+
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+
+        return target;
+    }
+
+    /**
+     * Rebuilds the fat jar from the previous one when only the project artifact, i.e. the first source, changed.
+     * The generated entries and the project entries are written again and the dependency section of the previous
+     * fat jar is copied as is. The result is the same as a full build
+     *
+     * @return true if the fat jar was rebuilt incrementally, false if a full build is needed
+     */
+    private boolean rebuildIncrementally(File target, FatJarState previous, List<FatJarState.SourceHash> hashes,
+                                         ForkJoinPool pool) throws IOException {
+
+        List<FatJarState.SourceHash> previousHashes = previous.getSources();
+
+        if (!previous.getConfiguration().equals(configurationHash()) || previousHashes.size() != hashes.size()) {
+            return false;
+        }
+        for (int i = 1; i < hashes.size(); i++) {
+            if (!hashes.get(i).sameContent(previousHashes.get(i))) {
+                return false;
+            }
+        }
+
+        if (hashes.get(0).sameContent(previousHashes.get(0))) {
+            log.info("Fat jar is up to date: " + target);
+            saveState(target, hashes, new long[]{previous.getDependencyStart(), previous.getDependencyEnd()},
+                    previous.getHeadDirectories(), previous.getDependencyWinners());
+            return true;
+        }
+
+        // an entry copied as is in the dependency section cannot be merged by a transformer
+        for (String name : previous.getDependencyWinners()) {
+            if (transformer(name) != null) {
+                return false;
+            }
+        }
+
+        JarIndex primary = JarIndex.read(sources.get(0));
+        Plan head = plan(Collections.singletonList(primary), previous.getDependencyWinners());
+        List<JarIndex> dependencies = activeTransformers.isEmpty() ? Collections.emptyList()
+                : readIndexes(sources.subList(1, sources.size()), pool);
+
+        // the dependency section only holds the directories that are not written before it, so it can only be
+        // reused when the project artifact did not add or remove any of those
+        Set<String> changedDirectories = new HashSet<>(head.headDirectories);
+        changedDirectories.addAll(previous.getHeadDirectories());
+        Set<String> unchangedDirectories = new HashSet<>(head.headDirectories);
+        unchangedDirectories.retainAll(previous.getHeadDirectories());
+        changedDirectories.removeAll(unchangedDirectories);
+        if (!changedDirectories.isEmpty()) {
+            Set<String> dependencyDirectories = directoriesOf(previous.getDependencyWinners());
+            for (String directory : changedDirectories) {
+                if (dependencyDirectories.contains(directory)) {
+                    return false;
+                }
+            }
+        }
+
+        long start = previous.getDependencyStart();
+        long end = previous.getDependencyEnd();
+        List<JarIndex.Entry> dependencyEntries = new ArrayList<>();
+        for (JarIndex.Entry entry : JarIndex.read(target).getEntries()) {
+            if (entry.getLocalHeaderOffset() >= start && entry.getLocalHeaderOffset() < end) {
+                dependencyEntries.add(entry);
+            }
+        }
+
+        File rebuilt = new File(target.getPath() + ".tmp");
+        long[] dependencySection = new long[2];
+        FileChannel[] channels = new FileChannel[1 + dependencies.size()];
+        try {
+            for (int i = 0; i < channels.length; i++) {
+                channels[i] = FileChannel.open(sources.get(i).toPath(), StandardOpenOption.READ);
+            }
+            try (JarWriter writer = new JarWriter(rebuilt);
+                 FileChannel previousJar = FileChannel.open(target.toPath(), StandardOpenOption.READ)) {
+                write(writer, head, channels, pool);
+                dependencySection[0] = writer.position();
+                writer.copyRange(previousJar, start, end, dependencyEntries);
+                dependencySection[1] = writer.position();
+                // the transformers see the dependency entries in the same order as in a full build
+                for (int i = 0; i < dependencies.size(); i++) {
+                    for (JarIndex.Entry entry : dependencies.get(i).getEntries()) {
+                        String name = outputName(entry);
+                        if (!entry.isDirectory() && !generatedEntries.containsKey(name)) {
+                            transform(name, entry, channels[i + 1]);
+                        }
+                    }
+                }
+                writeTransformedResources(writer);
+            }
+        } finally {
+            close(channels);
+        }
+        Files.move(rebuilt.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        log.info("Fat jar rebuilt incrementally, reused " + dependencyEntries.size() + " dependency entries");
+
+        saveState(target, hashes, dependencySection, head.headDirectories, previous.getDependencyWinners());
+        return true;
+    }
+
+    private FatJarState previousState(File target) {
+        if (stateFile == null || !stateFile.isFile()) {
+            return null;
+        }
+        try {
+            FatJarState state = FatJarState.read(stateFile);
+            return state.describes(target) ? state : null;
+        } catch (IOException e) {
+            log.debug("Unable to read the previous fat jar state, doing a full build", e);
+            return null;
+        }
+    }
+
+    private List<FatJarState.SourceHash> hashSources(FatJarState previous, ForkJoinPool pool) throws IOException {
+        Map<File, FatJarState.SourceHash> previousHashes = new HashMap<>();
+        if (previous != null) {
+            previous.getSources().forEach(hash -> previousHashes.put(hash.file, hash));
+        }
+        return inParallel(pool, sources, source -> FatJarState.SourceHash.of(source, previousHashes.get(source)));
+    }
+
+    private void saveState(File target, List<FatJarState.SourceHash> hashes, long[] dependencySection,
+                           Set<String> headDirectories, Set<String> dependencyWinners) {
+        try {
+            new FatJarState(configurationHash(), target.length(), target.lastModified(), hashes,
+                    dependencySection[0], dependencySection[1], headDirectories, dependencyWinners)
+                    .write(stateFile);
+        } catch (IOException e) {
+            log.warn("Unable to save the fat jar state, the next build will be a full build", e);
+            stateFile.delete();
+        }
+    }
+
+    /**
+     * @return the hash of everything but the sources content that influences the fat jar
+     */
+    private String configurationHash() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((byte) (rawCopy ? 1 : 0));
+            for (ResourceTransformer transformer : activeTransformers) {
+                digest.update(describe(transformer).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            if (relocator != null) {
+                digest.update(relocator.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            for (File source : sources) {
+                digest.update(source.getPath().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            for (Map.Entry<String, byte[]> generated : generatedEntries.entrySet()) {
+                digest.update(generated.getKey().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(generated.getValue());
+            }
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @return the class of the transformer and its configuration when the transformer describes it in toString
+     */
+    private static String describe(ResourceTransformer transformer) {
+        try {
+            if (transformer.getClass().getMethod("toString").getDeclaringClass() != Object.class) {
+                return transformer.getClass().getName() + ':' + transformer;
+            }
+        } catch (NoSuchMethodException e) {
+            // cannot happen, every object has a toString method
+        }
+        return transformer.getClass().getName();
+    }
+
+    private static Set<String> directoriesOf(Set<String> names) {
+        Set<String> directories = new HashSet<>();
+        for (String name : names) {
+            if (name.endsWith("/")) {
+                directories.add(name);
+            }
+            int slash = name.indexOf('/');
+            while (slash > 0 && slash < name.length() - 1) {
+                directories.add(name.substring(0, slash + 1));
+                slash = name.indexOf('/', slash + 1);
+            }
+        }
+        return directories;
+    }
+
+    private static void close(FileChannel[] channels) throws IOException {
+        for (FileChannel channel : channels) {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the {@link JarIndex} of the given sources, in parallel when a pool is given. The order of the returned
+     * list is the order of the sources. The project artifact changes with every build, so only the dependencies are
+     * looked up in the index cache
+     */
+    private List<JarIndex> readIndexes(List<File> files, ForkJoinPool pool) throws IOException {
+        if (indexCache == null || sources.isEmpty()) {
+            return inParallel(pool, files, JarIndex::read);
+        }
+        File primary = sources.get(0);
+        return inParallel(pool, files, source -> source.equals(primary) ? JarIndex.read(source)
+                : indexCache.read(source));
+    }
+
+    /**
+     * Applies the function to every item, in parallel when a pool is given, keeping the order of the items
+     */
+    static <T, R> List<R> inParallel(ForkJoinPool pool, List<T> items, IOFunction<T, R> function)
+            throws IOException {
+        if (pool == null) {
+            List<R> results = new ArrayList<>(items.size());
+            for (T item : items) {
+                results.add(function.apply(item));
+            }
+            return results;
+        }
+        try {
+            return pool.submit(() -> items.parallelStream()
+                    .map(item -> {
+                        try {
+                            return function.apply(item);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Unable to read " + item, e);
+                        }
+                    })
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading the dependencies");
+        } catch (ExecutionException e) {
+            throw asIOException(e.getCause());
+        }
+    }
+
+    /**
+     * Computes the ordered list of entries that will be written in to the fat jar, the generated entries come first
+     * followed by the winning entries of each source in the order of the sources. The entries accepted by a
+     * transformer are planned where they would have been written, so that the transformers see them in order
+     *
+     * @param indexes         - the {@link JarIndex} of the sources
+     * @param externalWinners - the names of the entries won by sources that are not part of this plan
+     */
+    private Plan plan(List<JarIndex> indexes, Set<String> externalWinners) {
+
+        Map<String, Integer> winners = new HashMap<>();
+        for (int i = 0; i < indexes.size(); i++) {
+            for (JarIndex.Entry entry : indexes.get(i).getEntries()) {
+                String name = outputName(entry);
+                if (!generatedEntries.containsKey(name) && !externalWinners.contains(name)) {
+                    winners.put(name, i);
+                }
+            }
+        }
+
+        Plan plan = new Plan(winners.size() + generatedEntries.size());
+        Set<String> dirs = new HashSet<>();
+
+        for (Map.Entry<String, byte[]> generated : generatedEntries.entrySet()) {
+            addParentDirectories(plan.entries, generated.getKey(), GENERATED_ENTRY_DOS_TIME, dirs);
+            plan.entries.add(PlannedEntry.generated(generated.getKey(), generated.getValue()));
+        }
+
+        for (int i = 0; i < indexes.size(); i++) {
+            if (i == 1) {
+                plan.headSize = plan.entries.size();
+                plan.headDirectories.addAll(dirs);
+            }
+            for (JarIndex.Entry entry : indexes.get(i).getEntries()) {
+                String name = outputName(entry);
+                if (!entry.isDirectory() && !generatedEntries.containsKey(name) && transformer(name) != null) {
+                    addParentDirectories(plan.entries, name, entry.getDosTime(), dirs);
+                    plan.entries.add(PlannedEntry.transformed(name, entry, i));
+                    continue;
+                }
+                Integer winner = winners.get(name);
+                if (winner == null || winner != i) {
+                    continue;
+                }
+                if (i > 0) {
+                    plan.dependencyWinners.add(name);
+                }
+                if (entry.isDirectory()) {
+                    addDirectory(plan.entries, name, entry.getDosTime(), dirs);
+                } else {
+                    boolean rewrite = relocator != null && relocator.mayRewrite(entry.getName());
+                    addParentDirectories(plan.entries, name, entry.getDosTime(), dirs);
+                    plan.entries.add(PlannedEntry.source(name, entry, i, rewrite,
+                            rewrite || !(rawCopy && entry.canCopyRaw())));
+                }
+            }
+        }
+
+        if (indexes.size() <= 1) {
+            plan.headSize = plan.entries.size();
+            plan.headDirectories.addAll(dirs);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Removes the classes that are not reachable from the roots of the application from the plan, together with
+     * the directories left empty
+     */
+    private void minimize(Plan plan, List<JarIndex> indexes, FileChannel[] channels, ForkJoinPool pool)
+            throws IOException {
+
+        Map<String, PlannedEntry> classes = new HashMap<>();
+        for (PlannedEntry planned : plan.entries) {
+            String className = JarMinimizer.className(planned.name);
+            if (className != null && planned.entry != null && !planned.transformed) {
+                classes.put(className, planned);
+            }
+        }
+
+        Map<String, String> roots = new LinkedHashMap<>();
+        byte[] manifest = generatedEntries.get(JarFile.MANIFEST_NAME);
+        if (manifest != null) {
+            Attributes attributes = new Manifest(new ByteArrayInputStream(manifest)).getMainAttributes();
+            for (String attribute : new String[]{"Main-Class", "Main-Verticle"}) {
+                String value = attributes.getValue(attribute);
+                if (value != null) {
+                    roots.putIfAbsent(asPath(value.trim()), attribute);
+                }
+            }
+        }
+        for (JarIndex index : indexes) {
+            ServiceCombinerUtil services = new ServiceCombinerUtil().add(index);
+            services.getProviders().forEach((service, providers) -> {
+                roots.putIfAbsent(asPath(service), "service " + service);
+                providers.forEach(provider -> roots.putIfAbsent(asPath(provider), "provider of " + service));
+            });
+        }
+        String project = sources.get(0).getName();
+        classes.forEach((className, planned) -> {
+            if (planned.source == 0) {
+                roots.putIfAbsent(className, "class of " + project);
+            }
+        });
+
+        JarMinimizer minimizer = new JarMinimizer(classes.keySet(), className -> {
+            PlannedEntry planned = classes.get(className);
+            try (InputStream in = planned.entry.openStream(channels[planned.source])) {
+                return FileUtils.readBytes(in);
+            }
+        }, relocator);
+        Map<String, String> kept = new HashMap<>();
+        minimizer.include(minimizeIncludes, kept);
+        roots.forEach(kept::putIfAbsent);
+        kept = minimizer.reachable(kept, pool);
+
+        Set<String> removed = new HashSet<>(classes.keySet());
+        removed.removeAll(kept.keySet());
+
+        Set<String> usedDirectories = new HashSet<>();
+        for (PlannedEntry planned : plan.entries) {
+            if ((planned.entry != null || planned.content != null) && !isRemoved(planned, removed)) {
+                usedDirectories.addAll(directoriesOf(Collections.singleton(planned.name)));
+            }
+        }
+
+        List<PlannedEntry> entries = new ArrayList<>(plan.entries.size() - removed.size());
+        int headSize = 0;
+        for (int i = 0; i < plan.entries.size(); i++) {
+            PlannedEntry planned = plan.entries.get(i);
+            boolean directory = planned.entry == null ? planned.content == null : planned.entry.isDirectory();
+            if (isRemoved(planned, removed) || directory && !usedDirectories.contains(planned.name)) {
+                plan.dependencyWinners.remove(planned.name);
+                continue;
+            }
+            entries.add(planned);
+            if (i < plan.headSize) {
+                headSize++;
+            }
+        }
+        plan.entries.clear();
+        plan.entries.addAll(entries);
+        plan.headSize = headSize;
+
+        log.info("Minimized the fat jar, kept " + kept.size() + " of " + classes.size() + " classes");
+        if (minimizeReport != null) {
+            JarMinimizer.writeReport(minimizeReport, kept, classes.size());
+        }
+    }
+
+    private static boolean isRemoved(PlannedEntry planned, Set<String> removed) {
+        String className = JarMinimizer.className(planned.name);
+        return className != null && planned.entry != null && !planned.transformed && removed.contains(className);
+    }
+
+    /**
+     * @return the internal name of the class in the fat jar
+     */
+    private String asPath(String className) {
+        String path = className.replace('.', '/');
+        return relocator != null ? relocator.relocatePath(path) : path;
+    }
+
+    /**
+     * Writes the planned entries in order. When a pool is given the entries that need compression are compressed
+     * ahead on the pool, within a bounded window so that only a few compressed entries are held in memory
+     *
+     * @return the start and end offsets of the dependency section
+     */
+    private long[] write(JarWriter writer, Plan plan, FileChannel[] channels, ForkJoinPool pool)
+            throws IOException {
+
+        List<PlannedEntry> entries = plan.entries;
+        int window = threads * 4;
+        Map<Integer, Future<JarWriter.Compressed>> compressing = new HashMap<>();
+        int submitted = 0;
+        long dependencyStart = -1;
+
+        for (int i = 0; i < entries.size(); i++) {
+
+            if (i == plan.headSize) {
+                dependencyStart = writer.position();
+            }
+
+            if (pool != null) {
+                while (submitted < entries.size() && submitted - i < window) {
+                    PlannedEntry ahead = entries.get(submitted);
+                    if (ahead.compress) {
+                        compressing.put(submitted, pool.submit(() -> compress(ahead, channels)));
+                    }
+                    submitted++;
+                }
+            }
+
+            PlannedEntry planned = entries.get(i);
+
+            if (planned.transformed) {
+                transform(planned.name, planned.entry, channels[planned.source]);
+            } else if (planned.entry == null && planned.content == null) {
+                writer.addDirectory(planned.name, planned.dosTime);
+            } else if (!planned.compress) {
+                writer.copyRaw(planned.name, planned.entry, channels[planned.source]);
+            } else if (pool != null || planned.rewrite) {
+                JarWriter.Compressed compressed = pool != null ? await(compressing.remove(i))
+                        : compress(planned, channels);
+                if (compressed == null) {
+                    writer.copyRaw(planned.name, planned.entry, channels[planned.source]);
+                } else {
+                    writer.write(planned.name, planned.dosTime, compressed);
+                }
+            } else {
+                try (InputStream in = open(planned, channels)) {
+                    writer.write(planned.name, planned.dosTime, in);
+                }
+            }
+        }
+
+        if (dependencyStart < 0) {
+            dependencyStart = writer.position();
+        }
+        return new long[]{dependencyStart, writer.position()};
+    }
+
+    /**
+     * @return the first transformer accepting the entry, null if the entry is copied as is
+     */
+    private ResourceTransformer transformer(String name) {
+        for (ResourceTransformer transformer : activeTransformers) {
+            if (transformer.canTransform(name)) {
+                return transformer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the name of the entry in the fat jar, which differs from the source name when the entry is relocated
+     */
+    private String outputName(JarIndex.Entry entry) {
+        return relocator != null ? relocator.relocateEntryName(entry.getName()) : entry.getName();
+    }
+
+    private void transform(String name, JarIndex.Entry entry, FileChannel channel) throws IOException {
+        ResourceTransformer transformer = transformer(name);
+        if (transformer == null) {
+            return;
+        }
+        try (InputStream in = entry.openStream(channel)) {
+            if (relocator != null && relocator.mayRewrite(entry.getName())) {
+                byte[] content = relocator.rewrite(entry.getName(), FileUtils.readBytes(in));
+                transformer.transform(name, new ByteArrayInputStream(content));
+            } else {
+                transformer.transform(name, in);
+            }
+        }
+    }
+
+    /**
+     * Writes the resources merged by the transformers, after every source entry was handed to them
+     */
+    private void writeTransformedResources(JarWriter writer) throws IOException {
+        Set<String> written = new HashSet<>(generatedEntries.keySet());
+        for (ResourceTransformer transformer : activeTransformers) {
+            for (Map.Entry<String, byte[]> resource : transformer.getTransformedResources().entrySet()) {
+                if (written.add(resource.getKey())) {
+                    writer.write(resource.getKey(), GENERATED_ENTRY_DOS_TIME, resource.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Compresses the entry, rewriting its content first when it may reference a relocated class
+     *
+     * @return the compressed entry or null when the rewritten entry is unchanged and can be copied as is
+     */
+    private JarWriter.Compressed compress(PlannedEntry planned, FileChannel[] channels) throws IOException {
+        try (InputStream in = open(planned, channels)) {
+            if (!planned.rewrite) {
+                return JarWriter.compress(in);
+            }
+            byte[] content = FileUtils.readBytes(in);
+            byte[] rewritten = relocator.rewrite(planned.entry.getName(), content);
+            if (rewritten == content && rawCopy && planned.entry.canCopyRaw()) {
+                return null;
+            }
+            return JarWriter.compress(new ByteArrayInputStream(rewritten));
+        }
+    }
+
+    private static InputStream open(PlannedEntry planned, FileChannel[] channels) throws IOException {
+        if (planned.content != null) {
+            return new ByteArrayInputStream(planned.content);
+        }
+        return planned.entry.openStream(channels[planned.source]);
+    }
+
+    private static JarWriter.Compressed await(Future<JarWriter.Compressed> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing the fat jar entries");
+        } catch (ExecutionException e) {
+            throw asIOException(e.getCause());
+        }
+    }
+
+    static IOException asIOException(Throwable cause) {
+        if (cause instanceof UncheckedIOException) {
+            return ((UncheckedIOException) cause).getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException(cause);
+    }
+
+    private void addParentDirectories(List<PlannedEntry> plan, String name, int dosTime, Set<String> dirs) {
+        int slash = name.indexOf('/');
+        while (slash > 0 && slash < name.length() - 1) {
+            addDirectory(plan, name.substring(0, slash + 1), dosTime, dirs);
+            slash = name.indexOf('/', slash + 1);
+        }
+    }
+
+    private void addDirectory(List<PlannedEntry> plan, String name, int dosTime, Set<String> dirs) {
+        if (dirs.add(name)) {
+            plan.add(PlannedEntry.directory(name, dosTime));
+        }
+    }
+
+    /**
+     * The ordered entries of the fat jar, the entries before headSize are the generated entries and the entries of
+     * the project artifact, the remaining ones form the dependency section
+     */
+    private static final class Plan {
+        final List<PlannedEntry> entries;
+        final Set<String> headDirectories = new HashSet<>();
+        final Set<String> dependencyWinners = new HashSet<>();
+        int headSize;
+
+        Plan(int size) {
+            this.entries = new ArrayList<>(size);
+        }
+    }
+
+    @FunctionalInterface
+    interface IOFunction<T, R> {
+        R apply(T item) throws IOException;
+    }
+
+    /**
+     * A single entry of the fat jar: a directory, a generated entry or an entry of one of the sources, possibly
+     * handed to a transformer instead of being written
+     */
+    private static final class PlannedEntry {
+        final String name;
+        final int dosTime;
+        final JarIndex.Entry entry;
+        final int source;
+        final byte[] content;
+        final boolean compress;
+        final boolean rewrite;
+        final boolean transformed;
+
+        private PlannedEntry(String name, int dosTime, JarIndex.Entry entry, int source, byte[] content,
+                             boolean compress, boolean rewrite, boolean transformed) {
+            this.name = name;
+            this.dosTime = dosTime;
+            this.entry = entry;
+            this.source = source;
+            this.content = content;
+            this.compress = compress;
+            this.rewrite = rewrite;
+            this.transformed = transformed;
+        }
+
+        static PlannedEntry directory(String name, int dosTime) {
+            return new PlannedEntry(name, dosTime, null, -1, null, false, false, false);
+        }
+
+        static PlannedEntry generated(String name, byte[] content) {
+            return new PlannedEntry(name, GENERATED_ENTRY_DOS_TIME, null, -1, content, true, false, false);
+        }
+
+        static PlannedEntry source(String name, JarIndex.Entry entry, int source, boolean rewrite,
+                                   boolean compress) {
+            return new PlannedEntry(name, entry.getDosTime(), entry, source, null, compress, rewrite, false);
+        }
+
+        static PlannedEntry transformed(String name, JarIndex.Entry entry, int source) {
+            return new PlannedEntry(name, entry.getDosTime(), entry, source, null, false, false, true);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The state of the previous fat jar build, used to rebuild the fat jar incrementally. It records the content hash
+ * of every source jar and where the dependency section, i.e. the entries won by the dependencies, is in the fat jar.
+ * When only the project artifact changed, the dependency section can be copied from the previous fat jar as is
+ */
+class FatJarState {
+
+    private static final int MAGIC = 0x564D5046;
+
+    private static final int VERSION = 1;
+
+    private final String configuration;
+    private final long fatJarSize;
+    private final long fatJarLastModified;
+    private final List<SourceHash> sources;
+    private final long dependencyStart;
+    private final long dependencyEnd;
+    private final Set<String> headDirectories;
+    private final Set<String> dependencyWinners;
+
+    FatJarState(String configuration, long fatJarSize, long fatJarLastModified, List<SourceHash> sources,
+                long dependencyStart, long dependencyEnd, Set<String> headDirectories,
+                Set<String> dependencyWinners) {
+        this.configuration = configuration;
+        this.fatJarSize = fatJarSize;
+        this.fatJarLastModified = fatJarLastModified;
+        this.sources = sources;
+        this.dependencyStart = dependencyStart;
+        this.dependencyEnd = dependencyEnd;
+        this.headDirectories = headDirectories;
+        this.dependencyWinners = dependencyWinners;
+    }
+
+    String getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * @return the hashes of the sources, the first one being the project artifact
+     */
+    List<SourceHash> getSources() {
+        return sources;
+    }
+
+    long getDependencyStart() {
+        return dependencyStart;
+    }
+
+    long getDependencyEnd() {
+        return dependencyEnd;
+    }
+
+    /**
+     * @return the directory entries written before the dependency section
+     */
+    Set<String> getHeadDirectories() {
+        return headDirectories;
+    }
+
+    /**
+     * @return the names of the entries won by the dependencies
+     */
+    Set<String> getDependencyWinners() {
+        return dependencyWinners;
+    }
+
+    /**
+     * @param fatJar - the fat jar {@link File}
+     * @return true if the fat jar is the one written by the build that recorded this state
+     */
+    boolean describes(File fatJar) {
+        return fatJar.isFile() && fatJar.length() == fatJarSize && fatJar.lastModified() == fatJarLastModified;
+    }
+
+    static FatJarState read(File stateFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported fat jar state " + stateFile);
+            }
+            String configuration = in.readUTF();
+            long fatJarSize = in.readLong();
+            long fatJarLastModified = in.readLong();
+            int sourceCount = in.readInt();
+            List<SourceHash> sources = new ArrayList<>(sourceCount);
+            for (int i = 0; i < sourceCount; i++) {
+                sources.add(new SourceHash(new File(in.readUTF()), in.readLong(), in.readLong(), in.readUTF()));
+            }
+            long dependencyStart = in.readLong();
+            long dependencyEnd = in.readLong();
+            Set<String> headDirectories = readNames(in);
+            Set<String> dependencyWinners = readNames(in);
+            return new FatJarState(configuration, fatJarSize, fatJarLastModified, sources, dependencyStart,
+                    dependencyEnd, headDirectories, dependencyWinners);
+        }
+    }
+
+    void write(File stateFile) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(stateFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(configuration);
+            out.writeLong(fatJarSize);
+            out.writeLong(fatJarLastModified);
+            out.writeInt(sources.size());
+            for (SourceHash source : sources) {
+                out.writeUTF(source.file.getPath());
+                out.writeLong(source.size);
+                out.writeLong(source.lastModified);
+                out.writeUTF(source.sha256);
+            }
+            out.writeLong(dependencyStart);
+            out.writeLong(dependencyEnd);
+            writeNames(out, headDirectories);
+            writeNames(out, dependencyWinners);
+        }
+    }
+
+    private static Set<String> readNames(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Set<String> names = new HashSet<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            names.add(in.readUTF());
+        }
+        return names;
+    }
+
+    private static void writeNames(DataOutputStream out, Collection<String> names) throws IOException {
+        out.writeInt(names.size());
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
+    /**
+     * The content hash of a source jar, the size and last modified time are kept so that the hash is only
+     * computed again when the file was touched
+     */
+    static final class SourceHash {
+        final File file;
+        final long size;
+        final long lastModified;
+        final String sha256;
+
+        SourceHash(File file, long size, long lastModified, String sha256) {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+        }
+
+        /**
+         * Computes the hash of the file, reusing the previous hash when the file was not touched
+         *
+         * @param file     - the source {@link File}
+         * @param previous - the previous hash of the same file, can be null
+         * @return the {@link SourceHash} of the file
+         * @throws IOException - any error while reading the file
+         */
+        static SourceHash of(File file, SourceHash previous) throws IOException {
+            long size = file.length();
+            long lastModified = file.lastModified();
+            if (previous != null && previous.file.equals(file) && previous.size == size
+                    && previous.lastModified == lastModified) {
+                return previous;
+            }
+            return new SourceHash(file, size, lastModified, FileUtils.sha256(file));
+        }
+
+        boolean sameContent(SourceHash other) {
+            return other != null && file.equals(other.file) && sha256.equals(other.sha256);
+        }
+    }
+}
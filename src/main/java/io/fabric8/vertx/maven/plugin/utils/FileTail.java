@@ -0,0 +1,86 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the lines appended to a file, e.g. the output of an application written to a file by the operating system.
+ * A line is only returned once its end of line is written, a truncated file is read again from its start
+ */
+public class FileTail {
+
+    private final File file;
+
+    private long offset;
+
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+
+    /**
+     * @param file - the file, the lines it already holds are skipped
+     */
+    public FileTail(File file) {
+        this.file = file;
+        this.offset = file.length();
+    }
+
+    /**
+     * @return the lines appended since the previous read, none when the file does not exist or cannot be read
+     */
+    public List<String> read() {
+        if (!file.isFile()) {
+            return Collections.emptyList();
+        }
+        byte[] appended;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < offset) {
+                // truncated
+                offset = 0;
+                partialLine.reset();
+            }
+            appended = new byte[(int) Math.min(Integer.MAX_VALUE, raf.length() - offset)];
+            raf.seek(offset);
+            raf.readFully(appended);
+            offset += appended.length;
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+
+        // split on the bytes, a new line is never part of a multi-byte UTF-8 character
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < appended.length; i++) {
+            if (appended[i] == '\n') {
+                partialLine.write(appended, start, i - start);
+                String line = new String(partialLine.toByteArray(), StandardCharsets.UTF_8);
+                lines.add(line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+                partialLine.reset();
+                start = i + 1;
+            }
+        }
+        partialLine.write(appended, start, appended.length - start);
+        return lines;
+    }
+}
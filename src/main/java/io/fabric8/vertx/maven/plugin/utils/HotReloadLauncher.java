@@ -0,0 +1,242 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The main class of the forked application when the run goal reloads the classes, see
+ * {@link io.fabric8.vertx.maven.plugin.model.RedeployMode#reload}.
+ * <p>
+ * The dependencies are on the classpath of the forked JVM, so they are loaded once and stay JIT-warm. The project
+ * classes and resources are loaded by a child class loader, when the trigger file changes the verticle is
+ * undeployed, a new child class loader is created and the verticle is deployed again on the same vert.x instance.
+ * <p>
+ * This class is copied out of the plugin in to the forked JVM, it must only use the JDK. Vert.x is used through
+ * reflection. The {@link VertxDaemon} runs one instance per started application
+ */
+public final class HotReloadLauncher {
+
+    private static final long POLL_INTERVAL = 100;
+
+    private static volatile Runnable reloadListener;
+
+    private final URL[] projectUrls;
+
+    private final String verticle;
+
+    private final String config;
+
+    private final Class<?> vertxClass;
+
+    private final Class<?> optionsClass;
+
+    private final Class<?> handlerClass;
+
+    private final Object vertx;
+
+    private URLClassLoader loader;
+
+    private String deploymentId;
+
+    HotReloadLauncher(URL[] projectUrls, String verticle, String config) throws Exception {
+        this.projectUrls = projectUrls;
+        this.verticle = verticle;
+        this.config = config;
+        this.vertxClass = Class.forName("io.vertx.core.Vertx");
+        this.optionsClass = Class.forName("io.vertx.core.DeploymentOptions");
+        this.handlerClass = Class.forName("io.vertx.core.Handler");
+        this.vertx = vertxClass.getMethod("vertx").invoke(null);
+    }
+
+    /**
+     * @param args - the project directories separated by the path separator, the trigger file, the verticle and
+     *             optionally the JSON configuration file of the verticle
+     * @throws Exception - any error while deploying the verticle the first time
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Usage: HotReloadLauncher <project dirs> <trigger file> <verticle> "
+                    + "[config file]");
+        }
+        List<URL> urls = new ArrayList<>();
+        for (String directory : args[0].split(File.pathSeparator)) {
+            if (!directory.isEmpty()) {
+                urls.add(toURL(new File(directory)));
+            }
+        }
+        File trigger = new File(args[1]);
+        String config = args.length > 3 && !args[3].isEmpty()
+                ? new String(Files.readAllBytes(Paths.get(args[3])), StandardCharsets.UTF_8) : null;
+
+        HotReloadLauncher launcher = new HotReloadLauncher(urls.toArray(new URL[urls.size()]), args[2], config);
+        Runtime.getRuntime().addShutdownHook(new Thread(launcher::close, "vertx-reload-shutdown"));
+        // a change made while the verticle is first deployed triggers a reload
+        String triggered = read(trigger);
+        launcher.deploy();
+        launcher.watch(trigger, triggered);
+    }
+
+    /**
+     * Registers the listener called each time the verticle is reloaded, when the launcher runs in the Maven JVM with
+     * an {@link IsolatedApplication}. A {@link Runnable} is shared by the class loaders of the plugin and of the
+     * application
+     *
+     * @param listener - the listener, null for none
+     */
+    public static void onReload(Runnable listener) {
+        reloadListener = listener;
+    }
+
+    /**
+     * Redeploys the verticle each time the content of the trigger file changes, never returns
+     */
+    private void watch(File trigger, String last) throws InterruptedException {
+        while (true) {
+            TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL);
+            String current = read(trigger);
+            if (!current.equals(last)) {
+                last = current;
+                reload();
+            }
+        }
+    }
+
+    private static String read(File trigger) {
+        try {
+            return new String(Files.readAllBytes(trigger.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    void reload() {
+        long start = System.nanoTime();
+        try {
+            if (deploymentId != null) {
+                await(vertxClass.getMethod("undeploy", String.class, handlerClass), deploymentId);
+                deploymentId = null;
+            }
+            loader.close();
+            deploy();
+            System.out.println("Reloaded " + verticle + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+            Runnable listener = reloadListener;
+            if (listener != null) {
+                listener.run();
+            }
+        } catch (Exception e) {
+            System.err.println("Unable to reload " + verticle + ", waiting for the next change");
+            unwrap(e).printStackTrace();
+        }
+    }
+
+    void deploy() throws Exception {
+        loader = new URLClassLoader(projectUrls, HotReloadLauncher.class.getClassLoader());
+        Object options = optionsClass.newInstance();
+        if (config != null) {
+            Class<?> jsonObjectClass = Class.forName("io.vertx.core.json.JsonObject");
+            optionsClass.getMethod("setConfig", jsonObjectClass)
+                    .invoke(options, jsonObjectClass.getConstructor(String.class).newInstance(config));
+        }
+        // vert.x loads the verticle class from the context class loader of the deploying thread
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            deploymentId = (String) await(vertxClass.getMethod("deployVerticle", String.class, optionsClass,
+                    handlerClass), verticle, options);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    void close() {
+        try {
+            await(vertxClass.getMethod("close", handlerClass));
+        } catch (Exception e) {
+            // the JVM is exiting
+        }
+        try {
+            if (loader != null) {
+                loader.close();
+            }
+        } catch (IOException e) {
+            // closed anyway
+        }
+    }
+
+    /**
+     * Invokes an asynchronous vert.x method whose last parameter is the completion handler and waits for it
+     */
+    private Object await(Method method, Object... args) throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        Class<?> asyncResultClass = Class.forName("io.vertx.core.AsyncResult");
+        Object handler = Proxy.newProxyInstance(handlerClass.getClassLoader(), new Class<?>[]{handlerClass},
+                (proxy, invoked, handlerArgs) -> {
+                    if (!"handle".equals(invoked.getName())) {
+                        return invoked.getName().equals("equals") ? proxy == handlerArgs[0]
+                                : invoked.getName().equals("hashCode") ? System.identityHashCode(proxy)
+                                : "HotReloadHandler";
+                    }
+                    Object asyncResult = handlerArgs[0];
+                    if ((Boolean) asyncResultClass.getMethod("succeeded").invoke(asyncResult)) {
+                        result.complete(asyncResultClass.getMethod("result").invoke(asyncResult));
+                    } else {
+                        result.completeExceptionally((Throwable) asyncResultClass.getMethod("cause")
+                                .invoke(asyncResult));
+                    }
+                    return null;
+                });
+        Object[] invokeArgs = new Object[args.length + 1];
+        System.arraycopy(args, 0, invokeArgs, 0, args.length);
+        invokeArgs[args.length] = handler;
+        method.invoke(vertx, invokeArgs);
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof InvocationTargetException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    /**
+     * @return the URL of the file, a directory URL ends with a slash even when the directory does not exist yet
+     */
+    static URL toURL(File file) throws MalformedURLException {
+        String url = file.getAbsoluteFile().toURI().toString();
+        return new URL(file.isFile() || url.endsWith("/") ? url : url + "/");
+    }
+}
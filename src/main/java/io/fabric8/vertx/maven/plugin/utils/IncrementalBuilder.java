@@ -16,6 +16,8 @@
 
 package io.fabric8.vertx.maven.plugin.utils;
 
+import io.fabric8.vertx.maven.plugin.functions.BuildCallback;
+import io.fabric8.vertx.maven.plugin.model.WatcherMode;
 import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
 import org.apache.commons.io.monitor.FileAlterationMonitor;
 import org.apache.commons.io.monitor.FileAlterationObserver;
@@ -27,38 +29,154 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Triggers the java or the resource build when a file of the watched directories changes. The changes are either
+ * notified by the file system through a {@link DirectoryWatcher} or found by scanning the directories periodically
+ * with a {@link FileAlterationMonitor}.
+ * <p>
+ * The changes are collected until no change happens during the quiet period, then the java changes and the resource
+ * changes are handed at once to their {@link BuildCallback}, so a bulk change such as a checkout runs one compile and
+ * one resource copy. When any of these builds changed the classes directory, the reload action runs once for the
+ * whole quiet period, so an edit touching both sources and resources redeploys the application only once. The builds
+ * run one after the other on a single thread, the changes that happen while a build
+ * is running are built once the quiet period following them expires
+ *
  * @author kameshs
  */
 public class IncrementalBuilder extends FileAlterationListenerAdaptor implements Runnable, Closeable {
 
     private final Log logger;
 
-    private final Callable<Void> javaBuildCallBack;
-    private final Callable<Void> resourceBuildCallBack;
+    private final BuildCallback javaBuildCallBack;
+    private final BuildCallback resourceBuildCallBack;
 
     private FileAlterationMonitor monitor;
 
+    private DirectoryWatcher watcher;
+
     private Hashtable<Path, FileAlterationObserver> observers = new Hashtable<>();
 
+    private final ScheduledExecutorService buildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "vertx-incremental-build");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * the pending changes keyed by file, true when the file is deleted
+     */
+    private final Map<Path, Boolean> javaChanges = new LinkedHashMap<>();
+    private final Map<Path, Boolean> resourceChanges = new LinkedHashMap<>();
+
+    private ScheduledFuture<?> pendingBuild;
+
+    private long quietPeriod = DEFAULT_QUIET_PERIOD;
+
+    private RedeployTimeline timeline;
+
+    private Runnable reload;
+
+    public static final long DEFAULT_QUIET_PERIOD = 200L;
+
     public IncrementalBuilder(Set<Path> inclDirs,
                               Callable<Void> javaBuildCallBack,
                               Callable<Void> resourceBuildCallBack, Log logger, long watchTimeInterval)
             throws IOException {
+        this(inclDirs, javaBuildCallBack, resourceBuildCallBack, logger, WatcherMode.poll, watchTimeInterval);
+    }
+
+    public IncrementalBuilder(Set<Path> inclDirs,
+                              Callable<Void> javaBuildCallBack,
+                              Callable<Void> resourceBuildCallBack, Log logger, WatcherMode watcherMode,
+                              long watchTimeInterval)
+            throws IOException {
+        this(inclDirs, (changed, deleted) -> {
+            javaBuildCallBack.call();
+            return true;
+        }, (changed, deleted) -> {
+            resourceBuildCallBack.call();
+            return true;
+        }, logger, watcherMode, watchTimeInterval);
+    }
+
+    /**
+     * @param inclDirs              - the directories to watch
+     * @param javaBuildCallBack     - called with the java files changed
+     * @param resourceBuildCallBack - called with the other files changed
+     * @param logger                - the logger
+     * @param watcherMode           - how the changes are detected, {@link WatcherMode#watch} falls back to
+     *                              {@link WatcherMode#poll} when the file system has no native watch service
+     * @param watchTimeInterval     - the interval in milliseconds between two scans, used by {@link WatcherMode#poll}
+     * @throws IOException - any error while registering the directories with the file system
+     */
+    public IncrementalBuilder(Set<Path> inclDirs,
+                              BuildCallback javaBuildCallBack,
+                              BuildCallback resourceBuildCallBack, Log logger, WatcherMode watcherMode,
+                              long watchTimeInterval)
+            throws IOException {
 
         this.javaBuildCallBack = javaBuildCallBack;
         this.resourceBuildCallBack = resourceBuildCallBack;
         this.logger = logger;
-        this.monitor = new FileAlterationMonitor(watchTimeInterval);
-        inclDirs.forEach(this::buildObserver);
+        if (watcherMode == WatcherMode.watch && !DirectoryWatcher.isNative()) {
+            logger.info("No native file system notifications on this platform, the directories are scanned every "
+                    + watchTimeInterval + " ms");
+            watcherMode = WatcherMode.poll;
+        }
+        if (watcherMode == WatcherMode.watch) {
+            this.watcher = new DirectoryWatcher(inclDirs, this, logger);
+        } else {
+            this.monitor = new FileAlterationMonitor(watchTimeInterval);
+            inclDirs.forEach(this::buildObserver);
+        }
+
+    }
+
+    /**
+     * @param quietPeriod - the time in milliseconds without any change after which the changes are built
+     * @return this builder
+     */
+    public IncrementalBuilder withQuietPeriod(long quietPeriod) {
+        this.quietPeriod = quietPeriod;
+        return this;
+    }
+
+    /**
+     * @param timeline - the {@link RedeployTimeline} recording the detection and the rebuild of the changes
+     * @return this builder
+     */
+    public IncrementalBuilder withTimeline(RedeployTimeline timeline) {
+        this.timeline = timeline;
+        return this;
+    }
 
+    /**
+     * @param reload - called once after the builds of a quiet period when any of them changed the classes directory
+     * @return this builder
+     */
+    public IncrementalBuilder withReload(Runnable reload) {
+        this.reload = reload;
+        return this;
     }
 
     @Override
     public void run() {
+        if (this.watcher != null) {
+            Thread thread = new Thread(this.watcher, "vertx-directory-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            return;
+        }
         try {
             this.monitor.start();
         } catch (Exception e) {
@@ -68,6 +186,10 @@ public class IncrementalBuilder extends FileAlterationListenerAdaptor implements
 
     @Override
     public void close() throws IOException {
+        buildExecutor.shutdownNow();
+        if (this.watcher != null) {
+            this.watcher.close();
+        }
         if (this.monitor != null) {
             try {
                 this.monitor.stop();
@@ -110,6 +232,10 @@ public class IncrementalBuilder extends FileAlterationListenerAdaptor implements
 
     @Override
     public void onDirectoryCreate(File directory) {
+        if (this.monitor == null) {
+            // the directory watcher registers the new directories itself
+            return;
+        }
         buildObserver(Paths.get(directory.toString()));
         syncMonitor();
     }
@@ -117,6 +243,9 @@ public class IncrementalBuilder extends FileAlterationListenerAdaptor implements
 
     @Override
     public void onDirectoryDelete(File directory) {
+        if (this.monitor == null) {
+            return;
+        }
         observers.remove(Paths.get(directory.toString()));
         syncMonitor();
     }
@@ -128,7 +257,7 @@ public class IncrementalBuilder extends FileAlterationListenerAdaptor implements
             logger.debug("File Created: " + file);
         }
 
-        triggerBuild(file);
+        triggerBuild(file, false);
     }
 
     @Override
@@ -138,7 +267,7 @@ public class IncrementalBuilder extends FileAlterationListenerAdaptor implements
             logger.debug("File Changed: " + file);
         }
 
-        triggerBuild(file);
+        triggerBuild(file, false);
     }
 
     @Override
@@ -148,18 +277,66 @@ public class IncrementalBuilder extends FileAlterationListenerAdaptor implements
             logger.debug("File Deleted: " + file);
         }
 
-        triggerBuild(file);
+        triggerBuild(file, true);
     }
 
-    private void triggerBuild(File file) {
+    /**
+     * Adds the file to the pending changes and postpones the build until the end of the quiet period
+     */
+    private synchronized void triggerBuild(File file, boolean deleted) {
+        Map<Path, Boolean> changes = isJavaFile(file.getName()) ? javaChanges : resourceChanges;
+        changes.put(file.toPath(), deleted);
+        if (timeline != null) {
+            timeline.detected(file.toPath());
+        }
+        if (pendingBuild != null) {
+            // a build already running is not interrupted, the next one is queued after it
+            pendingBuild.cancel(false);
+        }
+        if (!buildExecutor.isShutdown()) {
+            pendingBuild = buildExecutor.schedule(this::buildChanges, quietPeriod, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void buildChanges() {
+        Map<Path, Boolean> java;
+        Map<Path, Boolean> resources;
+        synchronized (this) {
+            java = new LinkedHashMap<>(javaChanges);
+            resources = new LinkedHashMap<>(resourceChanges);
+            javaChanges.clear();
+            resourceChanges.clear();
+        }
+        if (timeline != null) {
+            timeline.rebuildStarted();
+        }
+        boolean rebuilt = false;
+        if (!java.isEmpty()) {
+            rebuilt = build(javaBuildCallBack, java);
+        }
+        if (!resources.isEmpty()) {
+            rebuilt |= build(resourceBuildCallBack, resources);
+        }
+        if (rebuilt && reload != null) {
+            reload.run();
+        }
+        if (timeline != null) {
+            timeline.rebuildFinished();
+        }
+    }
+
+    private boolean build(BuildCallback callback, Map<Path, Boolean> changes) {
+        Set<Path> changed = new LinkedHashSet<>();
+        Set<Path> deleted = new LinkedHashSet<>();
+        changes.forEach((path, isDeleted) -> (isDeleted ? deleted : changed).add(path));
+        if (logger.isDebugEnabled()) {
+            logger.debug("Building " + changed.size() + " changed and " + deleted.size() + " deleted file(s)");
+        }
         try {
-            if (isJavaFile(file.getName())) {
-                this.javaBuildCallBack.call();
-            } else {
-                this.resourceBuildCallBack.call();
-            }
+            return callback.build(changed, deleted);
         } catch (Exception e) {
-            //ignore
+            logger.error("Error while doing incremental build", e);
+            return false;
         }
     }
 
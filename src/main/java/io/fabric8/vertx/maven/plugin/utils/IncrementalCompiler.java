@@ -0,0 +1,330 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles the changed sources of the project in the running JVM, with a {@link JavaCompiler} and a file manager
+ * kept open between the compilations so that the jars of the class path are opened once.
+ * <p>
+ * The compiler keeps the classes produced by each source and the project classes referenced by each class, read
+ * from the constant pool of the class files. A compilation recompiles the changed sources and the sources of the
+ * classes referencing a class of a changed or deleted source, the class files of these sources are deleted first so
+ * that the removed inner and local classes disappear. The graph is built from the classes directory on the first
+ * compilation, the classes are then mapped to the source of their top level class.
+ * <p>
+ * Like any incremental compiler working on the class files, a change of a constant inlined by another class is not
+ * seen as a reference
+ */
+public class IncrementalCompiler implements Closeable {
+
+    private static final String JAVA_SUFFIX = ".java";
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final JavaCompiler compiler;
+
+    private final List<Path> sourceRoots;
+
+    private final File classesDirectory;
+
+    private final List<String> options;
+
+    private final StandardJavaFileManager fileManager;
+
+    /**
+     * the internal names of the classes produced by each source
+     */
+    private final Map<Path, Set<String>> sourceClasses = new HashMap<>();
+
+    /**
+     * the source of each class
+     */
+    private final Map<String, Path> classSources = new HashMap<>();
+
+    /**
+     * the classes referenced by each class
+     */
+    private final Map<String, Set<String>> references = new HashMap<>();
+
+    /**
+     * the classes found in the classes directory whose source does not exist, keyed by top level class
+     */
+    private final Map<String, Set<String>> orphans = new HashMap<>();
+
+    /**
+     * the sources that failed to compile, they are compiled again with the next changes
+     */
+    private final Set<Path> failed = new LinkedHashSet<>();
+
+    private Set<Path> compiledSources = Collections.emptySet();
+
+    private boolean scanned;
+
+    private Log logger = new SystemStreamLog();
+
+    /**
+     * @return true if the running JVM provides a java compiler, i.e. it is a JDK
+     */
+    public static boolean isAvailable() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    /**
+     * @param sourceRoots      - the source directories
+     * @param classesDirectory - the directory the classes are written to
+     * @param classPath        - the class path of the compilation, including the classes directory
+     * @param options          - the javac options, e.g. -source 1.8 -target 1.8, without the paths
+     * @param encoding         - the encoding of the sources, null for the platform encoding
+     * @throws IOException - any error while configuring the file manager, or no compiler is available
+     */
+    public IncrementalCompiler(List<File> sourceRoots, File classesDirectory, List<File> classPath,
+                               List<String> options, String encoding) throws IOException {
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("No java compiler is available in this JVM, a JDK is required");
+        }
+        this.sourceRoots = sourceRoots.stream().map(root -> root.toPath().toAbsolutePath().normalize())
+                .collect(Collectors.toList());
+        this.classesDirectory = classesDirectory;
+        this.options = new ArrayList<>(options);
+        this.fileManager = compiler.getStandardFileManager(null, null,
+                encoding != null ? Charset.forName(encoding) : null);
+        Files.createDirectories(classesDirectory.toPath());
+        fileManager.setLocation(StandardLocation.CLASS_PATH, classPath);
+        fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(classesDirectory));
+        // the sources that are not compiled are read from the classes directory
+        fileManager.setLocation(StandardLocation.SOURCE_PATH, Collections.emptyList());
+    }
+
+    public IncrementalCompiler withLog(Log logger) {
+        this.logger = logger;
+        return this;
+    }
+
+    /**
+     * Compiles the changed sources and their dependents, the diagnostics are logged
+     *
+     * @param changed - the files created or modified, the files that are not sources of a source root are ignored
+     * @param deleted - the files deleted
+     * @return true if the compilation succeeded
+     * @throws IOException - any error while reading or deleting the class files
+     */
+    public synchronized boolean compile(Set<Path> changed, Set<Path> deleted) throws IOException {
+        long start = System.currentTimeMillis();
+        if (!scanned) {
+            scan();
+            scanned = true;
+        }
+
+        Set<Path> sources = new TreeSet<>(failed);
+        changed.stream().map(path -> path.toAbsolutePath().normalize())
+                .filter(this::isSource)
+                .filter(Files::isRegularFile)
+                .forEach(sources::add);
+        Set<Path> removed = deleted.stream().map(path -> path.toAbsolutePath().normalize())
+                .filter(this::isSource)
+                .collect(Collectors.toSet());
+        sources.removeAll(removed);
+
+        // the classes whose signature may have changed, a new source may define a class that was missing
+        Set<String> stale = new HashSet<>();
+        Stream.concat(sources.stream(), removed.stream()).forEach(source -> {
+            stale.addAll(sourceClasses.getOrDefault(source, Collections.emptySet()));
+            String topLevel = topLevelClass(source);
+            if (topLevel != null) {
+                stale.add(topLevel);
+            }
+        });
+        references.forEach((className, referenced) -> {
+            Path source = classSources.get(className);
+            if (source != null && !removed.contains(source) && Files.isRegularFile(source)
+                    && referenced.stream().anyMatch(stale::contains)) {
+                sources.add(source);
+            }
+        });
+
+        Stream.concat(sources.stream(), removed.stream()).forEach(this::deleteClasses);
+        compiledSources = Collections.unmodifiableSet(sources);
+        if (sources.isEmpty()) {
+            return true;
+        }
+
+        Map<String, Path> outputs = new HashMap<>();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaFileManager recordingFileManager = new ForwardingJavaFileManager<JavaFileManager>(fileManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                       FileObject sibling) throws IOException {
+                if (kind == JavaFileObject.Kind.CLASS && sibling != null) {
+                    outputs.put(className.replace('.', '/'), Paths.get(sibling.toUri()).toAbsolutePath().normalize());
+                }
+                return super.getJavaFileForOutput(location, className, kind, sibling);
+            }
+        };
+        Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(sources.stream()
+                .map(Path::toFile).collect(Collectors.toList()));
+        boolean success = compiler.getTask(null, recordingFileManager, diagnostics, options, null, units).call();
+
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            String message = format(diagnostic);
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                logger.error(message);
+            } else if (diagnostic.getKind() == Diagnostic.Kind.WARNING
+                    || diagnostic.getKind() == Diagnostic.Kind.MANDATORY_WARNING) {
+                logger.warn(message);
+            } else if (logger.isDebugEnabled()) {
+                logger.debug(message);
+            }
+        }
+
+        failed.clear();
+        if (!success) {
+            failed.addAll(sources);
+        }
+        for (Map.Entry<String, Path> output : outputs.entrySet()) {
+            Path classFile = classesDirectory.toPath().resolve(output.getKey() + CLASS_SUFFIX);
+            if (Files.isRegularFile(classFile)) {
+                addClass(output.getKey(), output.getValue(), classFile);
+            }
+        }
+        logger.info("Compiled " + sources.size() + " source(s) in " + (System.currentTimeMillis() - start)
+                + " ms" + (success ? "" : " with errors"));
+        return success;
+    }
+
+    /**
+     * @return the sources compiled by the last compilation
+     */
+    public Set<Path> getCompiledSources() {
+        return compiledSources;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileManager.close();
+    }
+
+    /**
+     * Builds the graph from the classes directory, each class is mapped to the source of its top level class
+     */
+    private void scan() throws IOException {
+        Path classes = classesDirectory.toPath();
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.walk(classes)) {
+            classFiles = files.filter(file -> file.toString().endsWith(CLASS_SUFFIX)).collect(Collectors.toList());
+        }
+        for (Path classFile : classFiles) {
+            String relative = classes.relativize(classFile).toString().replace(File.separatorChar, '/');
+            String className = relative.substring(0, relative.length() - CLASS_SUFFIX.length());
+            int inner = className.indexOf('$');
+            String topLevel = inner > 0 ? className.substring(0, inner) : className;
+            Path source = sourceRoots.stream().map(root -> root.resolve(topLevel + JAVA_SUFFIX))
+                    .filter(Files::isRegularFile)
+                    .findFirst().orElse(null);
+            addClass(className, source, classFile);
+            if (source == null) {
+                orphans.computeIfAbsent(topLevel, t -> new HashSet<>()).add(className);
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Read the references of " + classFiles.size() + " class(es) from " + classesDirectory);
+        }
+    }
+
+    private void addClass(String className, Path source, Path classFile) throws IOException {
+        references.put(className, JarMinimizer.references(Files.readAllBytes(classFile), null));
+        if (source != null) {
+            sourceClasses.computeIfAbsent(source, s -> new HashSet<>()).add(className);
+            classSources.put(className, source);
+        }
+    }
+
+    private void deleteClasses(Path source) {
+        Set<String> classes = new HashSet<>(sourceClasses.getOrDefault(source, Collections.emptySet()));
+        sourceClasses.remove(source);
+        classes.addAll(orphans.getOrDefault(topLevelClass(source), Collections.emptySet()));
+        orphans.remove(topLevelClass(source));
+        for (String className : classes) {
+            references.remove(className);
+            classSources.remove(className);
+            try {
+                Files.deleteIfExists(classesDirectory.toPath().resolve(className + CLASS_SUFFIX));
+            } catch (IOException e) {
+                logger.warn("Unable to delete the class " + className + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean isSource(Path path) {
+        return path.toString().endsWith(JAVA_SUFFIX) && sourceRoots.stream().anyMatch(path::startsWith);
+    }
+
+    /**
+     * @return the internal name of the class a source is named after, e.g. io/vertx/example/MainVerticle
+     */
+    private String topLevelClass(Path source) {
+        for (Path root : sourceRoots) {
+            if (source.startsWith(root)) {
+                String relative = root.relativize(source).toString().replace(File.separatorChar, '/');
+                return relative.substring(0, relative.length() - JAVA_SUFFIX.length());
+            }
+        }
+        return null;
+    }
+
+    private static String format(Diagnostic<? extends JavaFileObject> diagnostic) {
+        StringBuilder message = new StringBuilder();
+        if (diagnostic.getSource() != null) {
+            message.append(diagnostic.getSource().getName()).append(':')
+                    .append('[').append(diagnostic.getLineNumber()).append(',')
+                    .append(diagnostic.getColumnNumber()).append("] ");
+        }
+        return message.append(diagnostic.getMessage(null)).toString();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Runs the main class of the application in the Maven JVM, instead of forking a JVM. The application is loaded by
+ * its own {@link URLClassLoader}, whose parent is the platform class loader so that none of the Maven and plugin
+ * classes are visible, and it runs on its own {@link ThreadGroup}. The run returns once every non daemon thread of
+ * the group is over, the class loader is then closed
+ */
+public class IsolatedApplication {
+
+    private final Collection<URL> classPath;
+
+    private final String mainClass;
+
+    private final List<String> args;
+
+    private Log logger = new SystemStreamLog();
+
+    private Runnable reloadListener;
+
+    /**
+     * @param classPath - the class path of the application
+     * @param mainClass - the class whose main method is called
+     * @param args      - the arguments of the main method
+     */
+    public IsolatedApplication(Collection<URL> classPath, String mainClass, List<String> args) {
+        this.classPath = classPath;
+        this.mainClass = mainClass;
+        this.args = args;
+    }
+
+    public IsolatedApplication withLog(Log logger) {
+        this.logger = logger;
+        return this;
+    }
+
+    /**
+     * @param reloadListener - called each time the {@link HotReloadLauncher} run as main class reloads the verticle
+     * @return this application
+     */
+    public IsolatedApplication withReloadListener(Runnable reloadListener) {
+        this.reloadListener = reloadListener;
+        return this;
+    }
+
+    /**
+     * Calls the main method and waits until the application is over
+     *
+     * @throws Exception - the error thrown by the main method, or any error while loading the main class
+     */
+    public void run() throws Exception {
+        ApplicationThreadGroup threadGroup = new ApplicationThreadGroup(mainClass);
+        try (URLClassLoader classLoader = new URLClassLoader(classPath.toArray(new URL[classPath.size()]),
+                ClassLoader.getSystemClassLoader().getParent())) {
+            if (reloadListener != null && HotReloadLauncher.class.getName().equals(mainClass)) {
+                // the launcher class of the application, not the one of the plugin
+                classLoader.loadClass(HotReloadLauncher.class.getName()).getMethod("onReload", Runnable.class)
+                        .invoke(null, reloadListener);
+            }
+            Thread main = new Thread(threadGroup, () -> {
+                try {
+                    Method method = classLoader.loadClass(mainClass).getMethod("main", String[].class);
+                    method.invoke(null, (Object) args.toArray(new String[args.size()]));
+                } catch (InvocationTargetException e) {
+                    threadGroup.failed(e.getCause());
+                } catch (ReflectiveOperationException e) {
+                    threadGroup.failed(e);
+                }
+            }, mainClass + ".main()");
+            main.setContextClassLoader(classLoader);
+            main.start();
+
+            new ThreadUtil().build(logger).joinNonDaemonThread(threadGroup);
+            if (threadGroup.failure != null) {
+                throw threadGroup.failure instanceof Exception ? (Exception) threadGroup.failure
+                        : new IOException("The application failed", threadGroup.failure);
+            }
+        }
+    }
+
+    /**
+     * Keeps the first error of the application threads
+     */
+    private final class ApplicationThreadGroup extends ThreadGroup {
+
+        private volatile Throwable failure;
+
+        private ApplicationThreadGroup(String name) {
+            super(name);
+        }
+
+        private synchronized void failed(Throwable throwable) {
+            if (failure == null) {
+                failure = throwable;
+            }
+        }
+
+        @Override
+        public void uncaughtException(Thread thread, Throwable throwable) {
+            if (!(throwable instanceof ThreadDeath)) {
+                logger.error("Uncaught error in " + thread.getName(), throwable);
+                failed(throwable);
+            }
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * The entry table of a jar file as read from its central directory. Unlike {@link java.util.zip.ZipFile} this
+ * keeps the position of each entry's local header, which allows the compressed data of the entry to be copied
+ * as is in to another jar.
+ * <p>
+ * The index also holds the content of the jar's META-INF/services files and of its manifest, so that they can be
+ * used without opening the jar again
+ */
+public class JarIndex {
+
+    static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    static final int END_SIGNATURE = 0x06054b50;
+    static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    static final String SERVICES_PREFIX = "META-INF/services/";
+
+    private final File file;
+
+    private final List<Entry> entries;
+
+    private final Map<String, byte[]> services;
+
+    private final byte[] manifest;
+
+    JarIndex(File file, List<Entry> entries, Map<String, byte[]> services, byte[] manifest) {
+        this.file = file;
+        this.entries = entries;
+        this.services = services;
+        this.manifest = manifest;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the content of the META-INF/services files of the jar, keyed by entry name in the order of the jar
+     */
+    public Map<String, byte[]> getServices() {
+        return services;
+    }
+
+    /**
+     * @return the content of the jar's META-INF/MANIFEST.MF or null if the jar has no manifest
+     */
+    public byte[] getManifest() {
+        return manifest;
+    }
+
+    /**
+     * Reads the central directory of the jar file
+     *
+     * @param file - the jar {@link File} to be indexed
+     * @return the {@link JarIndex} of the file
+     * @throws IOException - any error while reading the file or if the file is not a valid zip file
+     */
+    public static JarIndex read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<Entry> entries = readEntries(channel);
+            Map<String, byte[]> services = new LinkedHashMap<>();
+            byte[] manifest = null;
+            for (Entry entry : entries) {
+                if (entry.isDirectory() || !entry.canCopyRaw()) {
+                    continue;
+                }
+                if (entry.getName().startsWith(SERVICES_PREFIX)) {
+                    services.put(entry.getName(), readContent(entry, channel));
+                } else if (JarFile.MANIFEST_NAME.equals(entry.getName())) {
+                    manifest = readContent(entry, channel);
+                }
+            }
+            return new JarIndex(file, entries, Collections.unmodifiableMap(services), manifest);
+        }
+    }
+
+    private static List<Entry> readEntries(FileChannel channel) throws IOException {
+
+        long size = channel.size();
+        int tailSize = (int) Math.min(size, END_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = readFully(channel, size - tailSize, tailSize);
+
+        int end = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            throw new ZipException("End of central directory not found");
+        }
+
+        long total = tail.getShort(end + 10) & 0xFFFF;
+        long cdSize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+        long cdOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+
+        if (total == 0xFFFF || cdSize == 0xFFFFFFFFL || cdOffset == 0xFFFFFFFFL) {
+            long locatorPosition = size - tailSize + end - 20;
+            ByteBuffer locator = readFully(channel, locatorPosition, 20);
+            if (locator.getInt(0) != ZIP64_LOCATOR_SIGNATURE) {
+                throw new ZipException("Zip64 end of central directory locator not found");
+            }
+            ByteBuffer zip64End = readFully(channel, locator.getLong(8), 56);
+            if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                throw new ZipException("Zip64 end of central directory not found");
+            }
+            total = zip64End.getLong(32);
+            cdSize = zip64End.getLong(40);
+            cdOffset = zip64End.getLong(48);
+        }
+
+        if (cdSize > Integer.MAX_VALUE) {
+            throw new ZipException("Central directory too large");
+        }
+
+        ByteBuffer cd = readFully(channel, cdOffset, (int) cdSize);
+        List<Entry> entries = new ArrayList<>((int) Math.min(total, 1 << 16));
+
+        int pos = 0;
+        while (pos + 46 <= cdSize) {
+            if (cd.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory header at " + (cdOffset + pos));
+            }
+            int flags = cd.getShort(pos + 8) & 0xFFFF;
+            int method = cd.getShort(pos + 10) & 0xFFFF;
+            int dosTime = cd.getInt(pos + 12);
+            long crc = cd.getInt(pos + 16) & 0xFFFFFFFFL;
+            long compressedSize = cd.getInt(pos + 20) & 0xFFFFFFFFL;
+            long uncompressedSize = cd.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLength = cd.getShort(pos + 28) & 0xFFFF;
+            int extraLength = cd.getShort(pos + 30) & 0xFFFF;
+            int commentLength = cd.getShort(pos + 32) & 0xFFFF;
+            int externalAttributes = cd.getInt(pos + 38);
+            long localHeaderOffset = cd.getInt(pos + 42) & 0xFFFFFFFFL;
+
+            byte[] name = new byte[nameLength];
+            cd.position(pos + 46);
+            cd.get(name);
+
+            int extra = pos + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int tag = cd.getShort(extra) & 0xFFFF;
+                int length = cd.getShort(extra + 2) & 0xFFFF;
+                if (tag == 0x0001) {
+                    int field = extra + 4;
+                    if (uncompressedSize == 0xFFFFFFFFL) {
+                        uncompressedSize = cd.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == 0xFFFFFFFFL) {
+                        compressedSize = cd.getLong(field);
+                        field += 8;
+                    }
+                    if (localHeaderOffset == 0xFFFFFFFFL) {
+                        localHeaderOffset = cd.getLong(field);
+                    }
+                }
+                extra += 4 + length;
+            }
+
+            entries.add(new Entry(new String(name, StandardCharsets.UTF_8), flags, method, dosTime, crc,
+                    compressedSize, uncompressedSize, externalAttributes, localHeaderOffset));
+
+            pos = extraEnd + commentLength;
+        }
+
+        return Collections.unmodifiableList(entries);
+    }
+
+    private static byte[] readContent(Entry entry, FileChannel channel) throws IOException {
+        try (InputStream in = entry.openStream(channel)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(entry.getSize(), 1 << 16));
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ZipException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * A single entry of the central directory
+     */
+    public static final class Entry {
+
+        private final String name;
+        private final int flags;
+        private final int method;
+        private final int dosTime;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final int externalAttributes;
+        private final long localHeaderOffset;
+
+        Entry(String name, int flags, int method, int dosTime, long crc, long compressedSize, long size,
+              int externalAttributes, long localHeaderOffset) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.externalAttributes = externalAttributes;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getFlags() {
+            return flags;
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        public int getDosTime() {
+            return dosTime;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public int getExternalAttributes() {
+            return externalAttributes;
+        }
+
+        public long getLocalHeaderOffset() {
+            return localHeaderOffset;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        /**
+         * @return true if the compressed data of this entry can be copied as is, i.e. it is not encrypted and it
+         * uses a compression method every jar reader understands
+         */
+        public boolean canCopyRaw() {
+            return (flags & 1) == 0 && (method == STORED || method == DEFLATED);
+        }
+
+        /**
+         * Computes the position of the entry data from the entry's local header, the local header can carry
+         * a different extra field than the central directory
+         *
+         * @param channel - the {@link FileChannel} of the jar this entry belongs to
+         * @return the position of the first byte of the entry data
+         * @throws IOException - any error while reading the local header
+         */
+        public long dataOffset(FileChannel channel) throws IOException {
+            ByteBuffer header = readFully(channel, localHeaderOffset, LOCAL_HEADER_SIZE);
+            if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid local header for entry " + name);
+            }
+            int nameLength = header.getShort(26) & 0xFFFF;
+            int extraLength = header.getShort(28) & 0xFFFF;
+            return localHeaderOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+        }
+
+        /**
+         * Opens the uncompressed content of the entry
+         *
+         * @param channel - the {@link FileChannel} of the jar this entry belongs to
+         * @return the {@link InputStream} of the uncompressed content
+         * @throws IOException - any error while reading the entry
+         */
+        public InputStream openStream(FileChannel channel) throws IOException {
+            if (!canCopyRaw()) {
+                throw new ZipException("Unsupported compression method " + method + " for entry " + name);
+            }
+            InputStream raw = new BoundedInputStream(channel, dataOffset(channel), compressedSize);
+            if (method == STORED) {
+                return raw;
+            }
+            Inflater inflater = new Inflater(true);
+            return new InflaterInputStream(raw, inflater, 8192) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    if (!closed) {
+                        closed = true;
+                        inflater.end();
+                    }
+                    super.close();
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Reads a region of a {@link FileChannel} with positional reads, so that several streams can share the same
+     * channel
+     */
+    private static final class BoundedInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        BoundedInputStream(FileChannel channel, long position, long length) {
+            this.channel = channel;
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                // the inflater may ask for one byte more than the compressed data
+                return remaining-- == 0 ? fakeTrailingByte(b, off) : -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+            if (read < 0) {
+                return -1;
+            }
+            position += read;
+            remaining -= read;
+            return read;
+        }
+
+        private int fakeTrailingByte(byte[] b, int off) {
+            b[off] = 0;
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent cache of {@link JarIndex}, shared by all the builds of the machine. Dependency jars rarely change,
+ * so their entry table, META-INF/services files and manifest are kept in a compact binary file and the jar does not
+ * have to be opened again by the next builds.
+ * <p>
+ * An index is looked up by the absolute path of the jar and is only used when the size and last modified time stored
+ * with it still match the jar, a jar that is touched gets its index replaced. The cache files are written to a temporary file and then moved, so concurrent builds never read a
+ * partially written index
+ */
+public class JarIndexCache {
+
+    private static final int MAGIC = 0x564D5049;
+
+    private static final int VERSION = 1;
+
+    private static final String SUFFIX = ".idx";
+
+    private final File directory;
+
+    private Log log = new SystemStreamLog();
+
+    public JarIndexCache(File directory) {
+        this.directory = directory;
+    }
+
+    public JarIndexCache withLog(Log log) {
+        this.log = log;
+        return this;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the index of the jar from the cache, the jar is indexed and its index stored in the cache when it is
+     * not there yet. Failing to use the cache is never an error, the jar is then indexed directly
+     *
+     * @param jar - the jar {@link File}
+     * @return the {@link JarIndex} of the jar
+     * @throws IOException - any error while indexing the jar
+     */
+    public JarIndex read(File jar) throws IOException {
+        File file = jar.getAbsoluteFile();
+        long size = file.length();
+        long lastModified = file.lastModified();
+        File cached = cacheFile(file);
+
+        if (cached.isFile()) {
+            try {
+                JarIndex index = load(cached, jar, size, lastModified);
+                if (index != null) {
+                    return index;
+                }
+            } catch (IOException e) {
+                log.debug("Ignoring the invalid cached index " + cached, e);
+            }
+        }
+
+        JarIndex index = JarIndex.read(jar);
+        // the jar may have been written while it was indexed
+        if (file.length() == size && file.lastModified() == lastModified) {
+            store(cached, file, size, lastModified, index);
+        }
+        return index;
+    }
+
+    private File cacheFile(File file) {
+        String key = sha256(file.getPath());
+        return new File(new File(directory, key.substring(0, 2)), key + SUFFIX);
+    }
+
+    private static JarIndex load(File cached, File jar, long size, long lastModified) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cached)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            if (!jar.getAbsolutePath().equals(in.readUTF()) || in.readLong() != size
+                    || in.readLong() != lastModified) {
+                return null;
+            }
+
+            int entryCount = in.readInt();
+            List<JarIndex.Entry> entries = new ArrayList<>(entryCount);
+            for (int i = 0; i < entryCount; i++) {
+                entries.add(new JarIndex.Entry(in.readUTF(), in.readUnsignedShort(), in.readUnsignedShort(),
+                        in.readInt(), in.readInt() & 0xFFFFFFFFL, in.readLong(), in.readLong(), in.readInt(),
+                        in.readLong()));
+            }
+
+            int serviceCount = in.readInt();
+            Map<String, byte[]> services = new LinkedHashMap<>();
+            for (int i = 0; i < serviceCount; i++) {
+                services.put(in.readUTF(), readBytes(in));
+            }
+
+            byte[] manifest = in.readBoolean() ? readBytes(in) : null;
+
+            return new JarIndex(jar, Collections.unmodifiableList(entries), Collections.unmodifiableMap(services),
+                    manifest);
+        }
+    }
+
+    private void store(File cached, File jar, long size, long lastModified, JarIndex index) {
+        File parent = cached.getParentFile();
+        File temp = null;
+        try {
+            Files.createDirectories(parent.toPath());
+            temp = File.createTempFile(cached.getName(), ".tmp", parent);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(jar.getPath());
+                out.writeLong(size);
+                out.writeLong(lastModified);
+
+                out.writeInt(index.getEntries().size());
+                for (JarIndex.Entry entry : index.getEntries()) {
+                    out.writeUTF(entry.getName());
+                    out.writeShort(entry.getFlags());
+                    out.writeShort(entry.getMethod());
+                    out.writeInt(entry.getDosTime());
+                    out.writeInt((int) entry.getCrc());
+                    out.writeLong(entry.getCompressedSize());
+                    out.writeLong(entry.getSize());
+                    out.writeInt(entry.getExternalAttributes());
+                    out.writeLong(entry.getLocalHeaderOffset());
+                }
+
+                out.writeInt(index.getServices().size());
+                for (Map.Entry<String, byte[]> service : index.getServices().entrySet()) {
+                    out.writeUTF(service.getKey());
+                    writeBytes(out, service.getValue());
+                }
+
+                out.writeBoolean(index.getManifest() != null);
+                if (index.getManifest() != null) {
+                    writeBytes(out, index.getManifest());
+                }
+            }
+            try {
+                Files.move(temp.toPath(), cached.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), cached.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.debug("Unable to cache the index of " + jar, e);
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return String.format("%064x", new BigInteger(1, digest.digest(value.getBytes(StandardCharsets.UTF_8))));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import org.codehaus.plexus.util.SelectorUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipException;
+
+/**
+ * Computes the classes of the fat jar reachable from a set of root classes, e.g. the Main-Class and the
+ * Main-Verticle. The references of a class are read from the names and descriptors of its constant pool, which
+ * includes the class names used as string constants, e.g. in Class.forName("...").
+ * <p>
+ * The graph is walked level by level, the classes of a level are read in parallel and the next level is built in a
+ * fixed order, so that the result and the recorded reasons do not depend on the number of threads
+ */
+class JarMinimizer {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final Set<String> classes;
+
+    private final FatJarBuilder.IOFunction<String, byte[]> reader;
+
+    private final ClassRelocator relocator;
+
+    /**
+     * @param classes   - the internal names of the classes of the fat jar, e.g. io/vertx/core/Launcher
+     * @param reader    - reads the class file of a class, as found in its source jar
+     * @param relocator - the {@link ClassRelocator} applied to the class files, null when nothing is relocated
+     */
+    JarMinimizer(Set<String> classes, FatJarBuilder.IOFunction<String, byte[]> reader, ClassRelocator relocator) {
+        this.classes = classes;
+        this.reader = reader;
+        this.relocator = relocator;
+    }
+
+    /**
+     * @param name - a jar entry name
+     * @return the internal class name of the entry, null if the entry is not a class that can be removed
+     */
+    static String className(String name) {
+        if (!name.endsWith(CLASS_SUFFIX) || name.startsWith("META-INF/") || name.endsWith("module-info.class")
+                || name.endsWith("package-info.class")) {
+            return null;
+        }
+        return name.substring(0, name.length() - CLASS_SUFFIX.length());
+    }
+
+    /**
+     * Keeps the classes matching one of the include patterns, e.g. io.netty.** or io/netty/**
+     *
+     * @param includes - the include patterns
+     * @param reasons  - the reasons of the kept classes, updated with the included classes
+     */
+    void include(Collection<String> includes, Map<String, String> reasons) {
+        for (String include : includes) {
+            String pattern = include.trim().replace('.', '/');
+            for (String className : classes) {
+                if (!reasons.containsKey(className) && SelectorUtils.matchPath(pattern, className, "/", true)) {
+                    reasons.put(className, "included by " + include.trim());
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks the class graph from the given roots
+     *
+     * @param roots - the root classes and the reason they are kept, the roots that are not classes of the fat jar
+     *              are ignored
+     * @param pool  - the pool used to read the classes, null to read them on the calling thread
+     * @return the reachable classes and why they are kept, sorted by class name
+     * @throws IOException - any error while reading a class
+     */
+    Map<String, String> reachable(Map<String, String> roots, ForkJoinPool pool) throws IOException {
+        Map<String, String> reasons = new TreeMap<>();
+        List<String> level = new ArrayList<>();
+        for (Map.Entry<String, String> root : new TreeMap<>(roots).entrySet()) {
+            if (classes.contains(root.getKey())) {
+                reasons.put(root.getKey(), root.getValue());
+                level.add(root.getKey());
+            }
+        }
+
+        while (!level.isEmpty()) {
+            List<Set<String>> references = FatJarBuilder.inParallel(pool, level,
+                    className -> references(reader.apply(className), relocator));
+            List<String> next = new ArrayList<>();
+            for (int i = 0; i < level.size(); i++) {
+                for (String reference : references.get(i)) {
+                    if (classes.contains(reference) && !reasons.containsKey(reference)) {
+                        reasons.put(reference, "referenced by " + level.get(i).replace('/', '.'));
+                        next.add(reference);
+                    }
+                }
+            }
+            level = next;
+        }
+        return reasons;
+    }
+
+    /**
+     * Reads the class names referenced by the constant pool of a class file, the names are relocated like the
+     * class file will be
+     *
+     * @param relocator - the {@link ClassRelocator} applied to the class file, null when nothing is relocated
+     */
+    static Set<String> references(byte[] classFile, ClassRelocator relocator) throws IOException {
+        Set<String> references = new TreeSet<>();
+        for (String constant : utf8Constants(classFile)) {
+            addReference(references, constant, relocator);
+            addReference(references, constant.replace('.', '/'), relocator);
+            // descriptors and signatures, e.g. (Ljava/lang/String;)Lio/vertx/core/Future<Ljava/lang/Void;>;
+            int start = constant.indexOf('L');
+            while (start >= 0) {
+                int end = start + 1;
+                while (end < constant.length() && constant.charAt(end) != ';' && constant.charAt(end) != '<') {
+                    end++;
+                }
+                if (end > start + 1) {
+                    addReference(references, constant.substring(start + 1, end), relocator);
+                }
+                start = constant.indexOf('L', end);
+            }
+        }
+        return references;
+    }
+
+    private static void addReference(Set<String> references, String name, ClassRelocator relocator) {
+        if (name.isEmpty()) {
+            return;
+        }
+        String candidate = name.startsWith("[") ? name.substring(name.lastIndexOf('[') + 1) : name;
+        references.add(relocator != null ? relocator.relocatePath(candidate) : candidate);
+    }
+
+    /**
+     * Reads the UTF-8 entries of the constant pool, they hold every class name, descriptor and string constant
+     */
+    static List<String> utf8Constants(byte[] classFile) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new ZipException("Not a class file");
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        int count = in.readUnsignedShort();
+        List<String> constants = new ArrayList<>(count / 2);
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    constants.add(in.readUTF());
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    in.skipBytes(4);
+                    break;
+                case 5:
+                case 6:
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                case 7:
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    in.skipBytes(2);
+                    break;
+                case 15:
+                    in.skipBytes(3);
+                    break;
+                default:
+                    throw new ZipException("Unknown constant pool tag " + tag);
+            }
+        }
+        return constants;
+    }
+
+    /**
+     * Writes why each class was kept, one class per line
+     *
+     * @param report  - the report {@link File}
+     * @param reasons - the kept classes and why they are kept
+     * @param total   - the number of classes before minimization
+     * @throws IOException - any error while writing the report
+     */
+    static void writeReport(File report, Map<String, String> reasons, int total) throws IOException {
+        File parent = report.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8))) {
+            out.println("# kept " + reasons.size() + " of " + total + " classes");
+            for (Map.Entry<String, String> reason : new TreeMap<>(reasons).entrySet()) {
+                out.println(reason.getKey().replace('/', '.') + '\t' + reason.getValue());
+            }
+        }
+    }
+}
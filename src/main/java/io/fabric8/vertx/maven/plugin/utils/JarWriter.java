@@ -0,0 +1,454 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+import static io.fabric8.vertx.maven.plugin.utils.JarIndex.CENTRAL_HEADER_SIGNATURE;
+import static io.fabric8.vertx.maven.plugin.utils.JarIndex.DEFLATED;
+import static io.fabric8.vertx.maven.plugin.utils.JarIndex.END_SIGNATURE;
+import static io.fabric8.vertx.maven.plugin.utils.JarIndex.LOCAL_HEADER_SIGNATURE;
+import static io.fabric8.vertx.maven.plugin.utils.JarIndex.STORED;
+import static io.fabric8.vertx.maven.plugin.utils.JarIndex.ZIP64_END_SIGNATURE;
+import static io.fabric8.vertx.maven.plugin.utils.JarIndex.ZIP64_LOCATOR_SIGNATURE;
+
+/**
+ * A jar writer on top of a {@link FileChannel}. Entries can either be copied with their compressed data as is from
+ * another jar, without inflating them, or be compressed from their content
+ */
+public class JarWriter implements Closeable {
+
+    private static final int UTF8_FLAG = 0x800;
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_DEFLATED = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final List<CentralEntry> centralDirectory = new ArrayList<>();
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+    private final CRC32 crc = new CRC32();
+
+    private final byte[] readBuffer = new byte[8192];
+
+    private final byte[] deflateBuffer = new byte[8192];
+
+    private long position;
+
+    public JarWriter(File target) throws IOException {
+        this.channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Adds a directory entry
+     *
+     * @param name    - the directory name, ending with /
+     * @param dosTime - the modification time in MS-DOS format
+     * @throws IOException - any error while writing
+     */
+    public void addDirectory(String name, int dosTime) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        CentralEntry entry = new CentralEntry(nameBytes, UTF8_FLAG, STORED, dosTime, 0, 0, 0, 0, position);
+        writeLocalHeader(entry);
+        centralDirectory.add(entry);
+    }
+
+    /**
+     * Copies an entry with its compressed data, CRC and sizes as is from the source jar
+     *
+     * @param source        - the entry in the source jar
+     * @param sourceChannel - the {@link FileChannel} of the source jar
+     * @throws IOException - any error while reading the source or writing the entry
+     */
+    public void copyRaw(JarIndex.Entry source, FileChannel sourceChannel) throws IOException {
+        copyRaw(source.getName(), source, sourceChannel);
+    }
+
+    /**
+     * Copies an entry with its compressed data, CRC and sizes as is from the source jar under another name
+     *
+     * @param name          - the name of the entry in this jar
+     * @param source        - the entry in the source jar
+     * @param sourceChannel - the {@link FileChannel} of the source jar
+     * @throws IOException - any error while reading the source or writing the entry
+     */
+    public void copyRaw(String name, JarIndex.Entry source, FileChannel sourceChannel) throws IOException {
+        if (!source.canCopyRaw()) {
+            throw new ZipException("Entry " + source.getName() + " can not be copied as is");
+        }
+        long dataOffset = source.dataOffset(sourceChannel);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        CentralEntry entry = new CentralEntry(nameBytes, UTF8_FLAG, source.getMethod(), source.getDosTime(),
+                source.getCrc(), source.getCompressedSize(), source.getSize(), source.getExternalAttributes(),
+                position);
+        writeLocalHeader(entry);
+        flush();
+        long remaining = source.getCompressedSize();
+        long sourcePosition = dataOffset;
+        while (remaining > 0) {
+            long transferred = sourceChannel.transferTo(sourcePosition, remaining, channel);
+            if (transferred <= 0) {
+                throw new ZipException("Unexpected end of entry " + source.getName());
+            }
+            sourcePosition += transferred;
+            remaining -= transferred;
+            position += transferred;
+        }
+        centralDirectory.add(entry);
+    }
+
+    /**
+     * Copies a contiguous region of local headers and entry data from another jar, the central directory entries
+     * of the region are moved to their new offsets
+     *
+     * @param sourceChannel - the {@link FileChannel} of the source jar
+     * @param start         - the offset of the first local header of the region
+     * @param end           - the offset right after the data of the last entry of the region
+     * @param entries       - the central directory entries of the region, in the order of the region
+     * @throws IOException - any error while reading the source or writing the region
+     */
+    public void copyRange(FileChannel sourceChannel, long start, long end, List<JarIndex.Entry> entries)
+            throws IOException {
+        flush();
+        long shift = position - start;
+        for (JarIndex.Entry source : entries) {
+            centralDirectory.add(new CentralEntry(source.getName().getBytes(StandardCharsets.UTF_8),
+                    source.getFlags(), source.getMethod(), source.getDosTime(), source.getCrc(),
+                    source.getCompressedSize(), source.getSize(), source.getExternalAttributes(),
+                    source.getLocalHeaderOffset() + shift));
+        }
+        long sourcePosition = start;
+        while (sourcePosition < end) {
+            long transferred = sourceChannel.transferTo(sourcePosition, end - sourcePosition, channel);
+            if (transferred <= 0) {
+                throw new ZipException("Unexpected end of jar while copying");
+            }
+            sourcePosition += transferred;
+            position += transferred;
+        }
+    }
+
+    /**
+     * Adds an entry, compressing the given content
+     *
+     * @param name    - the entry name
+     * @param dosTime - the modification time in MS-DOS format
+     * @param content - the uncompressed content
+     * @throws IOException - any error while writing
+     */
+    public void write(String name, int dosTime, byte[] content) throws IOException {
+        write(name, dosTime, new ByteArrayInputStream(content));
+    }
+
+    /**
+     * Adds an entry, compressing the content as it is read from the stream. The CRC and sizes are patched in to
+     * the local header once the content has been written, so the content is never buffered
+     *
+     * @param name    - the entry name
+     * @param dosTime - the modification time in MS-DOS format
+     * @param in      - the uncompressed content
+     * @throws IOException - any error while reading the content or writing the entry
+     */
+    public void write(String name, int dosTime, InputStream in) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        long headerOffset = position;
+        CentralEntry entry = new CentralEntry(nameBytes, UTF8_FLAG, DEFLATED, dosTime, 0, 0, 0, 0, headerOffset);
+        writeLocalHeader(entry);
+
+        crc.reset();
+        deflater.reset();
+        long size = 0;
+        long compressedSize = 0;
+        int read;
+        while ((read = in.read(readBuffer)) != -1) {
+            crc.update(readBuffer, 0, read);
+            size += read;
+            deflater.setInput(readBuffer, 0, read);
+            while (!deflater.needsInput()) {
+                compressedSize += deflate();
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            compressedSize += deflate();
+        }
+
+        entry.crc = crc.getValue();
+        entry.compressedSize = compressedSize;
+        entry.size = size;
+        if (compressedSize >= ZIP64_MAGIC || size >= ZIP64_MAGIC) {
+            throw new ZipException("Entry " + name + " is too large");
+        }
+
+        flush();
+        ByteBuffer patch = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        patch.putInt((int) entry.crc).putInt((int) compressedSize).putInt((int) size).flip();
+        while (patch.hasRemaining()) {
+            channel.write(patch, headerOffset + 14 + patch.position());
+        }
+        centralDirectory.add(entry);
+    }
+
+    /**
+     * Adds an entry that was compressed ahead with {@link #compress(InputStream)}, typically on another thread
+     *
+     * @param name       - the entry name
+     * @param dosTime    - the modification time in MS-DOS format
+     * @param compressed - the compressed content
+     * @throws IOException - any error while writing the entry
+     */
+    public void write(String name, int dosTime, Compressed compressed) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        CentralEntry entry = new CentralEntry(nameBytes, UTF8_FLAG, DEFLATED, dosTime, compressed.crc,
+                compressed.data.length, compressed.size, 0, position);
+        writeLocalHeader(entry);
+        put(compressed.data, 0, compressed.data.length);
+        centralDirectory.add(entry);
+    }
+
+    /**
+     * Compresses the content in memory, this method is thread safe and is used to compress entries in parallel
+     * while a single writer writes them in order
+     *
+     * @param in - the uncompressed content
+     * @return the {@link Compressed} content
+     * @throws IOException - any error while reading the content
+     */
+    public static Compressed compress(InputStream in) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            CRC32 crc = new CRC32();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] input = new byte[8192];
+            byte[] output = new byte[8192];
+            long size = 0;
+            int read;
+            while ((read = in.read(input)) != -1) {
+                crc.update(input, 0, read);
+                size += read;
+                deflater.setInput(input, 0, read);
+                while (!deflater.needsInput()) {
+                    out.write(output, 0, deflater.deflate(output));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(output, 0, deflater.deflate(output));
+            }
+            if (size >= ZIP64_MAGIC) {
+                throw new ZipException("Entry is too large");
+            }
+            return new Compressed(out.toByteArray(), crc.getValue(), size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private int deflate() throws IOException {
+        int length = deflater.deflate(deflateBuffer);
+        put(deflateBuffer, 0, length);
+        return length;
+    }
+
+    private void writeLocalHeader(CentralEntry entry) throws IOException {
+        ensureCapacity(30 + entry.name.length);
+        buffer.putInt(LOCAL_HEADER_SIGNATURE);
+        buffer.putShort((short) entry.versionNeeded());
+        buffer.putShort((short) entry.flags);
+        buffer.putShort((short) entry.method);
+        buffer.putInt(entry.dosTime);
+        buffer.putInt((int) entry.crc);
+        buffer.putInt((int) entry.compressedSize);
+        buffer.putInt((int) entry.size);
+        buffer.putShort((short) entry.name.length);
+        buffer.putShort((short) 0);
+        buffer.put(entry.name);
+        position += 30 + entry.name.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            long cdOffset = position;
+            for (CentralEntry entry : centralDirectory) {
+                boolean zip64 = entry.offset >= ZIP64_MAGIC;
+                ensureCapacity(46 + entry.name.length + 12);
+                buffer.putInt(CENTRAL_HEADER_SIGNATURE);
+                buffer.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFLATED));
+                buffer.putShort((short) (zip64 ? VERSION_ZIP64 : entry.versionNeeded()));
+                buffer.putShort((short) entry.flags);
+                buffer.putShort((short) entry.method);
+                buffer.putInt(entry.dosTime);
+                buffer.putInt((int) entry.crc);
+                buffer.putInt((int) entry.compressedSize);
+                buffer.putInt((int) entry.size);
+                buffer.putShort((short) entry.name.length);
+                buffer.putShort((short) (zip64 ? 12 : 0));
+                buffer.putShort((short) 0);
+                buffer.putShort((short) 0);
+                buffer.putShort((short) 0);
+                buffer.putInt(entry.externalAttributes);
+                buffer.putInt((int) (zip64 ? ZIP64_MAGIC : entry.offset));
+                buffer.put(entry.name);
+                position += 46 + entry.name.length;
+                if (zip64) {
+                    buffer.putShort((short) 0x0001);
+                    buffer.putShort((short) 8);
+                    buffer.putLong(entry.offset);
+                    position += 12;
+                }
+            }
+            long cdSize = position - cdOffset;
+            long total = centralDirectory.size();
+
+            boolean zip64 = total >= 0xFFFF || cdOffset >= ZIP64_MAGIC || cdSize >= ZIP64_MAGIC;
+            if (zip64) {
+                long zip64EndOffset = position;
+                ensureCapacity(56 + 20);
+                buffer.putInt(ZIP64_END_SIGNATURE);
+                buffer.putLong(44);
+                buffer.putShort((short) VERSION_ZIP64);
+                buffer.putShort((short) VERSION_ZIP64);
+                buffer.putInt(0);
+                buffer.putInt(0);
+                buffer.putLong(total);
+                buffer.putLong(total);
+                buffer.putLong(cdSize);
+                buffer.putLong(cdOffset);
+                buffer.putInt(ZIP64_LOCATOR_SIGNATURE);
+                buffer.putInt(0);
+                buffer.putLong(zip64EndOffset);
+                buffer.putInt(1);
+                position += 56 + 20;
+            }
+
+            ensureCapacity(22);
+            buffer.putInt(END_SIGNATURE);
+            buffer.putShort((short) 0);
+            buffer.putShort((short) 0);
+            buffer.putShort((short) (zip64 ? 0xFFFF : total));
+            buffer.putShort((short) (zip64 ? 0xFFFF : total));
+            buffer.putInt((int) (zip64 ? ZIP64_MAGIC : cdSize));
+            buffer.putInt((int) (zip64 ? ZIP64_MAGIC : cdOffset));
+            buffer.putShort((short) 0);
+            position += 22;
+            flush();
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    private void put(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+            position += chunk;
+        }
+    }
+
+    private void ensureCapacity(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * The content of an entry compressed ahead of writing
+     */
+    public static final class Compressed {
+        private final byte[] data;
+        private final long crc;
+        private final long size;
+
+        Compressed(byte[] data, long crc, long size) {
+            this.data = data;
+            this.crc = crc;
+            this.size = size;
+        }
+    }
+
+    private static final class CentralEntry {
+        final byte[] name;
+        final int flags;
+        final int method;
+        final int dosTime;
+        final int externalAttributes;
+        final long offset;
+        long crc;
+        long compressedSize;
+        long size;
+
+        CentralEntry(byte[] name, int flags, int method, int dosTime, long crc, long compressedSize, long size,
+                     int externalAttributes, long offset) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.externalAttributes = externalAttributes;
+            this.offset = offset;
+        }
+
+        int versionNeeded() {
+            return method == DEFLATED ? VERSION_DEFLATED : VERSION_STORED;
+        }
+    }
+}
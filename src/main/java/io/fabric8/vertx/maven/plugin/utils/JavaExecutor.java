@@ -19,14 +19,28 @@ package io.fabric8.vertx.maven.plugin.utils;
 import org.apache.maven.plugin.MojoExecutionException;
 import io.fabric8.vertx.maven.plugin.functions.Executor;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
 
 /**
  * @author kameshs
@@ -34,46 +48,114 @@ import java.util.Optional;
 public abstract class JavaExecutor implements Executor<Optional<Process>> {
 
 
+    /**
+     * The prefix of the argument files and manifest only jars holding the classpath of the forked processes
+     */
+    protected static final String CLASSPATH_FILE_PREFIX = "vertx-classpath-";
+
     protected Collection<URL> classPathUrls = Collections.EMPTY_LIST;
 
     protected Path javaPath;
 
+    /**
+     * The directory where the classpath files of the forked processes are written
+     */
+    protected File classPathDirectory;
+
     public JavaExecutor() {
         this.javaPath = findJava();
     }
 
     /**
-     * This add or build the classpath that will be passed to the forked process JVM i.e &quot;-cp&quot;
+     * This add or build the classpath that will be passed to the forked process JVM i.e &quot;-cp&quot;. The classpath
+     * is not passed on the command line, it is written to an argument file on Java 9 and later, or to the Class-Path
+     * of a manifest only jar before. The file is named after the hash of the classpath, so the forks with the same
+     * classpath share it. Only the given classpath is used, the classpath of the Maven JVM is not inherited. Nothing
+     * is added when the classpath is empty, e.g. for a fat jar started with -jar
      *
      * @param argsList - the forked process argument list to which the classpath will be appended
      * @throws MojoExecutionException - any error that might occur while building or adding classpath
      */
     protected void addClasspath(List<String> argsList) throws MojoExecutionException {
+        if (classPathUrls == null || classPathUrls.isEmpty()) {
+            return;
+        }
         try {
 
-            StringBuilder classpath = new StringBuilder();
-
+            List<File> files = new ArrayList<>();
             for (URL ele : this.classPathUrls) {
-                classpath = classpath
-                        .append((classpath.length() > 0 ? File.pathSeparator : "")
-                                + new File(ele.toURI()));
+                files.add(new File(ele.toURI()));
             }
 
-            String oldClasspath = System.getProperty("java.class.path");
-
-            if (oldClasspath != null) {
-                classpath.append(File.pathSeparator);
-                classpath.append(oldClasspath);
+            String classpath = files.stream().map(File::toString).collect(Collectors.joining(File.pathSeparator));
+
+            File directory = classPathDirectory != null ? classPathDirectory
+                    : new File(System.getProperty("java.io.tmpdir"));
+
+            if (useArgumentFile()) {
+                File argumentFile = new File(directory, CLASSPATH_FILE_PREFIX + sha256(classpath) + ".args");
+                if (!argumentFile.isFile()) {
+                    writeAtomically(argumentFile, ("-cp\n\"" + classpath.replace("\\", "\\\\").replace("\"", "\\\"")
+                            + "\"\n").getBytes(StandardCharsets.UTF_8));
+                }
+                argsList.add(0, "@" + argumentFile.getAbsolutePath());
+            } else {
+                String manifestClassPath = files.stream()
+                        .map(file -> file.toURI().toString())
+                        .collect(Collectors.joining(" "));
+                File pathingJar = new File(directory, CLASSPATH_FILE_PREFIX + sha256(manifestClassPath) + ".jar");
+                if (!pathingJar.isFile()) {
+                    Manifest manifest = new Manifest();
+                    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+                    manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, manifestClassPath);
+                    ByteArrayOutputStream jar = new ByteArrayOutputStream();
+                    new JarOutputStream(jar, manifest).close();
+                    writeAtomically(pathingJar, jar.toByteArray());
+                }
+                argsList.add(0, "-cp");
+                argsList.add(1, pathingJar.getAbsolutePath());
             }
 
-            argsList.add(0, "-cp");
-            argsList.add(1, classpath.toString());
-
         } catch (Exception ex) {
             throw new MojoExecutionException("Could not build classpath", ex);
         }
     }
 
+    /**
+     * @return true if the forked JVM reads its arguments from @argfiles, i.e. it is Java 9 or later
+     */
+    protected boolean useArgumentFile() {
+        String version = System.getProperty("java.specification.version", "1.8");
+        return !version.startsWith("1.");
+    }
+
+    /**
+     * Writes the file through a temporary file, so that a concurrent fork never reads a partially written file
+     */
+    private static void writeAtomically(File file, byte[] content) throws IOException {
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            Files.write(temp.toPath(), content);
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            temp.delete();
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return String.format("%064x", new BigInteger(1, digest.digest(value.getBytes(StandardCharsets.UTF_8))));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     /**
      * An utility to find the Java Executable from the host
      *
@@ -16,6 +16,7 @@
 
 package io.fabric8.vertx.maven.plugin.utils;
 
+import io.fabric8.vertx.maven.plugin.model.OutputPolicy;
 import org.apache.maven.plugin.logging.Log;
 import org.codehaus.plexus.util.cli.Arg;
 import org.codehaus.plexus.util.cli.Commandline;
@@ -26,12 +27,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author kameshs
  */
 public class JavaProcessExecutor extends JavaExecutor {
 
+    private static final long TAIL_INTERVAL = 100;
+
     protected List<String> argsList = new ArrayList<>();
 
     protected Log logger;
@@ -40,6 +44,18 @@ public class JavaProcessExecutor extends JavaExecutor {
 
     protected File workingDirectory;
 
+    protected StreamToLogConsumer outputListener;
+
+    protected OutputPolicy outputPolicy = OutputPolicy.block;
+
+    protected int outputBufferSize = 8192;
+
+    /**
+     * When set the output of the process is appended to this file by the operating system, instead of being logged.
+     * The output listener is then given the lines appended to the file
+     */
+    protected File outputFile;
+
     @Override
     public Optional<Process> execute() throws Exception {
 
@@ -52,11 +68,39 @@ public class JavaProcessExecutor extends JavaExecutor {
                 logger.debug("Executing command :" + commandLine);
             }
 
-            process = commandLine.execute();
-
-            if (waitFor) {
-                redirectOutput(process, logger);
-                process.waitFor();
+            if (outputFile != null) {
+                File parent = outputFile.getAbsoluteFile().getParentFile();
+                if (parent != null) {
+                    parent.mkdirs();
+                }
+                logger.info("The application output is written to " + outputFile);
+                // started without a shell, so the arguments are passed as they are
+                List<String> command = new ArrayList<>();
+                command.add(javaPath.toString());
+                argsList.stream().map(JavaProcessExecutor::unquote).forEach(command::add);
+                FileTail tail = waitFor && outputListener != null ? new FileTail(outputFile) : null;
+                process = new ProcessBuilder(command)
+                        .directory(workingDirectory)
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.appendTo(outputFile))
+                        .start();
+                if (waitFor) {
+                    Thread tailer = tail != null ? tail(tail, process) : null;
+                    process.waitFor();
+                    if (tailer != null) {
+                        tailer.join();
+                    }
+                }
+            } else {
+                process = commandLine.execute();
+
+                if (waitFor) {
+                    OutputPump pump = new OutputPump(logger, outputBufferSize, outputPolicy)
+                            .withListener(outputListener)
+                            .start(process);
+                    process.waitFor();
+                    pump.awaitCompletion();
+                }
             }
 
             return Optional.of(process);
@@ -66,6 +110,41 @@ public class JavaProcessExecutor extends JavaExecutor {
         }
     }
 
+    /**
+     * Passes the lines appended to the output file to the output listener until the process exits
+     */
+    private Thread tail(FileTail tail, Process process) {
+        Thread thread = new Thread(() -> {
+            try {
+                boolean alive;
+                do {
+                    alive = process.isAlive();
+                    tail.read().forEach(outputListener::consumeLine);
+                    if (alive) {
+                        TimeUnit.MILLISECONDS.sleep(TAIL_INTERVAL);
+                    }
+                } while (alive);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "vertx-output-tail");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * @return the argument without the quotes of its value, e.g. --java-opts=-Xmx1g -Xss1m for
+     * --java-opts="-Xmx1g -Xss1m", as the shell running the command line would have passed it
+     */
+    static String unquote(String arg) {
+        int value = arg.indexOf("=\"");
+        if (arg.startsWith("-") && value > 0 && arg.length() > value + 2 && arg.endsWith("\"")) {
+            return arg.substring(0, value + 1) + arg.substring(value + 2, arg.length() - 1);
+        }
+        return arg;
+    }
+
     @Override
     public Commandline buildCommandLine() throws Exception {
         Commandline cli = new Commandline();
@@ -111,11 +190,36 @@ public class JavaProcessExecutor extends JavaExecutor {
         return this;
     }
 
+    public JavaProcessExecutor withClassPathDirectory(File classPathDirectory) {
+        this.classPathDirectory = classPathDirectory;
+        return this;
+    }
+
     public JavaProcessExecutor withWorkingDirectory(File workingDirectory) {
         this.workingDirectory = workingDirectory;
         return this;
     }
 
+    public JavaProcessExecutor withOutputListener(StreamToLogConsumer outputListener) {
+        this.outputListener = outputListener;
+        return this;
+    }
+
+    public JavaProcessExecutor withOutputPolicy(OutputPolicy outputPolicy) {
+        this.outputPolicy = outputPolicy;
+        return this;
+    }
+
+    public JavaProcessExecutor withOutputBufferSize(int outputBufferSize) {
+        this.outputBufferSize = outputBufferSize;
+        return this;
+    }
+
+    public JavaProcessExecutor withOutputFile(File outputFile) {
+        this.outputFile = outputFile;
+        return this;
+    }
+
     public JavaProcessExecutor withWaitFor(boolean waitFor) {
         this.waitFor = waitFor;
         return this;
@@ -29,6 +29,7 @@ import org.codehaus.plexus.util.xml.Xpp3Dom;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
@@ -231,6 +232,79 @@ public class MojoUtils {
         }
     }
 
+    /**
+     * Reads the javac options of the maven-compiler-plugin configuration, falling back to the maven.compiler.*
+     * properties of the project
+     *
+     * @param project - the project whose compiler configuration needs to be read
+     * @return the javac options, without the paths and the encoding
+     */
+    public List<String> compilerOptions(MavenProject project) {
+        Xpp3Dom configuration = buildConfiguration(project, A_MAVEN_COMPILER_PLUGIN, GOAL_COMPILE).orElse(null);
+        List<String> options = new ArrayList<>();
+        String release = compilerOption(project, configuration, "release", "maven.compiler.release");
+        if (release != null) {
+            options.add("--release");
+            options.add(release);
+        } else {
+            String source = compilerOption(project, configuration, "source", "maven.compiler.source");
+            String target = compilerOption(project, configuration, "target", "maven.compiler.target");
+            if (source != null) {
+                options.add("-source");
+                options.add(source);
+            }
+            if (target != null) {
+                options.add("-target");
+                options.add(target);
+            }
+        }
+        if (Boolean.parseBoolean(compilerOption(project, configuration, "parameters", "maven.compiler.parameters"))) {
+            options.add("-parameters");
+        }
+        if (!"false".equals(compilerOption(project, configuration, "debug", "maven.compiler.debug"))) {
+            options.add("-g");
+        }
+        Xpp3Dom compilerArgs = configuration != null ? configuration.getChild("compilerArgs") : null;
+        if (compilerArgs != null) {
+            for (Xpp3Dom arg : compilerArgs.getChildren()) {
+                String value = interpolate(project, arg.getValue());
+                if (value != null) {
+                    options.add(value);
+                }
+            }
+        }
+        return options;
+    }
+
+    /**
+     * @param project - the project whose compiler configuration needs to be read
+     * @return the encoding of the sources, null if none is configured
+     */
+    public String compilerEncoding(MavenProject project) {
+        return compilerOption(project, buildConfiguration(project, A_MAVEN_COMPILER_PLUGIN, GOAL_COMPILE)
+                .orElse(null), "encoding", "project.build.sourceEncoding");
+    }
+
+    private String compilerOption(MavenProject project, Xpp3Dom configuration, String name, String property) {
+        Xpp3Dom option = configuration != null ? configuration.getChild(name) : null;
+        String value = option != null ? interpolate(project, option.getValue()) : null;
+        if (value == null) {
+            value = project.getProperties().getProperty(property);
+        }
+        return value != null && !value.trim().isEmpty() ? value.trim() : null;
+    }
+
+    /**
+     * Replaces a ${property} value with the project property, the configuration read from the model is not
+     * interpolated
+     */
+    private String interpolate(MavenProject project, String value) {
+        if (value != null && value.startsWith("${") && value.endsWith("}")) {
+            return project.getProperties().getProperty(value.substring(2, value.length() - 1));
+        }
+        return value;
+    }
+
     /**
      * @param project
      * @param artifactId
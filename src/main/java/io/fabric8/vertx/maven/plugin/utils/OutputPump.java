@@ -0,0 +1,189 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import io.fabric8.vertx.maven.plugin.model.OutputPolicy;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Forwards the output of a forked process to the Maven log without letting the log slow down the process. The
+ * standard output and error are read by two threads, which only split the lines and put them in a bounded buffer,
+ * a third thread drains the buffer in batches and logs each batch as one message, so the cost of the Maven log is paid
+ * once per batch rather than once per line. When the buffer is full the readers either wait,
+ * so the process blocks on its next write, or drop the line, as told by the {@link OutputPolicy}
+ */
+public class OutputPump {
+
+    /**
+     * put once the readers are done, compared by identity
+     */
+    private static final String END = new String("end of output");
+
+    private static final int BATCH_SIZE = 1024;
+
+    private final Log logger;
+
+    private final BlockingQueue<String> buffer;
+
+    private final OutputPolicy policy;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private StreamToLogConsumer listener;
+
+    private final List<Thread> readers = new ArrayList<>();
+
+    private Thread writer;
+
+    /**
+     * @param logger   - the log the lines are written to
+     * @param capacity - the number of lines the buffer holds
+     * @param policy   - what happens to the lines when the buffer is full
+     */
+    public OutputPump(Log logger, int capacity, OutputPolicy policy) {
+        this.logger = logger;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.policy = policy;
+    }
+
+    /**
+     * @param listener - called with each line logged, from the thread logging the lines
+     * @return this pump
+     */
+    public OutputPump withListener(StreamToLogConsumer listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Starts forwarding the standard output and error of the process
+     *
+     * @param process - the forked process
+     * @return this pump
+     */
+    public OutputPump start(Process process) {
+        readers.add(reader(process.getInputStream(), "vertx-output-reader"));
+        readers.add(reader(process.getErrorStream(), "vertx-error-reader"));
+        writer = new Thread(this::write, "vertx-output-writer");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY + 1);
+        readers.forEach(Thread::start);
+        writer.start();
+        return this;
+    }
+
+    /**
+     * Waits until the output of the process is read and logged, i.e. once the process exited
+     *
+     * @throws InterruptedException - if interrupted while waiting
+     */
+    public void awaitCompletion() throws InterruptedException {
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (writer != null) {
+            buffer.put(END);
+            writer.join();
+        }
+    }
+
+    /**
+     * @return the number of lines dropped so far
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private Thread reader(InputStream stream, String name) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream), 65536)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (policy == OutputPolicy.drop) {
+                        if (!buffer.offer(line)) {
+                            dropped.incrementAndGet();
+                        }
+                    } else {
+                        buffer.put(line);
+                    }
+                }
+            } catch (IOException e) {
+                // the process is gone
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void write() {
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        StringBuilder message = new StringBuilder();
+        long reported = 0;
+        try {
+            while (true) {
+                batch.add(buffer.take());
+                buffer.drainTo(batch, BATCH_SIZE - 1);
+                boolean end = false;
+                for (String line : batch) {
+                    if (line == END) {
+                        end = true;
+                        break;
+                    }
+                    if (message.length() > 0) {
+                        message.append('\n');
+                    }
+                    message.append(line);
+                    if (listener != null) {
+                        listener.consumeLine(line);
+                    }
+                }
+                if (message.length() > 0) {
+                    logger.info(message.toString());
+                    message.setLength(0);
+                }
+                batch.clear();
+                reported = reportDropped(reported);
+                if (end) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long reportDropped(long reported) {
+        long total = dropped.get();
+        if (total > reported) {
+            logger.warn((total - reported) + " line(s) of the application output were dropped, the Maven log"
+                    + " could not keep up with the application");
+        }
+        return total;
+    }
+}
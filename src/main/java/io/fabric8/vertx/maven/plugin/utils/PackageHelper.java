@@ -17,36 +17,26 @@
 package io.fabric8.vertx.maven.plugin.utils;
 
 
+import io.fabric8.vertx.maven.plugin.functions.ResourceTransformer;
+import io.fabric8.vertx.maven.plugin.model.Relocator;
 import io.fabric8.vertx.maven.plugin.model.RelocatorMode;
 import io.fabric8.vertx.maven.plugin.mojos.AbstractVertxMojo;
-import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
-import org.jboss.shrinkwrap.api.ArchivePath;
-import org.jboss.shrinkwrap.api.ShrinkWrap;
-import org.jboss.shrinkwrap.api.asset.Asset;
-import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
-import org.jboss.shrinkwrap.api.exporter.ZipExporter;
-import org.jboss.shrinkwrap.api.importer.ZipImporter;
-import org.jboss.shrinkwrap.api.spec.JavaArchive;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.jar.Attributes;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class PackageHelper {
 
-    private final JavaArchive archive;
+    private final FatJarBuilder fatJarBuilder;
     private final Attributes.Name MAIN_VERTICLE = new Attributes.Name("Main-Verticle");
     private String mainVerticle;
     private String mainClass;
@@ -55,7 +45,7 @@ public class PackageHelper {
     private Log log;
 
     public PackageHelper(String mainClass, String mainVerticle) {
-        this.archive = ShrinkWrap.create(JavaArchive.class);
+        this.fatJarBuilder = new FatJarBuilder();
         this.mainClass = mainClass;
         this.mainVerticle = mainVerticle;
     }
@@ -86,8 +76,8 @@ public class PackageHelper {
     /**
      * @param primaryArtifactFile
      */
-    private synchronized void build(File primaryArtifactFile) {
-        this.archive.as(ZipImporter.class).importFrom(primaryArtifactFile);
+    private void build(File primaryArtifactFile) {
+        this.fatJarBuilder.addSource(primaryArtifactFile);
         addDependencies();
         generateManifest();
     }
@@ -104,7 +94,7 @@ public class PackageHelper {
                     if (log.isDebugEnabled()) {
                         log.debug("Adding Dependency :" + f.toString());
                     }
-                    this.archive.as(ZipImporter.class).importFrom(f);
+                    this.fatJarBuilder.addSource(f);
                 });
 
         transitiveDeps.stream()
@@ -114,7 +104,7 @@ public class PackageHelper {
                     if (log.isDebugEnabled()) {
                         log.debug("Adding Dependency :" + f.toString());
                     }
-                    this.archive.as(ZipImporter.class).importFrom(f);
+                    this.fatJarBuilder.addSource(f);
                 });
 
     }
@@ -138,7 +128,7 @@ public class PackageHelper {
             bout.close();
             byte[] bytes = bout.toByteArray();
             //TODO: merge existing manifest with current one
-            this.archive.setManifest(new ByteArrayAsset(bytes));
+            this.fatJarBuilder.addGeneratedEntry(JarFile.MANIFEST_NAME, bytes);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -149,141 +139,126 @@ public class PackageHelper {
      * @param baseName
      * @param dir
      * @return
+     * @throws IOException - any error while building the fat jar, a failed incremental rebuild must fail the build
+     * rather than leave the previous fat jar in place
      */
-    private synchronized File createFatJar(String baseName, Path dir) {
+    private File createFatJar(String baseName, Path dir) throws IOException {
 
-        File jarFile = null;
+        File jarFile = new File(dir.toFile(), baseName + "-fat.jar");
 
-        try {
-
-            jarFile = new File(dir.toFile(), baseName + "-fat.jar");
-
-            if (!jarFile.getParentFile().exists() && !jarFile.getParentFile().mkdirs()) {
-                log.error("Failed to create parent directories for :" + jarFile.getAbsolutePath());
-            }
-
-            ZipExporter zipExporter = this.archive.as(ZipExporter.class);
-
-            try (FileOutputStream jarOut = new FileOutputStream(jarFile)) {
-                zipExporter.exportTo(jarOut);
-            }
-        } catch (Exception e) {
-            log.error("Error building fat jar ", e);
+        if (!jarFile.getParentFile().exists() && !jarFile.getParentFile().mkdirs()) {
+            throw new IOException("Failed to create parent directories for :" + jarFile.getAbsolutePath());
         }
 
-        return jarFile;
+        return this.fatJarBuilder.withLog(log).build(jarFile);
     }
 
     /**
-     * This method will perform the relocation of the services by combining contents of same spi across the
-     * dependencies
-     *
-     * @param sourceJarFile    - the source jar {@link File}, typically the primary artifact of the project
-     * @param serviceRelocator - the {@link RelocatorMode} to perform SPI merge, currently only {@link RelocatorMode#combine}
-     *                         is supported
-     * @param backupDir        - the {@link File} path that can be used to perform backups
-     * @param targetJarFile    - the vertx fat jar file where the spi files will be updated - typically remove and add
-     * @throws MojoExecutionException - any error that might occur while doing relocation
+     * @param compileAndRuntimeDeps
+     * @return
      */
-    public void relocateServiceInterfaces(File sourceJarFile,
-                                          RelocatorMode serviceRelocator,
-                                          Path backupDir, File targetJarFile) throws MojoExecutionException {
 
-        try {
+    public PackageHelper compileAndRuntimeDeps(Set<Optional<File>> compileAndRuntimeDeps) {
 
-            Path originalFile = FileUtils.copy(sourceJarFile, backupDir.toFile());
-
-            Path vertxJarOriginalFile = FileUtils.backup(targetJarFile, backupDir.toFile());
-
-            JavaArchive sourceJar = ShrinkWrap.createFromZipFile(JavaArchive.class, originalFile.toFile());
-            JavaArchive targetJar = ShrinkWrap.createFromZipFile(JavaArchive.class, vertxJarOriginalFile.toFile());
-
-            if (serviceRelocator != null) {
-
-                List<JavaArchive> archives = Stream.concat(compileAndRuntimeDeps.stream(),
-                        transitiveDeps.stream())
-                        .filter(file -> file.isPresent())
-                        .map(f -> ShrinkWrap.createFromZipFile(JavaArchive.class, f.get()))
-                        .collect(Collectors.toList());
-
-                //Adds the current archive to extract services information
-                archives.add(sourceJar);
-
-                switch (serviceRelocator) {
-                    case combine: {
-                        try {
-
-                            JavaArchive serviceCombinedArchive =
-                                    new ServiceCombinerUtil().withLog(log).combine(archives);
-
-                            serviceCombinedArchive.get("/META-INF/services").getChildren().stream()
-                                    .forEach(n -> {
-                                        Asset asset = n.getAsset();
-                                        ArchivePath archivePath = n.getPath();
-                                        if (log.isDebugEnabled()) {
-                                            try {
-                                                log.debug("Asset Content: " + FileUtils.read(asset.openStream()));
-                                                log.debug("Adding asset:" + n.getPath());
-                                            } catch (IOException e) {
-                                            }
-                                        }
-                                        targetJar.delete(archivePath);
-                                        targetJar.add(asset, archivePath);
-                                    });
-
-                        } catch (Exception e) {
-                            log.error("Unable relocate ", e);
-                        }
-                        break;
-                    }
-                }
+        this.compileAndRuntimeDeps = compileAndRuntimeDeps;
 
-                //delete old vertx jar file
-                Files.deleteIfExists(Paths.get(targetJarFile.toURI()));
+        return this;
+    }
 
-                //Create new fat jar with merged SPI
-                ZipExporter zipExporter = targetJar.as(ZipExporter.class);
+    /**
+     * @param transitiveDeps
+     * @return
+     */
 
-                try (FileOutputStream jarOut = new FileOutputStream(targetJarFile)) {
-                    zipExporter.exportTo(jarOut);
-                }
+    public PackageHelper transitiveDeps(Set<Optional<File>> transitiveDeps) {
 
-                Stream.of(vertxJarOriginalFile, originalFile).forEach(p -> {
-                    try {
-                        Files.deleteIfExists(p);
-                    } catch (IOException e) {
-                        log.warn("Unable to delete backup file :" + p);
-                        //ignore it
-                    }
-                });
+        this.transitiveDeps = transitiveDeps;
 
-            }
-        } catch (IOException e) {
-            throw new MojoExecutionException("Unable to create fat jar: " + sourceJarFile, e);
-        }
+        return this;
     }
 
     /**
-     * @param compileAndRuntimeDeps
+     * @param rawCopy - whether the compressed entries of the dependencies will be copied as is in to the fat jar
      * @return
      */
+    public PackageHelper rawCopy(boolean rawCopy) {
+        this.fatJarBuilder.rawCopy(rawCopy);
+        return this;
+    }
 
-    public PackageHelper compileAndRuntimeDeps(Set<Optional<File>> compileAndRuntimeDeps) {
+    /**
+     * @param threads - the number of threads used to read the dependencies and compress the fat jar entries
+     * @return
+     */
+    public PackageHelper threads(int threads) {
+        this.fatJarBuilder.threads(threads);
+        return this;
+    }
 
-        this.compileAndRuntimeDeps = compileAndRuntimeDeps;
+    /**
+     * @param stateFile - the file used to save the state of the fat jar build for the next incremental rebuild,
+     *                  null to always build the fat jar from scratch
+     * @return
+     */
+    public PackageHelper incremental(File stateFile) {
+        this.fatJarBuilder.incremental(stateFile);
+        return this;
+    }
 
+    /**
+     * @param indexCache - the cache of the dependency indexes, null to always read the dependencies
+     * @return
+     */
+    public PackageHelper indexCache(JarIndexCache indexCache) {
+        this.fatJarBuilder.indexCache(indexCache);
         return this;
     }
 
     /**
-     * @param transitiveDeps
+     * @param serviceRelocator - how the service providers of the project and its dependencies are relocated while
+     *                         the fat jar is written, null to keep the service files of the last jar
      * @return
      */
+    public PackageHelper serviceRelocator(RelocatorMode serviceRelocator) {
+        if (serviceRelocator != null) {
+            switch (serviceRelocator) {
+                case combine:
+                    this.fatJarBuilder.combineServices(true);
+                    break;
+            }
+        }
+        return this;
+    }
 
-    public PackageHelper transitiveDeps(Set<Optional<File>> transitiveDeps) {
+    /**
+     * @param transformers - the {@link ResourceTransformer}s merging the resources of the project and its
+     *                     dependencies while the fat jar is written, can be null
+     * @return
+     */
+    public PackageHelper transformers(List<ResourceTransformer> transformers) {
+        if (transformers != null) {
+            transformers.forEach(this.fatJarBuilder::addTransformer);
+        }
+        return this;
+    }
 
-        this.transitiveDeps = transitiveDeps;
+    /**
+     * @param relocations - the {@link Relocator}s moving packages of the project and its dependencies to shaded
+     *                    packages, can be null
+     * @return
+     */
+    public PackageHelper relocations(List<Relocator> relocations) {
+        this.fatJarBuilder.relocator(new ClassRelocator(relocations));
+        return this;
+    }
 
+    /**
+     * @param includes - the patterns of the classes always kept, can be null
+     * @param report   - the file listing the kept classes and why they are kept, null to not write it
+     * @return
+     */
+    public PackageHelper minimize(List<String> includes, File report) {
+        this.fatJarBuilder.minimize(includes, report);
         return this;
     }
 
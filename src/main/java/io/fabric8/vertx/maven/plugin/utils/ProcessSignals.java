@@ -0,0 +1,234 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Finds the processes of the applications started in background and signals them directly, instead of forking a JVM
+ * running the vert.x stop command for each of them. The java.lang.ProcessHandle API is used through reflection on
+ * Java 9 and later, the ps and kill commands on Java 8
+ */
+public final class ProcessSignals {
+
+    private static final Class<?> PROCESS_HANDLE = processHandleClass();
+
+    private ProcessSignals() {
+    }
+
+    private static Class<?> processHandleClass() {
+        try {
+            return Class.forName("java.lang.ProcessHandle");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the command line of each process of the machine that can be seen, keyed by process id
+     * @throws IOException - the processes cannot be listed, e.g. on Java 8 without the ps command
+     */
+    public static Map<Long, String> commandLines() throws IOException {
+        Map<Long, String> commandLines = new HashMap<>();
+        if (PROCESS_HANDLE != null) {
+            try {
+                Method pid = PROCESS_HANDLE.getMethod("pid");
+                Method info = PROCESS_HANDLE.getMethod("info");
+                Method commandLine = Class.forName("java.lang.ProcessHandle$Info").getMethod("commandLine");
+                Iterator<?> processes = ((Stream<?>) PROCESS_HANDLE.getMethod("allProcesses").invoke(null))
+                        .iterator();
+                while (processes.hasNext()) {
+                    Object process = processes.next();
+                    ((Optional<?>) commandLine.invoke(info.invoke(process)))
+                            .ifPresent(line -> {
+                                try {
+                                    commandLines.put((Long) pid.invoke(process), (String) line);
+                                } catch (ReflectiveOperationException e) {
+                                    throw new IllegalStateException(e);
+                                }
+                            });
+                }
+                return commandLines;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new IOException("Unable to list the processes", e);
+            }
+        }
+        Process ps = new ProcessBuilder("ps", "-ax", "-o", "pid=,args=").redirectErrorStream(true).start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ps.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+", 2);
+                try {
+                    commandLines.put(Long.parseLong(fields[0]), fields.length > 1 ? fields[1] : "");
+                } catch (NumberFormatException e) {
+                    // not a process line
+                }
+            }
+        }
+        if (waitFor(ps) != 0) {
+            throw new IOException("Unable to list the processes with ps");
+        }
+        return commandLines;
+    }
+
+    /**
+     * @param commandLines - the command lines keyed by process id, see {@link #commandLines()}
+     * @param argument     - an argument of the command line, e.g. -Dvertx.id=my-app
+     * @return the id of the process whose command line has the argument
+     */
+    public static Optional<Long> findPid(Map<Long, String> commandLines, String argument) {
+        return commandLines.entrySet().stream()
+                .filter(process -> Arrays.asList(process.getValue().split("\\s+")).contains(argument))
+                .map(Map.Entry::getKey)
+                .findFirst();
+    }
+
+    /**
+     * @param pid - the process id
+     * @return true if the process is running
+     * @throws IOException - the process cannot be checked
+     */
+    public static boolean isAlive(long pid) throws IOException {
+        if (PROCESS_HANDLE != null) {
+            Optional<?> process = of(pid);
+            return process.isPresent() && (Boolean) invoke("isAlive", process.get());
+        }
+        return kill("-0", pid);
+    }
+
+    /**
+     * @param pid - the process id
+     * @return when the process started in milliseconds since the epoch, empty when it is not running or its start
+     * time cannot be known, e.g. on Java 8
+     * @throws IOException - the process cannot be checked
+     */
+    public static Optional<Long> startTime(long pid) throws IOException {
+        if (PROCESS_HANDLE == null) {
+            return Optional.empty();
+        }
+        Optional<?> process = of(pid);
+        if (!process.isPresent()) {
+            return Optional.empty();
+        }
+        try {
+            Optional<?> start = (Optional<?>) Class.forName("java.lang.ProcessHandle$Info").getMethod("startInstant")
+                    .invoke(invoke("info", process.get()));
+            return start.map(instant -> ((Instant) instant).toEpochMilli());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Unable to find the start time of the process " + pid, e);
+        }
+    }
+
+    /**
+     * Asks the process to exit, its shutdown hooks are run
+     *
+     * @param pid - the process id
+     * @return false if the process was not running
+     * @throws IOException - the process cannot be signalled
+     */
+    public static boolean terminate(long pid) throws IOException {
+        if (PROCESS_HANDLE != null) {
+            Optional<?> process = of(pid);
+            return process.isPresent() && (Boolean) invoke("destroy", process.get());
+        }
+        return kill("-TERM", pid);
+    }
+
+    /**
+     * Kills the process, its shutdown hooks are not run
+     *
+     * @param pid - the process id
+     * @return false if the process was not running
+     * @throws IOException - the process cannot be signalled
+     */
+    public static boolean kill(long pid) throws IOException {
+        if (PROCESS_HANDLE != null) {
+            Optional<?> process = of(pid);
+            return process.isPresent() && (Boolean) invoke("destroyForcibly", process.get());
+        }
+        return kill("-KILL", pid);
+    }
+
+    /**
+     * Terminates the process and waits for it to exit, it is killed when it is still running after the timeout
+     *
+     * @param pid     - the process id
+     * @param timeout - how long to wait for the process to exit in milliseconds
+     * @return false if the process had to be killed
+     * @throws IOException          - the process cannot be signalled
+     * @throws InterruptedException - the wait was interrupted
+     */
+    public static boolean stop(long pid, long timeout) throws IOException, InterruptedException {
+        if (!terminate(pid)) {
+            return true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        long delay = 10;
+        while (isAlive(pid)) {
+            if (System.nanoTime() > deadline) {
+                kill(pid);
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(delay);
+            delay = Math.min(delay * 2, 200);
+        }
+        return true;
+    }
+
+    private static Optional<?> of(long pid) throws IOException {
+        try {
+            return (Optional<?>) PROCESS_HANDLE.getMethod("of", long.class).invoke(null, pid);
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Unable to find the process " + pid, e);
+        }
+    }
+
+    private static Object invoke(String method, Object process) throws IOException {
+        try {
+            return PROCESS_HANDLE.getMethod(method).invoke(process);
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Unable to signal the process", e);
+        }
+    }
+
+    private static boolean kill(String signal, long pid) throws IOException {
+        Process kill = new ProcessBuilder("kill", signal, Long.toString(pid)).redirectErrorStream(true).start();
+        return waitFor(kill) == 0;
+    }
+
+    private static int waitFor(Process process) throws IOException {
+        try {
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + process, e);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Waits until a started application is ready: its port accepts connections, an HTTP path of it answers with a
+ * success or redirect status, or a line of its output matches a pattern. All the configured checks must pass, they
+ * are polled with an exponential backoff until the timeout
+ */
+public class ReadinessProbe {
+
+    private static final long INITIAL_DELAY = 50;
+
+    private static final long MAX_DELAY = 2000;
+
+    private static final int MAX_CHECK_TIMEOUT = 1000;
+
+    private String host = "localhost";
+
+    private int port = -1;
+
+    private String path;
+
+    private File logFile;
+
+    private FileTail logTail;
+
+    private Pattern logPattern;
+
+    private boolean logMatched;
+
+    private Log logger = new SystemStreamLog();
+
+    public ReadinessProbe withLog(Log logger) {
+        this.logger = logger;
+        return this;
+    }
+
+    /**
+     * @param host - the host the application listens on
+     * @param port - the port the application listens on
+     * @return this probe
+     */
+    public ReadinessProbe withPort(String host, int port) {
+        this.host = host;
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * @param path - the HTTP path, on the port, answering with a 2xx or 3xx status once the application is ready
+     * @return this probe
+     */
+    public ReadinessProbe withHttpPath(String path) {
+        this.path = path;
+        return this;
+    }
+
+    /**
+     * Looks for the pattern in the lines appended to the log file from now on
+     *
+     * @param logFile - the file the application output is appended to
+     * @param pattern - the pattern of the line the application logs once ready
+     * @return this probe
+     */
+    public ReadinessProbe withLogPattern(File logFile, Pattern pattern) {
+        this.logFile = logFile;
+        this.logPattern = pattern;
+        this.logTail = new FileTail(logFile);
+        return this;
+    }
+
+    /**
+     * @return true if there is at least one check to wait for, an HTTP path without a port makes {@link #await} fail
+     */
+    public boolean isConfigured() {
+        return port > 0 || path != null || logPattern != null;
+    }
+
+    /**
+     * Polls the checks until they all pass
+     *
+     * @param timeout - how long to wait in milliseconds
+     * @return the time in milliseconds the application took to be ready
+     * @throws IOException          - the application was not ready within the timeout, or the HTTP path was given
+     *                              without a port
+     * @throws InterruptedException - the wait was interrupted
+     */
+    public long await(long timeout) throws IOException, InterruptedException {
+        if (path != null && port <= 0) {
+            throw new IOException("The readiness HTTP path " + path + " needs a port");
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+        long delay = INITIAL_DELAY;
+        int attempts = 0;
+        List<String> pending;
+        while (true) {
+            attempts++;
+            pending = check(deadline);
+            if (pending.isEmpty()) {
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Ready after " + attempts + " attempt(s)");
+                }
+                return elapsed;
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                break;
+            }
+            TimeUnit.MILLISECONDS.sleep(Math.min(delay, remaining));
+            delay = Math.min(delay * 2, MAX_DELAY);
+        }
+        throw new IOException("The application was not ready within " + timeout + " ms after " + attempts
+                + " attempt(s), waiting for " + String.join(", ", pending));
+    }
+
+    /**
+     * @return the description of the checks that did not pass
+     */
+    private List<String> check(long deadline) {
+        List<String> pending = new ArrayList<>();
+        int checkTimeout = (int) Math.max(1, Math.min(MAX_CHECK_TIMEOUT,
+                TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        if (logPattern != null && !logMatched && !(logMatched = scanLog())) {
+            pending.add("a line matching " + logPattern + " in " + logFile);
+        }
+        if (port > 0 && path == null && !connects(checkTimeout)) {
+            pending.add(host + ":" + port);
+        }
+        if (port > 0 && path != null && !answers(checkTimeout)) {
+            pending.add(url());
+        }
+        return pending;
+    }
+
+    private boolean connects(int checkTimeout) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), checkTimeout);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean answers(int checkTimeout) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url()).openConnection();
+            connection.setConnectTimeout(checkTimeout);
+            connection.setReadTimeout(checkTimeout);
+            connection.setInstanceFollowRedirects(false);
+            int status = connection.getResponseCode();
+            if (logger.isDebugEnabled()) {
+                logger.debug(url() + " answered " + status);
+            }
+            return status >= 200 && status < 400;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private String url() {
+        return "http://" + host + ":" + port + (path.startsWith("/") ? path : "/" + path);
+    }
+
+    /**
+     * Reads the lines appended to the log file since the last scan
+     */
+    private boolean scanLog() {
+        for (String line : logTail.read()) {
+            if (logPattern.matcher(line).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
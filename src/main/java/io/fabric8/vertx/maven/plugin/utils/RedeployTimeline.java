@@ -0,0 +1,239 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records the timeline of each redeploy of the run goal: when the changed files were last modified, when the change
+ * was detected, when the rebuild started and ended and how long each build phase took, when the classes and
+ * resources landed in the classes directory and when the redeployed verticle was ready, as logged by the
+ * application. A summary is logged once the redeploy is over and the redeploys are appended to a JSON report
+ */
+public class RedeployTimeline {
+
+    /**
+     * the lines logged by the application once the verticle is deployed again, by the vert.x Launcher and by the
+     * {@link HotReloadLauncher}
+     */
+    private static final String[] READY_MARKERS = {"Succeeded in deploying verticle", "Reloaded "};
+
+    private static final int MAX_REPORTED_REDEPLOYS = 1000;
+
+    private final File report;
+
+    private Log logger = new SystemStreamLog();
+
+    private JsonArray redeploys;
+
+    private Redeploy current;
+
+    /**
+     * @param report - the JSON report, the redeploys are appended to the ones already reported
+     */
+    public RedeployTimeline(File report) {
+        this.report = report;
+    }
+
+    public RedeployTimeline withLog(Log logger) {
+        this.logger = logger;
+        return this;
+    }
+
+    /**
+     * A file change was detected, the first change after the previous redeploy starts a new redeploy
+     *
+     * @param file - the changed file
+     */
+    public synchronized void detected(Path file) {
+        if (current != null && current.rebuildEnd > 0) {
+            // changed again before the previous redeploy was ready
+            complete("superseded");
+        }
+        if (current == null) {
+            current = new Redeploy();
+            current.detected = System.currentTimeMillis();
+        }
+        current.files++;
+        long lastModified = file.toFile().lastModified();
+        if (lastModified > 0 && (current.edited == 0 || lastModified < current.edited)) {
+            current.edited = lastModified;
+        }
+    }
+
+    public synchronized void rebuildStarted() {
+        if (current != null && current.rebuildStart == 0) {
+            current.rebuildStart = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * @param phase    - the build phase, e.g. compile
+     * @param duration - how long the phase took in milliseconds
+     */
+    public synchronized void phase(String phase, long duration) {
+        if (current != null) {
+            current.phases.merge(phase, duration, Long::sum);
+        }
+    }
+
+    /**
+     * The rebuilt classes or resources are in the classes directory
+     */
+    public synchronized void classesUpdated() {
+        if (current != null) {
+            current.classesUpdated = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * The rebuild is over, the redeploy is completed unless the classes directory changed and the application is
+     * expected to report the verticle is ready
+     */
+    public synchronized void rebuildFinished() {
+        if (current != null) {
+            current.rebuildEnd = System.currentTimeMillis();
+            if (current.classesUpdated == 0) {
+                complete("unchanged");
+            }
+        }
+    }
+
+    /**
+     * Looks for the line logged by the application once the verticle is redeployed
+     *
+     * @param line - a line of the application output
+     */
+    public void onOutput(String line) {
+        for (String marker : READY_MARKERS) {
+            if (line.contains(marker)) {
+                ready();
+                return;
+            }
+        }
+    }
+
+    public synchronized void ready() {
+        if (current != null && current.classesUpdated > 0) {
+            current.ready = System.currentTimeMillis();
+            complete("ready");
+        }
+    }
+
+    private void complete(String outcome) {
+        Redeploy redeploy = current;
+        current = null;
+
+        JsonObject latency = new JsonObject();
+        StringBuilder summary = new StringBuilder("Redeploy of ").append(redeploy.files).append(" change(s) ");
+        if (redeploy.edited > 0) {
+            latency.put("detection", redeploy.detected - redeploy.edited);
+        }
+        if (redeploy.rebuildStart > 0 && redeploy.rebuildEnd > 0) {
+            latency.put("rebuild", redeploy.rebuildEnd - redeploy.rebuildStart);
+        }
+        if (redeploy.ready > 0) {
+            latency.put("deploy", redeploy.ready - redeploy.classesUpdated);
+            latency.put("total", redeploy.ready - (redeploy.edited > 0 ? redeploy.edited : redeploy.detected));
+            summary.append("live in ").append(latency.getLong("total")).append(" ms");
+        } else {
+            summary.append(outcome);
+        }
+        summary.append(" (");
+        if (latency.containsKey("detection")) {
+            summary.append("detection ").append(latency.getLong("detection")).append(" ms, ");
+        }
+        if (redeploy.rebuildStart > 0) {
+            summary.append("waiting ").append(redeploy.rebuildStart - redeploy.detected).append(" ms, ");
+        }
+        redeploy.phases.forEach((phase, duration) -> summary.append(phase).append(' ').append(duration)
+                .append(" ms, "));
+        if (latency.containsKey("deploy")) {
+            summary.append("deploy ").append(latency.getLong("deploy")).append(" ms, ");
+        }
+        summary.setLength(summary.length() - 2);
+        logger.info(summary.append(')').toString());
+
+        JsonObject entry = new JsonObject()
+                .put("outcome", outcome)
+                .put("files", redeploy.files)
+                .put("edited", redeploy.edited > 0 ? redeploy.edited : null)
+                .put("detected", redeploy.detected)
+                .put("rebuildStart", redeploy.rebuildStart > 0 ? redeploy.rebuildStart : null)
+                .put("rebuildEnd", redeploy.rebuildEnd > 0 ? redeploy.rebuildEnd : null)
+                .put("classesUpdated", redeploy.classesUpdated > 0 ? redeploy.classesUpdated : null)
+                .put("ready", redeploy.ready > 0 ? redeploy.ready : null)
+                .put("phases", new JsonObject(new LinkedHashMap<String, Object>(redeploy.phases)))
+                .put("latency", latency);
+        try {
+            write(entry);
+        } catch (IOException e) {
+            logger.warn("Unable to write the redeploy report " + report + ": " + e.getMessage());
+        }
+    }
+
+    private void write(JsonObject entry) throws IOException {
+        if (redeploys == null) {
+            redeploys = new JsonArray();
+            if (report.isFile()) {
+                try {
+                    redeploys = new JsonObject(new String(Files.readAllBytes(report.toPath()),
+                            StandardCharsets.UTF_8)).getJsonArray("redeploys", new JsonArray());
+                } catch (RuntimeException e) {
+                    logger.debug("Ignoring the unreadable redeploy report " + report);
+                }
+            }
+        }
+        redeploys.add(entry);
+        while (redeploys.size() > MAX_REPORTED_REDEPLOYS) {
+            redeploys.remove(0);
+        }
+        Path target = report.toPath();
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), report.getName(), ".tmp");
+        try {
+            Files.write(temp, new JsonObject().put("redeploys", redeploys).encodePrettily()
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static final class Redeploy {
+        private int files;
+        private long edited;
+        private long detected;
+        private long rebuildStart;
+        private long rebuildEnd;
+        private long classesUpdated;
+        private long ready;
+        private final Map<String, Long> phases = new LinkedHashMap<>();
+    }
+}
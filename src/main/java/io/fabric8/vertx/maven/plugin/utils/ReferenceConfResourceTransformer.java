@@ -0,0 +1,30 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+/**
+ * Concatenates the reference.conf files, i.e. the default configuration of the libraries using Typesafe Config, so
+ * that the defaults of every library are kept
+ */
+public class ReferenceConfResourceTransformer extends AppendingResourceTransformer {
+
+    public static final String REFERENCE_CONF = "reference.conf";
+
+    public ReferenceConfResourceTransformer() {
+        super(REFERENCE_CONF);
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.InterpolationFilterReader;
+import org.codehaus.plexus.util.SelectorUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Copies the changed resources of the project to the output directory and deletes the deleted ones, instead of
+ * running the maven-resources-plugin on every resource. The resources are selected and filtered as configured by the
+ * resources of the project: only the resources with filtering enabled are read through an
+ * {@link InterpolationFilterReader}, with the ${...} and the @...@ delimiters, the other ones are copied as they are
+ * or hard linked when enabled
+ */
+public class ResourceSync {
+
+    private static final List<String> DEFAULT_INCLUDES = Collections.singletonList("**/**");
+
+    private final MavenProject project;
+
+    private final File outputDirectory;
+
+    private MavenSession session;
+
+    private boolean hardLinks;
+
+    private Log logger = new SystemStreamLog();
+
+    /**
+     * @param project         - the project whose resources are synchronized
+     * @param outputDirectory - the directory the resources are copied to, e.g. target/classes
+     */
+    public ResourceSync(MavenProject project, File outputDirectory) {
+        this.project = project;
+        this.outputDirectory = outputDirectory;
+    }
+
+    public ResourceSync withLog(Log logger) {
+        this.logger = logger;
+        return this;
+    }
+
+    /**
+     * @param session - the session whose user properties are used to filter the resources, may be null
+     * @return this sync
+     */
+    public ResourceSync withSession(MavenSession session) {
+        this.session = session;
+        return this;
+    }
+
+    /**
+     * @param hardLinks - whether the resources that are not filtered are hard linked instead of copied, the copy is
+     *                  used when the link cannot be created, e.g. across file systems
+     * @return this sync
+     */
+    public ResourceSync withHardLinks(boolean hardLinks) {
+        this.hardLinks = hardLinks;
+        return this;
+    }
+
+    /**
+     * @param changed - the files created or modified
+     * @param deleted - the files deleted
+     * @return the number of resources copied or deleted, the files that are not resources are ignored
+     * @throws IOException - any error while copying or deleting a resource
+     */
+    public int sync(Set<Path> changed, Set<Path> deleted) throws IOException {
+        Map<String, Object> variables = null;
+        int count = 0;
+        for (Path file : changed) {
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+            for (Resource resource : project.getResources()) {
+                Path target = target(resource, file);
+                if (target == null) {
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                if (resource.isFiltering()) {
+                    if (variables == null) {
+                        variables = variables();
+                    }
+                    filter(file, target, variables);
+                } else {
+                    copy(file, target);
+                }
+                count++;
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Copied the resource " + file + " to " + target);
+                }
+            }
+        }
+        for (Path file : deleted) {
+            for (Resource resource : project.getResources()) {
+                Path target = target(resource, file);
+                if (target != null && Files.deleteIfExists(target)) {
+                    count++;
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Deleted the resource " + target);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the file the resource is copied to, null if the file is not selected by the resource
+     */
+    private Path target(Resource resource, Path file) {
+        if (resource.getDirectory() == null) {
+            return null;
+        }
+        Path directory = project.getBasedir() != null
+                ? project.getBasedir().toPath().resolve(resource.getDirectory()) : Paths.get(resource.getDirectory());
+        directory = directory.toAbsolutePath().normalize();
+        Path absolute = file.toAbsolutePath().normalize();
+        if (!absolute.startsWith(directory)) {
+            return null;
+        }
+        String relative = directory.relativize(absolute).toString();
+        List<String> includes = resource.getIncludes().isEmpty() ? DEFAULT_INCLUDES : resource.getIncludes();
+        if (includes.stream().noneMatch(include -> matches(include, relative))
+                || resource.getExcludes().stream().anyMatch(exclude -> matches(exclude, relative))) {
+            return null;
+        }
+        Path output = outputDirectory.toPath();
+        if (resource.getTargetPath() != null) {
+            output = output.resolve(resource.getTargetPath());
+        }
+        return output.resolve(relative);
+    }
+
+    private static boolean matches(String pattern, String path) {
+        String normalized = pattern.replace('/', File.separatorChar).replace('\\', File.separatorChar);
+        if (normalized.endsWith(File.separator)) {
+            normalized += "**";
+        }
+        return SelectorUtils.matchPath(normalized, path);
+    }
+
+    private void copy(Path file, Path target) throws IOException {
+        if (hardLinks) {
+            try {
+                Files.deleteIfExists(target);
+                Files.createLink(target, file);
+                return;
+            } catch (IOException | UnsupportedOperationException e) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Unable to link " + file + ", copying it: " + e.getMessage());
+                }
+            }
+        }
+        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+    }
+
+    private void filter(Path file, Path target, Map<String, Object> variables) throws IOException {
+        String encoding = project.getProperties().getProperty("project.build.sourceEncoding");
+        Charset charset = encoding != null ? Charset.forName(encoding) : Charset.defaultCharset();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (Reader reader = new InterpolationFilterReader(new InterpolationFilterReader(
+                    Files.newBufferedReader(file, charset), variables), variables, "@", "@");
+                 Writer writer = Files.newBufferedWriter(temp, charset)) {
+                char[] buffer = new char[8192];
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    writer.write(buffer, 0, read);
+                }
+            }
+            // a hard link of a previous copy must not be written through
+            Files.deleteIfExists(target);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return the values of the filtered resources, like the maven-resources-plugin: the system properties, the
+     * filter files of the build, the project properties and the user properties of the session
+     */
+    private Map<String, Object> variables() throws IOException {
+        Map<String, Object> variables = new HashMap<>();
+        putAll(variables, System.getProperties());
+        if (project.getBuild() != null) {
+            for (String filter : project.getBuild().getFilters()) {
+                File filterFile = project.getBasedir() != null
+                        ? project.getBasedir().toPath().resolve(filter).toFile() : new File(filter);
+                Properties properties = new Properties();
+                try (InputStream in = Files.newInputStream(filterFile.toPath())) {
+                    properties.load(in);
+                }
+                putAll(variables, properties);
+            }
+        }
+        putAll(variables, project.getProperties());
+        if (session != null) {
+            putAll(variables, session.getUserProperties());
+        }
+        putIfNotNull(variables, "project.groupId", project.getGroupId());
+        putIfNotNull(variables, "project.artifactId", project.getArtifactId());
+        putIfNotNull(variables, "project.version", project.getVersion());
+        putIfNotNull(variables, "project.name", project.getName());
+        putIfNotNull(variables, "project.description", project.getDescription());
+        if (project.getBasedir() != null) {
+            putIfNotNull(variables, "basedir", project.getBasedir().getAbsolutePath());
+            putIfNotNull(variables, "project.basedir", project.getBasedir().getAbsolutePath());
+        }
+        if (project.getBuild() != null) {
+            putIfNotNull(variables, "project.build.directory", project.getBuild().getDirectory());
+            putIfNotNull(variables, "project.build.outputDirectory", project.getBuild().getOutputDirectory());
+            putIfNotNull(variables, "project.build.finalName", project.getBuild().getFinalName());
+        }
+        return variables;
+    }
+
+    private static void putAll(Map<String, Object> variables, Properties properties) {
+        properties.stringPropertyNames().forEach(name -> variables.put(name, properties.getProperty(name)));
+    }
+
+    private static void putIfNotNull(Map<String, Object> variables, String name, String value) {
+        if (value != null) {
+            variables.put(name, value);
+        }
+    }
+}
@@ -2,41 +2,119 @@ package io.fabric8.vertx.maven.plugin.utils;
 
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugin.logging.SystemStreamLog;
-import org.codehaus.plexus.util.CollectionUtils;
-import org.jboss.shrinkwrap.api.*;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This utility is used to perform Services relocation - typically moving came Service Providers found in META-INF/services
  * to a single file
  * Right now it supports only combine - wherein all same service providers are combined into on file with one line entry
  * for each Service Provider implementation
+ * <p>
+ * The service files are merged in a single pass: every provider line is added to the providers of its service in the
+ * order the jars are given, comments and blank lines are ignored and a provider declared more than once is kept once
  *
  * @author kameshs
  */
 public class ServiceCombinerUtil {
 
+    private static final String SERVICES_PATH = "META-INF/services";
+
+    private final Map<String, LinkedHashSet<String>> providers = new LinkedHashMap<>();
+
+    private JarIndexCache indexCache;
+
     private Log logger = new SystemStreamLog();
 
-    private static String read(InputStream input) throws IOException {
-        try (BufferedReader buffer = new BufferedReader(new InputStreamReader(input))) {
-            return buffer.lines().collect(Collectors.joining("\n"));
+    public ServiceCombinerUtil withLog(Log logger) {
+        this.logger = logger;
+        return this;
+    }
+
+    /**
+     * @param indexCache - the {@link JarIndexCache} used to read the service files of the jars, null to read them
+     *                   from the jars
+     * @return this utility
+     */
+    public ServiceCombinerUtil withIndexCache(JarIndexCache indexCache) {
+        this.indexCache = indexCache;
+        return this;
+    }
+
+    /**
+     * Merges the service providers declared by a service file
+     *
+     * @param service - the service name, i.e. the name of the file under META-INF/services
+     * @param content - the content of the service file
+     * @return this utility
+     */
+    public ServiceCombinerUtil add(String service, byte[] content) {
+        LinkedHashSet<String> serviceProviders = providers.computeIfAbsent(service, s -> new LinkedHashSet<>());
+        for (String line : new String(content, StandardCharsets.UTF_8).split("\r?\n|\r")) {
+            int comment = line.indexOf('#');
+            String provider = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (!provider.isEmpty()) {
+                serviceProviders.add(provider);
+            }
         }
+        return this;
     }
 
-    public ServiceCombinerUtil withLog(Log logger) {
-        this.logger = logger;
+    /**
+     * Merges the service providers declared by the META-INF/services files of a jar
+     *
+     * @param index - the {@link JarIndex} of the jar
+     * @return this utility
+     */
+    public ServiceCombinerUtil add(JarIndex index) {
+        index.getServices().forEach((name, content) -> {
+            String service = name.substring(JarIndex.SERVICES_PREFIX.length());
+            if (!service.isEmpty() && service.indexOf('/') < 0) {
+                add(service, content);
+            }
+        });
         return this;
     }
 
+    /**
+     * @return the providers merged so far, keyed by service name
+     */
+    public Map<String, LinkedHashSet<String>> getProviders() {
+        return Collections.unmodifiableMap(providers);
+    }
+
+    /**
+     * Merges the service providers declared by the given jars, each jar is read once
+     *
+     * @param jars - the jars in dependency order
+     * @return the providers of each service, in the order they are declared by the jars
+     * @throws IOException - any error while reading the jars
+     */
+    public Map<String, LinkedHashSet<String>> merge(Collection<File> jars) throws IOException {
+        for (File jar : jars) {
+            add(indexCache != null ? indexCache.read(jar) : JarIndex.read(jar));
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Merged service providers: " + providers);
+        }
+        return getProviders();
+    }
+
     /**
      * The method to perform the service provider combining
      *
@@ -46,89 +124,34 @@ public class ServiceCombinerUtil {
      */
     public JavaArchive combine(List<JavaArchive> jars) throws Exception {
 
-        ArchivePath spiPath = ArchivePaths.create("META-INF/services");
-
-        Set<JavaArchive> serviceProviderArchives = jars.stream()
-                .filter(a -> a.contains(spiPath))
-                .collect(Collectors.toSet());
-
-        Iterator<JavaArchive> archiveIterator = serviceProviderArchives.iterator();
-
-        JavaArchive prev = null;
-
-        Map<Node, Set<JavaArchive>> sameNodeArchives = new HashMap<>();
-
-        while (archiveIterator.hasNext()) {
-
-            JavaArchive javaArchive = archiveIterator.next();
-
-            Set<Node> spiDefNodes = javaArchive.get(spiPath).getChildren();
-
-            if (prev != null) {
-                Set<Node> prevSpiDefNodes = prev.get(spiPath).getChildren();
-                Collection<Node> intersection = CollectionUtils.intersection(spiDefNodes, prevSpiDefNodes);
+        ArchivePath spiPath = ArchivePaths.create(SERVICES_PATH);
 
-                if (!intersection.isEmpty()) {
-
-                    for (Node node : intersection) {
-                        if (sameNodeArchives.containsKey(node)) {
-                            sameNodeArchives.get(node).add(javaArchive);
-                        } else {
-                            sameNodeArchives.put(node, Stream.of(prev, javaArchive).collect(Collectors.toSet()));
-                        }
+        for (JavaArchive jar : jars) {
+            Node services = jar.get(spiPath);
+            if (services == null) {
+                continue;
+            }
+            for (Node node : services.getChildren()) {
+                Asset asset = node.getAsset();
+                if (asset != null) {
+                    try (InputStream in = asset.openStream()) {
+                        String path = node.getPath().get();
+                        add(path.substring(path.lastIndexOf('/') + 1), FileUtils.readBytes(in));
                     }
                 }
             }
-            prev = javaArchive;
         }
 
         if (logger.isDebugEnabled()) {
-            logger.debug("Archives declaring same SPI: " + sameNodeArchives);
+            logger.debug("Merged service providers: " + providers);
         }
 
         JavaArchive combinedSPIArchive = ShrinkWrap.create(JavaArchive.class);
-
-        Map<Node, Set<String>> spiContent = new HashMap<>();
-
-        sameNodeArchives.forEach((node, javaArchives) -> {
-
-            Set<String> spiCombinedStrings = new HashSet<>();
-
-            javaArchives.forEach(javaArchive -> {
-                InputStream in = null;
-                try {
-                    Filter<ArchivePath> spiFilterPath = Filters.include(node.getPath().get());
-                    Map<ArchivePath, Node> nodeMap = javaArchive.getContent(spiFilterPath);
-                    Optional<Node> optNode = nodeMap.values().stream().findFirst();
-                    if (optNode.isPresent()) {
-                        Node archiveNode = optNode.get();
-                        in = archiveNode.getAsset().openStream();
-                        spiCombinedStrings.add(read(in));
-                        in.close();
-                    }
-                } catch (IOException e) {
-                    //ignore
-                } finally {
-                    if (in != null) {
-                        try {
-                            in.close();
-                        } catch (IOException e) {
-                            //nothing i can do here :)
-                        }
-                    }
-                }
-            });
-            spiContent.put(node, spiCombinedStrings);
-        });
-
-        if (logger.isDebugEnabled()) {
-            logger.debug("SPI Nodes:" + spiContent);
-        }
-
-        spiContent.forEach((spiNode, content) -> {
-            String strSpiPath = spiNode.toString();
-            String spi = spiNode.toString().substring(strSpiPath.lastIndexOf("/") + 1, strSpiPath.length());
-            combinedSPIArchive.addAsServiceProvider(spi, content.stream().toArray(size -> new String[size]));
+        providers.forEach((service, serviceProviders) -> {
+            if (!serviceProviders.isEmpty()) {
+                combinedSPIArchive.addAsServiceProvider(service,
+                        serviceProviders.toArray(new String[serviceProviders.size()]));
+            }
         });
 
         return combinedSPIArchive;
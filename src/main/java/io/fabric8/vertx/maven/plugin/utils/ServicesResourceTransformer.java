@@ -0,0 +1,56 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import io.fabric8.vertx.maven.plugin.functions.ResourceTransformer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Merges the META-INF/services files of all the jars with the {@link ServiceCombinerUtil}, this is the transformer
+ * used for the {@link io.fabric8.vertx.maven.plugin.model.RelocatorMode#combine} service relocation
+ */
+public class ServicesResourceTransformer implements ResourceTransformer {
+
+    private final ServiceCombinerUtil combiner = new ServiceCombinerUtil();
+
+    @Override
+    public boolean canTransform(String name) {
+        return name.startsWith(JarIndex.SERVICES_PREFIX) && name.length() > JarIndex.SERVICES_PREFIX.length()
+                && name.indexOf('/', JarIndex.SERVICES_PREFIX.length()) < 0;
+    }
+
+    @Override
+    public void transform(String name, InputStream in) throws IOException {
+        combiner.add(name.substring(JarIndex.SERVICES_PREFIX.length()), FileUtils.readBytes(in));
+    }
+
+    @Override
+    public Map<String, byte[]> getTransformedResources() {
+        Map<String, byte[]> resources = new LinkedHashMap<>();
+        combiner.getProviders().forEach((service, providers) -> {
+            StringBuilder content = new StringBuilder();
+            providers.forEach(provider -> content.append(provider).append('\n'));
+            resources.put(JarIndex.SERVICES_PREFIX + service, content.toString().getBytes(StandardCharsets.UTF_8));
+        });
+        return resources;
+    }
+}
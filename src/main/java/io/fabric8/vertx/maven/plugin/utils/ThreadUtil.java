@@ -36,8 +36,9 @@ public class ThreadUtil {
     }
 
     public void joinNonDaemonThread(ThreadGroup threadGroup) {
-        boolean isNotDaemon = false;
+        boolean isNotDaemon;
         do {
+            isNotDaemon = false;
 
             Stream<Thread> activeThreads = getActiveThreads(threadGroup);
 
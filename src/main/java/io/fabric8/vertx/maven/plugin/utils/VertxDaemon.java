@@ -0,0 +1,243 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The main class of a JVM kept running between the builds to start the applications of a project, see
+ * {@link DaemonClient}. The dependencies are on the classpath of the daemon, they are loaded and JIT compiled once,
+ * each application is deployed on its own vert.x instance from a {@link HotReloadLauncher} holding the project
+ * classes and resources.
+ * <p>
+ * The daemon listens on a loopback port, written with a random token in the state file. A request is a single line
+ * of tab separated fields, the token, the command and its arguments, the response is a single line starting with
+ * ok or error:
+ * <ul>
+ * <li>ping</li>
+ * <li>start &lt;id&gt; &lt;project dirs&gt; &lt;verticle&gt; &lt;config file&gt;</li>
+ * <li>reload &lt;id&gt;</li>
+ * <li>stop &lt;id&gt;</li>
+ * <li>list</li>
+ * <li>shutdown</li>
+ * </ul>
+ * The daemon exits when it runs no application and got no request for the idle timeout. It also stops its
+ * applications and exits when its state file is deleted, for example by {@code mvn clean}, as no build can reach it
+ * anymore.
+ * <p>
+ * This class is copied out of the plugin in to the daemon JVM, it must only use the JDK
+ */
+public final class VertxDaemon {
+
+    static final String OK = "ok";
+
+    static final String ERROR = "error";
+
+    static final String SEPARATOR = "\t";
+
+    static final String PORT = "port";
+
+    static final String TOKEN = "token";
+
+    static final String PID = "pid";
+
+    private static final long POLL_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * how long a client may take to send its request, the requests are served one at a time
+     */
+    private static final int REQUEST_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(5);
+
+    private final String token;
+
+    private final Map<String, HotReloadLauncher> applications = new LinkedHashMap<>();
+
+    private boolean running = true;
+
+    private VertxDaemon(String token) {
+        this.token = token;
+    }
+
+    /**
+     * @param args - the state file and the idle timeout in minutes
+     * @throws Exception - any error while starting the daemon
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: VertxDaemon <state file> <idle timeout in minutes>");
+        }
+        Path stateFile = Paths.get(args[0]);
+        long idleTimeout = TimeUnit.MINUTES.toMillis(Long.parseLong(args[1]));
+
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        StringBuilder token = new StringBuilder();
+        for (byte b : random) {
+            token.append(String.format("%02x", b));
+        }
+
+        // loads and initializes vert.x and netty before the first application is started
+        Object vertx = Class.forName("io.vertx.core.Vertx").getMethod("vertx").invoke(null);
+        vertx.getClass().getMethod("close").invoke(vertx);
+
+        VertxDaemon daemon = new VertxDaemon(token.toString());
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout((int) Math.max(1, Math.min(POLL_INTERVAL, idleTimeout)));
+            String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+            Path temp = Files.createTempFile(stateFile.toAbsolutePath().getParent(), "daemon", ".tmp");
+            Files.write(temp, (PORT + "=" + server.getLocalPort() + "\n" + TOKEN + "=" + token + "\n"
+                    + PID + "=" + pid + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("vert.x daemon " + pid + " listening on port " + server.getLocalPort());
+
+            long lastRequest = System.currentTimeMillis();
+            while (daemon.running) {
+                try (Socket socket = server.accept()) {
+                    lastRequest = System.currentTimeMillis();
+                    daemon.serve(socket);
+                } catch (SocketTimeoutException e) {
+                    if (!Files.exists(stateFile)) {
+                        System.out.println("vert.x daemon state file deleted, exiting");
+                        break;
+                    }
+                    if (daemon.applications.isEmpty() && System.currentTimeMillis() - lastRequest >= idleTimeout) {
+                        System.out.println("vert.x daemon idle, exiting");
+                        break;
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            daemon.stopAll();
+            Files.deleteIfExists(stateFile);
+        }
+        System.exit(0);
+    }
+
+    private void serve(Socket socket) throws IOException {
+        // an accepted socket does not inherit the timeout of the server socket
+        socket.setSoTimeout(REQUEST_TIMEOUT);
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.UTF_8));
+        OutputStream out = socket.getOutputStream();
+        String line;
+        try {
+            line = in.readLine();
+        } catch (SocketTimeoutException e) {
+            // a client sending nothing must not keep the other clients waiting
+            line = null;
+        }
+        String response;
+        try {
+            response = handle(line != null ? line.split(SEPARATOR, -1) : new String[0]);
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            cause.printStackTrace();
+            response = ERROR + SEPARATOR + cause;
+        }
+        out.write((response.replace('\n', ' ') + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private String handle(String[] request) throws Exception {
+        if (request.length < 2 || !token.equals(request[0])) {
+            return ERROR + SEPARATOR + "invalid request";
+        }
+        String command = request[1];
+        switch (command) {
+            case "ping":
+                return OK;
+            case "start": {
+                String id = request[2];
+                if (applications.containsKey(id)) {
+                    return ERROR + SEPARATOR + "the application " + id + " is already started";
+                }
+                List<URL> urls = new ArrayList<>();
+                for (String directory : request[3].split(File.pathSeparator)) {
+                    if (!directory.isEmpty()) {
+                        urls.add(HotReloadLauncher.toURL(new File(directory)));
+                    }
+                }
+                String config = request.length > 5 && !request[5].isEmpty()
+                        ? new String(Files.readAllBytes(Paths.get(request[5])), StandardCharsets.UTF_8) : null;
+                long start = System.nanoTime();
+                HotReloadLauncher application = new HotReloadLauncher(urls.toArray(new URL[urls.size()]),
+                        request[4], config);
+                try {
+                    application.deploy();
+                } catch (Exception e) {
+                    application.close();
+                    throw e;
+                }
+                applications.put(id, application);
+                System.out.println("Started " + request[4] + " as " + id + " in "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                return OK + SEPARATOR + id;
+            }
+            case "reload":
+                application(request[2]).reload();
+                return OK;
+            case "stop":
+                application(request[2]).close();
+                applications.remove(request[2]);
+                System.out.println("Stopped " + request[2]);
+                return OK;
+            case "list":
+                return OK + SEPARATOR + String.join(",", applications.keySet());
+            case "shutdown":
+                running = false;
+                return OK;
+            default:
+                return ERROR + SEPARATOR + "unknown command " + command;
+        }
+    }
+
+    private HotReloadLauncher application(String id) {
+        HotReloadLauncher application = applications.get(id);
+        if (application == null) {
+            throw new IllegalArgumentException("No application " + id);
+        }
+        return application;
+    }
+
+    private void stopAll() {
+        applications.values().forEach(HotReloadLauncher::close);
+        applications.clear();
+    }
+}
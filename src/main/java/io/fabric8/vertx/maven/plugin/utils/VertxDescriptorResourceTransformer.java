@@ -0,0 +1,64 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin.utils;
+
+import io.fabric8.vertx.maven.plugin.functions.ResourceTransformer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Merges the vert.x descriptors found under META-INF/vertx, e.g. the json-mappers.properties of the vert.x codegen.
+ * The lines of the descriptors are kept in the order of the jars, a line declared by several jars is kept once.
+ * JSON descriptors cannot be merged line by line, they are left to the last jar
+ */
+public class VertxDescriptorResourceTransformer implements ResourceTransformer {
+
+    static final String VERTX_DESCRIPTOR_PREFIX = "META-INF/vertx/";
+
+    private final Map<String, LinkedHashSet<String>> descriptors = new LinkedHashMap<>();
+
+    @Override
+    public boolean canTransform(String name) {
+        return name.startsWith(VERTX_DESCRIPTOR_PREFIX) && !name.endsWith("/") && !name.endsWith(".json");
+    }
+
+    @Override
+    public void transform(String name, InputStream in) throws IOException {
+        LinkedHashSet<String> lines = descriptors.computeIfAbsent(name, n -> new LinkedHashSet<>());
+        for (String line : new String(FileUtils.readBytes(in), StandardCharsets.UTF_8).split("\r?\n|\r")) {
+            if (!line.trim().isEmpty()) {
+                lines.add(line);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, byte[]> getTransformedResources() {
+        Map<String, byte[]> resources = new LinkedHashMap<>();
+        descriptors.forEach((name, lines) -> {
+            StringBuilder content = new StringBuilder();
+            lines.forEach(line -> content.append(line).append('\n'));
+            resources.put(name, content.toString().getBytes(StandardCharsets.UTF_8));
+        });
+        return resources;
+    }
+}
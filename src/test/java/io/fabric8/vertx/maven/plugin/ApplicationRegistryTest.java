@@ -0,0 +1,98 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.utils.ApplicationRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ApplicationRegistryTest {
+
+    private File directory;
+
+    @Before
+    public void setup() {
+        directory = new File("target/application-registry-test");
+    }
+
+    @Test
+    public void testRecordsEveryApplication() throws Exception {
+        File file = new File(directory, "vertx-applications.json");
+        ApplicationRegistry registry = new ApplicationRegistry(file);
+        assertThat(registry.list()).isEmpty();
+
+        registry.add(new ApplicationRegistry.Entry("db", 0, 42L, 1000L, null, 1));
+        registry.add(new ApplicationRegistry.Entry("api", 1, null, null, "/tmp/vertx.daemon", 2));
+        // started again
+        registry.add(new ApplicationRegistry.Entry("db", 0, 43L, 2000L, null, 3));
+
+        List<ApplicationRegistry.Entry> applications = new ApplicationRegistry(file).list();
+        assertThat(applications).extracting(ApplicationRegistry.Entry::getId).containsExactly("api", "db");
+        ApplicationRegistry.Entry api = registry.get("api").get();
+        assertThat(api.getGroup()).isEqualTo(1);
+        assertThat(api.getPid()).isNull();
+        assertThat(api.getDaemon()).isEqualTo("/tmp/vertx.daemon");
+        assertThat(registry.get("db").get().getPid()).isEqualTo(43L);
+        assertThat(registry.get("db").get().getProcessStart()).isEqualTo(2000L);
+        assertThat(api.getProcessStart()).isNull();
+
+        registry.remove("db");
+        assertThat(registry.get("db")).isEmpty();
+        registry.remove("api");
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    public void testConcurrentStarts() throws Exception {
+        File file = new File(directory, "concurrent.json");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                String id = "app-" + i;
+                // a registry per mojo, as in a parallel build
+                futures.add(executor.submit(() -> {
+                    new ApplicationRegistry(file).add(new ApplicationRegistry.Entry(id, 0, null, null, null, 0));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(new ApplicationRegistry(file).list().stream().map(ApplicationRegistry.Entry::getId)
+                .collect(Collectors.toSet())).hasSize(32);
+    }
+
+    @After
+    public void tearDown() {
+        org.apache.commons.io.FileUtils.deleteQuietly(directory);
+    }
+}
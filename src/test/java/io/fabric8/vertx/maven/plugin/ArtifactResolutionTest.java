@@ -0,0 +1,122 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.mojos.AbstractVertxMojo;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ArtifactResolutionTest {
+
+    private File resolvedFile;
+    private File downloadedFile;
+
+    @Before
+    public void setup() throws Exception {
+        resolvedFile = new File("target/artifact-resolution-resolved.jar");
+        downloadedFile = new File("target/artifact-resolution-downloaded.jar");
+        assertThat(resolvedFile.createNewFile() || resolvedFile.isFile()).isTrue();
+    }
+
+    @Test
+    public void testResolvesOnlyMissingArtifactsInOneBatch() throws Exception {
+        List<List<String>> batches = new ArrayList<>();
+        RepositorySystem repositorySystem = (RepositorySystem) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RepositorySystem.class}, (proxy, method, args) -> {
+                    assertThat(method.getName()).isEqualTo("resolveArtifacts");
+                    List<String> batch = new ArrayList<>();
+                    List<ArtifactResult> results = new ArrayList<>();
+                    for (Object request : (Collection<?>) args[1]) {
+                        ArtifactResult result = new ArtifactResult((ArtifactRequest) request);
+                        result.setArtifact(((ArtifactRequest) request).getArtifact().setFile(downloadedFile));
+                        batch.add(result.getArtifact().getArtifactId());
+                        results.add(result);
+                    }
+                    batches.add(batch);
+                    return results;
+                });
+
+        TestMojo mojo = new TestMojo(repositorySystem);
+
+        Artifact resolved = artifact("resolved", "compile");
+        resolved.setFile(resolvedFile);
+        Artifact direct = artifact("direct", "compile");
+        Artifact transitive = artifact("transitive", "runtime");
+        Artifact test = artifact("test", "test");
+
+        Set<Artifact> dependencyArtifacts = new LinkedHashSet<>(Arrays.asList(resolved, direct, test));
+        Set<Artifact> artifacts = new LinkedHashSet<>(Arrays.asList(resolved, artifact("direct", "compile"),
+                transitive, test));
+
+        mojo.resolve(artifacts);
+        Set<Optional<File>> directPaths = mojo.extract(dependencyArtifacts);
+        Set<Optional<File>> transitivePaths = mojo.extract(artifacts);
+
+        assertThat(directPaths).containsExactly(Optional.of(resolvedFile), Optional.of(downloadedFile));
+        assertThat(transitivePaths).containsExactly(Optional.of(resolvedFile), Optional.of(downloadedFile));
+
+        assertThat(batches).containsExactly(Arrays.asList("direct", "transitive"));
+    }
+
+    @After
+    public void tearDown() {
+        resolvedFile.delete();
+    }
+
+    private static Artifact artifact(String artifactId, String scope) {
+        return new DefaultArtifact("io.fabric8.test", artifactId, "1.0", scope, "jar", null,
+                new DefaultArtifactHandler("jar"));
+    }
+
+    private static class TestMojo extends AbstractVertxMojo {
+
+        TestMojo(RepositorySystem repositorySystem) {
+            this.repositorySystem = repositorySystem;
+        }
+
+        void resolve(Set<Artifact> artifacts) {
+            resolveArtifacts(artifacts);
+        }
+
+        Set<Optional<File>> extract(Set<Artifact> artifacts) {
+            return extractArtifactPaths(artifacts);
+        }
+
+        @Override
+        public void execute() {
+        }
+    }
+}
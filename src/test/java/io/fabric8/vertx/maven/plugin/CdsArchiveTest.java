@@ -0,0 +1,92 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.utils.CdsArchive;
+import io.fabric8.vertx.maven.plugin.utils.JavaProcessExecutor;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CdsArchiveTest {
+
+    private File directory;
+
+    @Before
+    public void setup() {
+        directory = new File("target/cds-archive-test");
+        directory.mkdirs();
+    }
+
+    @Test
+    public void testArchiveFollowsTheJar() throws Exception {
+        Assume.assumeTrue(CdsArchive.isSupported());
+
+        File jar = new File(directory, "app-fat.jar");
+        File output = new File(directory, "output.txt");
+        export(jar, "1");
+
+        CdsArchive archive = new CdsArchive(jar, directory).withLog(new SystemStreamLog());
+        assertThat(archive.getArchive()).isEqualTo(new File(directory, "app-fat.jsa"));
+        assertThat(archive.isValid()).isFalse();
+
+        archive.train(new JavaProcessExecutor()
+                .withArgs(new ArrayList<>(Arrays.asList(archive.getTrainingOption(), "-jar", jar.getAbsolutePath(),
+                        output.getAbsolutePath())))
+                .withClassPathDirectory(directory)
+                .withLogger(new SystemStreamLog())
+                .withOutputFile(new File(directory, "training.log")), 30);
+
+        assertThat(archive.getArchive()).isFile();
+        assertThat(new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8)).contains("done");
+        assertThat(archive.isValid()).isTrue();
+        assertThat(archive.getSharedArchiveOption())
+                .isEqualTo("-XX:SharedArchiveFile=" + archive.getArchive().getAbsolutePath());
+
+        // a new jar needs a new archive
+        export(jar, "2");
+        assertThat(archive.isValid()).isFalse();
+    }
+
+    @After
+    public void tearDown() {
+        org.apache.commons.io.FileUtils.deleteQuietly(directory);
+    }
+
+    private void export(File jar, String version) {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class)
+                .addClass(IsolatedMain.class)
+                .add(new StringAsset(version), "version.txt")
+                .setManifest(new StringAsset("Manifest-Version: 1.0\nMain-Class: "
+                        + IsolatedMain.class.getName() + "\n"));
+        archive.as(ZipExporter.class).exportTo(jar, true);
+    }
+}
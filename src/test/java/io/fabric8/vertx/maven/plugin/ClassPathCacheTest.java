@@ -0,0 +1,120 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.mojos.AbstractRunMojo;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassPathCacheTest {
+
+    @Test
+    public void testClassPathSharedBySessionAndDependencyGraph() throws Exception {
+        MavenProject project = project();
+        MavenSession session = session(project);
+        File dependency = new File("target/classpath-cache-dependency.jar");
+        Artifact artifact = artifact("dependency", dependency);
+        project.setArtifacts(new LinkedHashSet<>(Collections.singletonList(artifact)));
+
+        CountingMojo first = new CountingMojo(project, session);
+        List<URL> classPath = first.classPath();
+        assertThat(first.classPath()).isEqualTo(classPath);
+        assertThat(classPath).contains(dependency.toURI().toURL());
+
+        // another mojo of the same build reuses the classpath
+        CountingMojo second = new CountingMojo(project, session);
+        assertThat(second.classPath()).isEqualTo(classPath);
+        assertThat(first.extractions + second.extractions).isEqualTo(2);
+
+        // a new dependency graph invalidates it
+        File other = new File("target/classpath-cache-other.jar");
+        Set<Artifact> artifacts = new LinkedHashSet<>(project.getArtifacts());
+        artifacts.add(artifact("other", other));
+        project.setArtifacts(artifacts);
+        assertThat(second.classPath()).contains(other.toURI().toURL());
+        assertThat(second.extractions).isEqualTo(2);
+
+        // so does a new build
+        CountingMojo third = new CountingMojo(project, session(project));
+        assertThat(third.classPath()).contains(other.toURI().toURL());
+        assertThat(third.extractions).isEqualTo(2);
+    }
+
+    private static MavenProject project() {
+        Model model = new Model();
+        model.setGroupId("io.fabric8.test");
+        model.setArtifactId("classpath-cache");
+        model.setVersion("1.0");
+        return new MavenProject(model);
+    }
+
+    private static MavenSession session(MavenProject project) {
+        return new MavenSession(null, new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult(),
+                project);
+    }
+
+    private static Artifact artifact(String artifactId, File file) throws IOException {
+        // an artifact already resolved by Maven
+        Files.write(file.toPath(), new byte[0]);
+        file.deleteOnExit();
+        Artifact artifact = new DefaultArtifact("io.fabric8.test", artifactId, "1.0", "compile", "jar", null,
+                new DefaultArtifactHandler("jar"));
+        artifact.setFile(file);
+        return artifact;
+    }
+
+    private static class CountingMojo extends AbstractRunMojo {
+
+        int extractions;
+
+        CountingMojo(MavenProject project, MavenSession session) {
+            this.project = project;
+            this.mavenSession = session;
+            this.classesDirectory = new File("target/classes");
+        }
+
+        List<URL> classPath() throws Exception {
+            return getClassPathUrls();
+        }
+
+        @Override
+        protected Set<Optional<File>> extractArtifactPaths(Set<Artifact> artifacts) {
+            // called for the direct and the transitive dependencies of each computed classpath
+            extractions++;
+            return super.extractArtifactPaths(artifacts);
+        }
+    }
+}
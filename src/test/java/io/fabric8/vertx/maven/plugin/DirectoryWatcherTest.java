@@ -0,0 +1,117 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.utils.DirectoryWatcher;
+import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class DirectoryWatcherTest {
+
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+    private Path root;
+
+    private DirectoryWatcher watcher;
+
+    @Before
+    public void setup() throws IOException {
+        root = Files.createTempDirectory(Paths.get("target").toAbsolutePath(), "watcher");
+        Files.createDirectories(root.resolve("src"));
+        Files.write(root.resolve("src/Existing.java"), "class Existing {}".getBytes(StandardCharsets.UTF_8));
+        watcher = new DirectoryWatcher(Collections.singleton(root), new FileAlterationListenerAdaptor() {
+            @Override
+            public void onFileCreate(File file) {
+                events.add("create " + root.relativize(file.toPath()));
+            }
+
+            @Override
+            public void onFileChange(File file) {
+                events.add("change " + root.relativize(file.toPath()));
+            }
+
+            @Override
+            public void onFileDelete(File file) {
+                events.add("delete " + root.relativize(file.toPath()));
+            }
+        }, new SystemStreamLog());
+        Thread thread = new Thread(watcher);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        watcher.close();
+        org.apache.commons.io.FileUtils.deleteDirectory(root.toFile());
+    }
+
+    @Test
+    public void testChangesOfTheRegisteredTree() throws Exception {
+        Path existing = root.resolve("src/Existing.java");
+        Files.write(existing, "class Existing { int i; }".getBytes(StandardCharsets.UTF_8));
+        awaitEvent("change src/Existing.java");
+
+        Files.delete(existing);
+        awaitEvent("delete src/Existing.java");
+    }
+
+    @Test
+    public void testNewDirectoriesAreWatched() throws Exception {
+        Path directory = Files.createDirectories(root.resolve("src/a/b"));
+        Files.write(directory.resolve("New.java"), "class New {}".getBytes(StandardCharsets.UTF_8));
+        awaitEvent("create " + Paths.get("src/a/b/New.java"));
+
+        // the directory is registered, later changes are notified too
+        Files.write(directory.resolve("Other.java"), "class Other {}".getBytes(StandardCharsets.UTF_8));
+        awaitEvent("create " + Paths.get("src/a/b/Other.java"));
+    }
+
+    @Test
+    public void testNativeWatchService() {
+        // the JDK only polls on macOS, the run goal scans the directories itself there
+        assertEquals(!System.getProperty("os.name").toLowerCase().startsWith("mac"), DirectoryWatcher.isNative());
+    }
+
+    private void awaitEvent(String expected) throws InterruptedException {
+        // the file systems without native notifications are polled every few seconds, a write may also be notified
+        // as a creation followed by changes
+        long deadline = System.currentTimeMillis() + 30000;
+        String event;
+        do {
+            event = events.poll(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            assertNotNull("no " + expected + " event received", event);
+        } while (!event.equals(expected));
+    }
+}
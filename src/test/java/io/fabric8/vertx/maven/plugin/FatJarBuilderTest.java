@@ -0,0 +1,459 @@
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.model.Relocator;
+import io.fabric8.vertx.maven.plugin.utils.AppendingResourceTransformer;
+import io.fabric8.vertx.maven.plugin.utils.ClassRelocator;
+import io.fabric8.vertx.maven.plugin.utils.FatJarBuilder;
+import io.fabric8.vertx.maven.plugin.utils.JarIndex;
+import io.fabric8.vertx.maven.plugin.utils.JarIndexCache;
+import io.fabric8.vertx.maven.plugin.utils.ReferenceConfResourceTransformer;
+import io.fabric8.vertx.maven.plugin.utils.VertxDescriptorResourceTransformer;
+import io.vertx.core.AbstractVerticle;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ClassAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+import org.jboss.shrinkwrap.api.importer.ZipImporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class FatJarBuilderTest {
+
+    private File jar1;
+    private File jar2;
+    private File fatJar;
+    private File shrinkWrapJar;
+
+    @Before
+    public void setup() throws Exception {
+        jar1 = new File("target/fatjarbuilder1.jar");
+        jar2 = new File("target/fatjarbuilder2.jar");
+        fatJar = new File("target/fatjarbuilder-fat.jar");
+        shrinkWrapJar = new File("target/fatjarbuilder-shrinkwrap.jar");
+
+        JavaArchive jarArchive1 = ShrinkWrap.create(JavaArchive.class);
+        jarArchive1.addClass(SimpleVerticle.class);
+        jarArchive1.add(new StringAsset("one"), "config/app.properties");
+        jarArchive1.add(new StringAsset("first"), "duplicate.txt");
+        jarArchive1.as(ZipExporter.class).exportTo(jar1, true);
+
+        JavaArchive jarArchive2 = ShrinkWrap.create(JavaArchive.class);
+        jarArchive2.addClass(MyLauncher.class);
+        jarArchive2.add(new StringAsset("second"), "duplicate.txt");
+        jarArchive2.add(new StringAsset("Manifest-Version: 1.0\n"), JarFile.MANIFEST_NAME);
+        jarArchive2.add(new StringAsset("io.vertx.Impl\n"), "META-INF/services/io.vertx.Service");
+        jarArchive2.as(ZipExporter.class).exportTo(jar2, true);
+    }
+
+    @Test
+    public void testSameContentAsShrinkWrap() throws Exception {
+
+        byte[] manifest = "Manifest-Version: 1.0\nMain-Class: io.vertx.core.Launcher\n".getBytes("UTF-8");
+
+        new FatJarBuilder()
+                .addSource(jar1)
+                .addSource(jar2)
+                .addGeneratedEntry(JarFile.MANIFEST_NAME, manifest)
+                .build(fatJar);
+
+        JavaArchive expected = ShrinkWrap.create(JavaArchive.class);
+        expected.as(ZipImporter.class).importFrom(jar1);
+        expected.as(ZipImporter.class).importFrom(jar2);
+        expected.setManifest(new StringAsset(new String(manifest, "UTF-8")));
+        expected.as(ZipExporter.class).exportTo(shrinkWrapJar, true);
+
+        assertThat(contents(fatJar)).isEqualTo(contents(shrinkWrapJar));
+        assertThat(contents(fatJar).get("duplicate.txt")).isEqualTo("second");
+
+        try (ZipFile zipFile = new ZipFile(fatJar)) {
+            List<String> names = new ArrayList<>();
+            zipFile.stream().forEach(e -> names.add(e.getName()));
+            assertThat(names).startsWith("META-INF/", JarFile.MANIFEST_NAME);
+            assertThat(names).doesNotHaveDuplicates();
+        }
+    }
+
+    @Test
+    public void testReproducible() throws Exception {
+        File secondFatJar = new File("target/fatjarbuilder-fat2.jar");
+
+        new FatJarBuilder().addSource(jar1).addSource(jar2).build(fatJar);
+        Thread.sleep(2000);
+        new FatJarBuilder().addSource(jar1).addSource(jar2).build(secondFatJar);
+
+        try {
+            assertThat(Files.readAllBytes(secondFatJar.toPath())).isEqualTo(Files.readAllBytes(fatJar.toPath()));
+        } finally {
+            secondFatJar.delete();
+        }
+    }
+
+    @Test
+    public void testRawCopyKeepsCompressedData() throws Exception {
+
+        new FatJarBuilder().addSource(jar1).addSource(jar2).build(fatJar);
+
+        Map<String, ZipEntry> sourceEntries = new TreeMap<>();
+        for (File jar : new File[]{jar1, jar2}) {
+            try (ZipFile zipFile = new ZipFile(jar)) {
+                zipFile.stream().filter(e -> !e.isDirectory()).forEach(e -> sourceEntries.put(e.getName(), e));
+            }
+        }
+
+        try (ZipFile zipFile = new ZipFile(fatJar)) {
+            zipFile.stream().filter(e -> !e.isDirectory()).forEach(e -> {
+                ZipEntry source = sourceEntries.get(e.getName());
+                assertThat(e.getCompressedSize()).isEqualTo(source.getCompressedSize());
+                assertThat(e.getCrc()).isEqualTo(source.getCrc());
+                assertThat(e.getMethod()).isEqualTo(source.getMethod());
+            });
+        }
+
+        try (JarInputStream in = new JarInputStream(new FileInputStream(fatJar))) {
+            int count = 0;
+            while (in.getNextJarEntry() != null) {
+                count++;
+            }
+            assertThat(count).isGreaterThan(sourceEntries.size());
+        }
+    }
+
+    @Test
+    public void testRecompressSameContent() throws Exception {
+        File recompressed = new File("target/fatjarbuilder-recompressed.jar");
+
+        new FatJarBuilder().addSource(jar1).addSource(jar2).build(fatJar);
+        new FatJarBuilder().addSource(jar1).addSource(jar2).rawCopy(false).build(recompressed);
+
+        try {
+            assertThat(contents(recompressed)).isEqualTo(contents(fatJar));
+        } finally {
+            recompressed.delete();
+        }
+    }
+
+    @Test
+    public void testParallelSameAsSequential() throws Exception {
+        File parallel = new File("target/fatjarbuilder-parallel.jar");
+        byte[] manifest = "Manifest-Version: 1.0\n".getBytes("UTF-8");
+
+        new FatJarBuilder().addSource(jar1).addSource(jar2).rawCopy(false)
+                .addGeneratedEntry(JarFile.MANIFEST_NAME, manifest).build(fatJar);
+        new FatJarBuilder().addSource(jar1).addSource(jar2).rawCopy(false).threads(4)
+                .addGeneratedEntry(JarFile.MANIFEST_NAME, manifest).build(parallel);
+
+        try {
+            assertThat(Files.readAllBytes(parallel.toPath())).isEqualTo(Files.readAllBytes(fatJar.toPath()));
+        } finally {
+            parallel.delete();
+        }
+    }
+
+    @Test
+    public void testIncrementalSameAsFullBuild() throws Exception {
+        File stateFile = new File("target/fatjarbuilder.state");
+        File fullBuild = new File("target/fatjarbuilder-full.jar");
+        byte[] manifest = "Manifest-Version: 1.0\n".getBytes("UTF-8");
+
+        try {
+            new FatJarBuilder().addSource(jar1).addSource(jar2).incremental(stateFile)
+                    .addGeneratedEntry(JarFile.MANIFEST_NAME, manifest).build(fatJar);
+            assertThat(stateFile).exists();
+
+            JavaArchive changed = ShrinkWrap.create(JavaArchive.class);
+            changed.addClass(SimpleVerticle.class);
+            changed.addClass(FileFilterMain.class);
+            changed.add(new StringAsset("two"), "config/app.properties");
+            changed.add(new StringAsset("first"), "duplicate.txt");
+            changed.as(ZipExporter.class).exportTo(jar1, true);
+
+            new FatJarBuilder().addSource(jar1).addSource(jar2).incremental(stateFile)
+                    .addGeneratedEntry(JarFile.MANIFEST_NAME, manifest).build(fatJar);
+            new FatJarBuilder().addSource(jar1).addSource(jar2)
+                    .addGeneratedEntry(JarFile.MANIFEST_NAME, manifest).build(fullBuild);
+
+            assertThat(Files.readAllBytes(fatJar.toPath())).isEqualTo(Files.readAllBytes(fullBuild.toPath()));
+            assertThat(contents(fatJar).get("config/app.properties")).isEqualTo("two");
+            assertThat(contents(fatJar).get("duplicate.txt")).isEqualTo("second");
+        } finally {
+            stateFile.delete();
+            fullBuild.delete();
+        }
+    }
+
+    @Test
+    public void testCombineServices() throws Exception {
+        File stateFile = new File("target/fatjarbuilder-services.state");
+        File fullBuild = new File("target/fatjarbuilder-services-full.jar");
+
+        try {
+            new FatJarBuilder().addSource(jar1).addSource(jar2).combineServices(true).incremental(stateFile)
+                    .build(fatJar);
+            assertThat(contents(fatJar).get("META-INF/services/io.vertx.Service")).isEqualTo("io.vertx.Impl\n");
+
+            JavaArchive changed = ShrinkWrap.create(JavaArchive.class);
+            changed.addClass(SimpleVerticle.class);
+            changed.add(new StringAsset("# project providers\nio.vertx.ProjectImpl\nio.vertx.Impl\n"),
+                    "META-INF/services/io.vertx.Service");
+            changed.as(ZipExporter.class).exportTo(jar1, true);
+
+            new FatJarBuilder().addSource(jar1).addSource(jar2).combineServices(true).incremental(stateFile)
+                    .build(fatJar);
+            new FatJarBuilder().addSource(jar1).addSource(jar2).combineServices(true).build(fullBuild);
+
+            assertThat(Files.readAllBytes(fatJar.toPath())).isEqualTo(Files.readAllBytes(fullBuild.toPath()));
+            assertThat(contents(fatJar).get("META-INF/services/io.vertx.Service"))
+                    .isEqualTo("io.vertx.ProjectImpl\nio.vertx.Impl\n");
+        } finally {
+            stateFile.delete();
+            fullBuild.delete();
+        }
+    }
+
+    @Test
+    public void testTransformers() throws Exception {
+        File stateFile = new File("target/fatjarbuilder-transformers.state");
+        File fullBuild = new File("target/fatjarbuilder-transformers-full.jar");
+
+        JavaArchive withResources = ShrinkWrap.create(JavaArchive.class);
+        withResources.addClass(MyLauncher.class);
+        withResources.add(new StringAsset("akka.version = 1"), "reference.conf");
+        withResources.add(new StringAsset("a=1\nshared=1\n"), "META-INF/vertx/json-mappers.properties");
+        withResources.add(new StringAsset("x=2\n"), "application.properties");
+        withResources.as(ZipExporter.class).exportTo(jar2, true);
+
+        JavaArchive project = ShrinkWrap.create(JavaArchive.class);
+        project.addClass(SimpleVerticle.class);
+        project.add(new StringAsset("app.name = test\n"), "reference.conf");
+        project.add(new StringAsset("b=2\nshared=1\n"), "META-INF/vertx/json-mappers.properties");
+        project.add(new StringAsset("x=1\n"), "application.properties");
+        project.as(ZipExporter.class).exportTo(jar1, true);
+
+        try {
+            new FatJarBuilder().addSource(jar1).addSource(jar2).incremental(stateFile)
+                    .addTransformer(new ReferenceConfResourceTransformer())
+                    .addTransformer(new VertxDescriptorResourceTransformer())
+                    .addTransformer(new AppendingResourceTransformer("application.properties"))
+                    .build(fatJar);
+
+            Map<String, String> contents = contents(fatJar);
+            assertThat(contents.get("reference.conf")).isEqualTo("app.name = test\nakka.version = 1");
+            assertThat(contents.get("META-INF/vertx/json-mappers.properties")).isEqualTo("b=2\nshared=1\na=1\n");
+            assertThat(contents.get("application.properties")).isEqualTo("x=1\nx=2\n");
+
+            project.add(new StringAsset("app.name = changed\n"), "reference.conf");
+            project.as(ZipExporter.class).exportTo(jar1, true);
+
+            new FatJarBuilder().addSource(jar1).addSource(jar2).incremental(stateFile)
+                    .addTransformer(new ReferenceConfResourceTransformer())
+                    .addTransformer(new VertxDescriptorResourceTransformer())
+                    .addTransformer(new AppendingResourceTransformer("application.properties"))
+                    .build(fatJar);
+            new FatJarBuilder().addSource(jar1).addSource(jar2)
+                    .addTransformer(new ReferenceConfResourceTransformer())
+                    .addTransformer(new VertxDescriptorResourceTransformer())
+                    .addTransformer(new AppendingResourceTransformer("application.properties"))
+                    .build(fullBuild);
+
+            assertThat(Files.readAllBytes(fatJar.toPath())).isEqualTo(Files.readAllBytes(fullBuild.toPath()));
+            assertThat(contents(fatJar).get("reference.conf")).isEqualTo("app.name = changed\nakka.version = 1");
+        } finally {
+            stateFile.delete();
+            fullBuild.delete();
+        }
+    }
+
+    @Test
+    public void testRelocation() throws Exception {
+        File parallel = new File("target/fatjarbuilder-relocated-parallel.jar");
+
+        Relocator relocator = new Relocator();
+        relocator.setPattern("io.fabric8.vertx.maven.plugin");
+        relocator.setShadedPattern("shaded.plugin");
+        relocator.setExcludes(Collections.singletonList("io.fabric8.vertx.maven.plugin.MyLauncher"));
+        ClassRelocator classRelocator = new ClassRelocator(Collections.singletonList(relocator));
+
+        JavaArchive withService = ShrinkWrap.create(JavaArchive.class);
+        withService.addClass(SimpleVerticle.class);
+        withService.add(new StringAsset("# verticles\nio.fabric8.vertx.maven.plugin.SimpleVerticle\n"),
+                "META-INF/services/io.fabric8.vertx.maven.plugin.Verticle");
+        withService.add(new ClassAsset(SimpleVerticle.class),
+                "META-INF/versions/9/io/fabric8/vertx/maven/plugin/SimpleVerticle.class");
+        withService.as(ZipExporter.class).exportTo(jar1, true);
+
+        try {
+            new FatJarBuilder().addSource(jar1).addSource(jar2).relocator(classRelocator).build(fatJar);
+            new FatJarBuilder().addSource(jar1).addSource(jar2).relocator(classRelocator).threads(4)
+                    .build(parallel);
+
+            assertThat(Files.readAllBytes(parallel.toPath())).isEqualTo(Files.readAllBytes(fatJar.toPath()));
+
+            Map<String, String> contents = contents(fatJar);
+            assertThat(contents).containsKeys("shaded/plugin/SimpleVerticle.class",
+                    "io/fabric8/vertx/maven/plugin/MyLauncher.class");
+            assertThat(contents).doesNotContainKey("io/fabric8/vertx/maven/plugin/SimpleVerticle.class");
+            assertThat(contents.get("shaded/plugin/SimpleVerticle.class")).doesNotContain("io/fabric8");
+            // the classes of a multi-release jar stay in their version directory
+            assertThat(contents).containsKey("META-INF/versions/9/shaded/plugin/SimpleVerticle.class")
+                    .doesNotContainKey("META-INF/versions/9/io/fabric8/vertx/maven/plugin/SimpleVerticle.class");
+            assertThat(contents.get("META-INF/versions/9/shaded/plugin/SimpleVerticle.class"))
+                    .doesNotContain("io/fabric8");
+            assertThat(contents.get("META-INF/services/shaded.plugin.Verticle"))
+                    .isEqualTo("# verticles\nshaded.plugin.SimpleVerticle\n");
+
+            try (URLClassLoader loader = new URLClassLoader(new URL[]{fatJar.toURI().toURL()},
+                    getClass().getClassLoader())) {
+                Class<?> relocated = loader.loadClass("shaded.plugin.SimpleVerticle");
+                assertThat(relocated.getSuperclass()).isEqualTo(AbstractVerticle.class);
+            }
+        } finally {
+            parallel.delete();
+        }
+    }
+
+    @Test
+    public void testIndexCache() throws Exception {
+        File cacheDirectory = new File("target/fatjarbuilder-index-cache");
+        File cachedBuild = new File("target/fatjarbuilder-cached.jar");
+        JarIndexCache cache = new JarIndexCache(cacheDirectory);
+
+        try {
+            new FatJarBuilder().addSource(jar1).addSource(jar2).build(fatJar);
+            new FatJarBuilder().addSource(jar1).addSource(jar2).indexCache(cache).build(cachedBuild);
+            assertThat(Files.readAllBytes(cachedBuild.toPath())).isEqualTo(Files.readAllBytes(fatJar.toPath()));
+
+            JarIndex index = JarIndex.read(jar2);
+            JarIndex cached = cache.read(jar2);
+            assertThat(cached.getEntries()).extracting("name", "crc", "compressedSize", "localHeaderOffset")
+                    .isEqualTo(index.getEntries().stream().map(e -> tuple(e.getName(), e.getCrc(),
+                            e.getCompressedSize(), e.getLocalHeaderOffset())).collect(Collectors.toList()));
+            assertThat(new String(cached.getServices().get("META-INF/services/io.vertx.Service"), "UTF-8"))
+                    .isEqualTo("io.vertx.Impl\n");
+            assertThat(cached.getManifest()).isEqualTo(index.getManifest());
+
+            // the cached index is used as long as the jar is not touched
+            try (Stream<Path> files = Files.walk(cacheDirectory.toPath())) {
+                assertThat(files.filter(Files::isRegularFile).count()).isEqualTo(1);
+            }
+            assertThat(jar2.setLastModified(jar2.lastModified() - 10000)).isTrue();
+            new FatJarBuilder().addSource(jar1).addSource(jar2).indexCache(cache).build(cachedBuild);
+            // the stale index is replaced rather than kept next to the new one
+            try (Stream<Path> files = Files.walk(cacheDirectory.toPath())) {
+                assertThat(files.filter(Files::isRegularFile).count()).isEqualTo(1);
+            }
+            assertThat(cache.read(jar2).getEntries()).hasSameSizeAs(index.getEntries());
+        } finally {
+            cachedBuild.delete();
+            org.apache.commons.io.FileUtils.deleteQuietly(cacheDirectory);
+        }
+    }
+
+    @Test
+    public void testMinimize() throws Exception {
+        File dependencies = new File("target/fatjarbuilder-minimize-deps.jar");
+        File parallel = new File("target/fatjarbuilder-minimized-parallel.jar");
+        File report = new File("target/fatjarbuilder-minimize-report.txt");
+        byte[] manifest = ("Manifest-Version: 1.0\nMain-Class: io.vertx.core.Launcher\n"
+                + "Main-Verticle: io.fabric8.vertx.maven.plugin.SimpleVerticle\n").getBytes("UTF-8");
+
+        JavaArchive project = ShrinkWrap.create(JavaArchive.class);
+        project.add(new StringAsset("one"), "config/app.properties");
+        project.as(ZipExporter.class).exportTo(jar1, true);
+
+        JavaArchive dependency = ShrinkWrap.create(JavaArchive.class);
+        dependency.addClasses(SimpleVerticle.class, SPICombineTest.class, FatJarBuilderTest.class);
+        dependency.addAsServiceProvider("io.fabric8.vertx.maven.plugin.Provided",
+                "io.fabric8.vertx.maven.plugin.SPICombineTest");
+        dependency.as(ZipExporter.class).exportTo(dependencies, true);
+
+        try {
+            new FatJarBuilder().addSource(jar1).addSource(dependencies).addSource(jar2)
+                    .addGeneratedEntry(JarFile.MANIFEST_NAME, manifest)
+                    .minimize(null, report).build(fatJar);
+            new FatJarBuilder().addSource(jar1).addSource(dependencies).addSource(jar2)
+                    .addGeneratedEntry(JarFile.MANIFEST_NAME, manifest)
+                    .minimize(null, null).threads(4).build(parallel);
+
+            assertThat(Files.readAllBytes(parallel.toPath())).isEqualTo(Files.readAllBytes(fatJar.toPath()));
+
+            Map<String, String> contents = contents(fatJar);
+            assertThat(contents).containsKeys("io/fabric8/vertx/maven/plugin/SimpleVerticle.class",
+                    "io/fabric8/vertx/maven/plugin/SPICombineTest.class", "config/app.properties",
+                    "META-INF/services/io.vertx.Service");
+            assertThat(contents).doesNotContainKeys("io/fabric8/vertx/maven/plugin/MyLauncher.class",
+                    "io/fabric8/vertx/maven/plugin/FatJarBuilderTest.class");
+
+            assertThat(Files.readAllLines(report.toPath())).containsExactly(
+                    "# kept 2 of 4 classes",
+                    "io.fabric8.vertx.maven.plugin.SPICombineTest\tprovider of io.fabric8.vertx.maven.plugin.Provided",
+                    "io.fabric8.vertx.maven.plugin.SimpleVerticle\tMain-Verticle");
+
+            // the test class references MyLauncher, so including it keeps both
+            new FatJarBuilder().addSource(jar1).addSource(dependencies).addSource(jar2)
+                    .addGeneratedEntry(JarFile.MANIFEST_NAME, manifest)
+                    .minimize(Collections.singletonList("io.fabric8.vertx.maven.plugin.FatJarBuilder*"), report)
+                    .build(fatJar);
+
+            assertThat(contents(fatJar)).containsKeys("io/fabric8/vertx/maven/plugin/MyLauncher.class",
+                    "io/fabric8/vertx/maven/plugin/FatJarBuilderTest.class");
+            assertThat(Files.readAllLines(report.toPath())).contains(
+                    "io.fabric8.vertx.maven.plugin.FatJarBuilderTest\tincluded by io.fabric8.vertx.maven.plugin.FatJarBuilder*",
+                    "io.fabric8.vertx.maven.plugin.MyLauncher\treferenced by io.fabric8.vertx.maven.plugin.FatJarBuilderTest");
+        } finally {
+            Stream.of(dependencies, parallel, report).forEach(File::delete);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Stream.of(jar1, jar2, fatJar, shrinkWrapJar).forEach(File::delete);
+    }
+
+    static Map<String, String> contents(File jar) throws IOException {
+        Map<String, String> contents = new TreeMap<>();
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                    contents.put(entry.getName(), new String(out.toByteArray(), StandardCharsets.ISO_8859_1));
+                }
+            }
+        }
+        return contents;
+    }
+}
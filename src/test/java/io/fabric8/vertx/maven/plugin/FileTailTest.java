@@ -0,0 +1,73 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.utils.FileTail;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileTailTest {
+
+    private final File file = new File("target/file-tail-test.log");
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testReadTheAppendedLines() throws Exception {
+        Files.write(file.toPath(), "before\n".getBytes(StandardCharsets.UTF_8));
+        FileTail tail = new FileTail(file);
+        assertThat(tail.read()).isEmpty();
+
+        append("one\r\ntw");
+        assertThat(tail.read()).containsExactly("one");
+        // a character split across two writes
+        byte[] euro = "€".getBytes(StandardCharsets.UTF_8);
+        Files.write(file.toPath(), new byte[]{euro[0]}, StandardOpenOption.APPEND);
+        assertThat(tail.read()).isEmpty();
+        Files.write(file.toPath(), new byte[]{euro[1], euro[2], '\n'}, StandardOpenOption.APPEND);
+        assertThat(tail.read()).containsExactly("tw€");
+
+        Files.write(file.toPath(), "new\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(tail.read()).containsExactly("new");
+    }
+
+    @Test
+    public void testMissingFile() throws Exception {
+        file.delete();
+        FileTail tail = new FileTail(file);
+        assertThat(tail.read()).isEmpty();
+        append("created\n");
+        assertThat(tail.read()).containsExactly("created");
+    }
+
+    private void append(String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.utils.HotReloadLauncher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HotReloadLauncherTest {
+
+    private File directory;
+    private Process process;
+
+    @Before
+    public void setup() {
+        directory = new File("target/hot-reload-test");
+    }
+
+    @Test
+    public void testReloadKeepsTheJvm() throws Exception {
+        File classes = new File(directory, "classes");
+        Path verticle = classes.toPath().resolve(ReloadVerticle.class.getName().replace('.', '/') + ".class");
+        Files.createDirectories(verticle.getParent());
+        try (java.io.InputStream in = ReloadVerticle.class.getResourceAsStream("ReloadVerticle.class")) {
+            Files.copy(in, verticle);
+        }
+        Path message = classes.toPath().resolve("reload-message.txt");
+        Files.write(message, "one".getBytes(StandardCharsets.UTF_8));
+        Path trigger = directory.toPath().resolve("reload.trigger");
+        Files.write(trigger, new byte[0]);
+        Path config = directory.toPath().resolve("application.json");
+        Files.write(config, "{\"name\":\"config\"}".getBytes(StandardCharsets.UTF_8));
+
+        // the project classes are only loaded by the hot reload class loader
+        String testClasses = new File("target/test-classes").getAbsolutePath();
+        String classPath = Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> !new File(entry).getAbsolutePath().equals(testClasses))
+                .collect(Collectors.joining(File.pathSeparator));
+
+        process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classPath, HotReloadLauncher.class.getName(), classes.getAbsolutePath(),
+                trigger.toAbsolutePath().toString(), ReloadVerticle.class.getName(),
+                config.toAbsolutePath().toString())
+                .redirectErrorStream(true).start();
+        BlockingQueue<String> output = pump(process);
+
+        assertThat(waitFor(output, "Started with")).isEqualTo("Started with one and config");
+
+        Files.write(message, "two".getBytes(StandardCharsets.UTF_8));
+        Files.write(trigger, "1".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(waitFor(output, "Started with")).isEqualTo("Started with two and config");
+        assertThat(waitFor(output, "Reloaded")).startsWith("Reloaded " + ReloadVerticle.class.getName() + " in ");
+        assertThat(process.isAlive()).isTrue();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (process != null) {
+            process.destroy();
+            process.waitFor(10, TimeUnit.SECONDS);
+        }
+        org.apache.commons.io.FileUtils.deleteQuietly(directory);
+    }
+
+    private static BlockingQueue<String> pump(Process process) {
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        Thread pump = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                    StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            } catch (IOException e) {
+                // the process is gone
+            }
+        });
+        pump.setDaemon(true);
+        pump.start();
+        return lines;
+    }
+
+    private static String waitFor(BlockingQueue<String> output, String prefix) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        StringBuilder skipped = new StringBuilder();
+        while (System.nanoTime() < deadline) {
+            String line = output.poll(100, TimeUnit.MILLISECONDS);
+            if (line != null && line.startsWith(prefix)) {
+                return line;
+            } else if (line != null) {
+                skipped.append(line).append('\n');
+            }
+        }
+        throw new AssertionError("No line starting with " + prefix + " in:\n" + skipped);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.model.WatcherMode;
+import io.fabric8.vertx.maven.plugin.utils.IncrementalBuilder;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalBuilderTest {
+
+    private final List<Set<Path>> javaBuilds = new CopyOnWriteArrayList<>();
+
+    private final List<Set<Path>> resourceBuilds = new CopyOnWriteArrayList<>();
+
+    private final List<Set<Path>> deletes = new CopyOnWriteArrayList<>();
+
+    private IncrementalBuilder builder;
+
+    @After
+    public void tearDown() throws Exception {
+        builder.close();
+    }
+
+    @Test
+    public void testChangesAreCoalesced() throws Exception {
+        CountDownLatch built = new CountDownLatch(2);
+        builder = new IncrementalBuilder(Collections.emptySet(), (changed, deleted) -> {
+            javaBuilds.add(changed);
+            deletes.add(deleted);
+            built.countDown();
+            return true;
+        }, (changed, deleted) -> {
+            resourceBuilds.add(changed);
+            built.countDown();
+            return true;
+        }, new SystemStreamLog(), WatcherMode.poll, 1000L).withQuietPeriod(300L);
+
+        for (int i = 0; i < 300; i++) {
+            builder.onFileChange(new File("src/main/java/Source" + i + ".java"));
+            builder.onFileChange(new File("src/main/resources/webroot/file" + i + ".css"));
+        }
+        builder.onFileDelete(new File("src/main/java/Source0.java"));
+
+        assertTrue(built.await(10, TimeUnit.SECONDS));
+        Thread.sleep(500);
+        assertEquals(1, javaBuilds.size());
+        assertEquals(299, javaBuilds.get(0).size());
+        assertEquals(Collections.singleton(new File("src/main/java/Source0.java").toPath()), deletes.get(0));
+        assertEquals(1, resourceBuilds.size());
+        assertEquals(300, resourceBuilds.get(0).size());
+    }
+
+    @Test
+    public void testChangesDuringABuildAreQueued() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch built = new CountDownLatch(2);
+        builder = new IncrementalBuilder(Collections.emptySet(), (changed, deleted) -> {
+            javaBuilds.add(changed);
+            running.countDown();
+            release.await();
+            built.countDown();
+            return true;
+        }, (changed, deleted) -> false, new SystemStreamLog(), WatcherMode.poll, 1000L).withQuietPeriod(50L);
+
+        builder.onFileChange(new File("A.java"));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        builder.onFileChange(new File("B.java"));
+        builder.onFileChange(new File("C.java"));
+        release.countDown();
+
+        assertTrue(built.await(10, TimeUnit.SECONDS));
+        assertEquals(2, javaBuilds.size());
+        assertEquals(Collections.singleton(new File("A.java").toPath()), javaBuilds.get(0));
+        assertEquals(2, javaBuilds.get(1).size());
+    }
+
+    @Test
+    public void testOneReloadPerQuietPeriod() throws Exception {
+        AtomicInteger reloads = new AtomicInteger();
+        CountDownLatch reloaded = new CountDownLatch(1);
+        builder = new IncrementalBuilder(Collections.emptySet(), (changed, deleted) -> true,
+                (changed, deleted) -> true, new SystemStreamLog(), WatcherMode.poll, 1000L)
+                .withQuietPeriod(50L)
+                .withReload(() -> {
+                    reloads.incrementAndGet();
+                    reloaded.countDown();
+                });
+
+        builder.onFileChange(new File("src/main/java/Source.java"));
+        builder.onFileChange(new File("src/main/resources/webroot/index.html"));
+
+        assertTrue(reloaded.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(1, reloads.get());
+    }
+
+    @Test
+    public void testNoReloadWhenNothingWasRebuilt() throws Exception {
+        CountDownLatch built = new CountDownLatch(1);
+        AtomicInteger reloads = new AtomicInteger();
+        builder = new IncrementalBuilder(Collections.emptySet(), (changed, deleted) -> true,
+                (changed, deleted) -> {
+                    built.countDown();
+                    return false;
+                }, new SystemStreamLog(), WatcherMode.poll, 1000L)
+                .withQuietPeriod(50L)
+                .withReload(reloads::incrementAndGet);
+
+        builder.onFileChange(new File("src/main/resources/unchanged.txt"));
+
+        assertTrue(built.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(0, reloads.get());
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.utils.IncrementalCompiler;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalCompilerTest {
+
+    private Path root;
+
+    private Path sources;
+
+    private File classes;
+
+    private IncrementalCompiler compiler;
+
+    @Before
+    public void setup() throws IOException {
+        root = Files.createTempDirectory(Paths.get("target").toAbsolutePath(), "javac");
+        sources = Files.createDirectories(root.resolve("src/demo"));
+        classes = root.resolve("classes").toFile();
+        write("A", "package demo; public class A { public static int value() { return 1; } "
+                + "static class Inner {} }");
+        write("B", "package demo; public class B { int value = A.value(); }");
+        write("C", "package demo; public class C { }");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (compiler != null) {
+            compiler.close();
+        }
+        org.apache.commons.io.FileUtils.deleteDirectory(root.toFile());
+    }
+
+    @Test
+    public void testChangedSourcesAndDependentsAreCompiled() throws Exception {
+        compiler = newCompiler();
+        assertTrue(compiler.compile(all(), Collections.emptySet()));
+        assertEquals(3, compiler.getCompiledSources().size());
+        assertTrue(new File(classes, "demo/A$Inner.class").isFile());
+
+        write("A", "package demo; public class A { public static int value() { return 2; } }");
+        assertTrue(compiler.compile(Collections.singleton(sources.resolve("A.java")), Collections.emptySet()));
+        assertEquals(new HashSet<>(Arrays.asList(sources.resolve("A.java"), sources.resolve("B.java"))),
+                compiler.getCompiledSources());
+        // the class files of a recompiled source are replaced
+        assertFalse(new File(classes, "demo/A$Inner.class").exists());
+
+        write("C", "package demo; public class C { int value = A.value(); }");
+        assertTrue(compiler.compile(Collections.singleton(sources.resolve("C.java")), Collections.emptySet()));
+        assertEquals(Collections.singleton(sources.resolve("C.java")), compiler.getCompiledSources());
+    }
+
+    @Test
+    public void testGraphIsReadFromTheClassesDirectory() throws Exception {
+        compiler = newCompiler();
+        assertTrue(compiler.compile(all(), Collections.emptySet()));
+        compiler.close();
+
+        // a new compiler, e.g. a new run, starts from the classes of the previous build
+        compiler = newCompiler();
+        Files.delete(sources.resolve("C.java"));
+        write("A", "package demo; public class A { public static int value() { return 3; } }");
+        assertTrue(compiler.compile(Collections.singleton(sources.resolve("A.java")), Collections.emptySet()));
+        assertEquals(new HashSet<>(Arrays.asList(sources.resolve("A.java"), sources.resolve("B.java"))),
+                compiler.getCompiledSources());
+
+        assertTrue(compiler.compile(Collections.emptySet(), Collections.singleton(sources.resolve("C.java"))));
+        assertFalse(new File(classes, "demo/C.class").exists());
+    }
+
+    @Test
+    public void testFailedSourcesAreCompiledAgain() throws Exception {
+        compiler = newCompiler();
+        assertTrue(compiler.compile(all(), Collections.emptySet()));
+
+        write("C", "package demo; public class C { Missing missing; }");
+        assertFalse(compiler.compile(Collections.singleton(sources.resolve("C.java")), Collections.emptySet()));
+
+        write("Missing", "package demo; public class Missing { }");
+        assertTrue(compiler.compile(Collections.singleton(sources.resolve("Missing.java")),
+                Collections.emptySet()));
+        assertTrue(compiler.getCompiledSources().contains(sources.resolve("C.java")));
+        assertTrue(new File(classes, "demo/C.class").isFile());
+    }
+
+    private IncrementalCompiler newCompiler() throws IOException {
+        return new IncrementalCompiler(Collections.singletonList(root.resolve("src").toFile()), classes,
+                Collections.singletonList(classes), Collections.singletonList("-g"), "UTF-8")
+                .withLog(new SystemStreamLog());
+    }
+
+    private Set<Path> all() {
+        return new HashSet<>(Arrays.asList(sources.resolve("A.java"), sources.resolve("B.java"),
+                sources.resolve("C.java")));
+    }
+
+    private void write(String className, String content) throws IOException {
+        Files.write(sources.resolve(className + ".java"), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.utils.IsolatedApplication;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class IsolatedApplicationTest {
+
+    private final File output = new File("target/isolated-application.txt");
+
+    @After
+    public void tearDown() {
+        output.delete();
+    }
+
+    @Test
+    public void testRunUntilTheNonDaemonThreadsAreOver() throws Exception {
+        output.delete();
+        new IsolatedApplication(classPath(), IsolatedMain.class.getName(),
+                Collections.singletonList(output.getAbsolutePath()))
+                .withLog(new SystemStreamLog())
+                .run();
+
+        // the test classes are loaded again, without the classes of the test class path
+        assertThat(new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8))
+                .isEqualTo("isolated=true\ndone\n");
+    }
+
+    @Test
+    public void testFailureOfTheMainMethod() throws Exception {
+        try {
+            new IsolatedApplication(classPath(), IsolatedMain.class.getName(),
+                    Arrays.asList(output.getAbsolutePath(), "broken"))
+                    .withLog(new SystemStreamLog())
+                    .run();
+            fail("the failure of the application is reported");
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("broken");
+        }
+    }
+
+    private static List<URL> classPath() throws Exception {
+        return Collections.singletonList(new File("target/test-classes").getAbsoluteFile().toURI().toURL());
+    }
+}
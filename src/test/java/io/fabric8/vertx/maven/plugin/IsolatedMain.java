@@ -0,0 +1,59 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The main class run by {@link IsolatedApplicationTest}, it writes to the file given as first argument from a non
+ * daemon thread
+ */
+public class IsolatedMain {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 1) {
+            throw new IllegalStateException(args[1]);
+        }
+        boolean isolated;
+        try {
+            Class.forName("org.junit.Test");
+            isolated = false;
+        } catch (ClassNotFoundException e) {
+            isolated = true;
+        }
+        write(args[0], "isolated=" + isolated + "\n");
+        Thread worker = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+                write(args[0], "done\n");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        worker.setDaemon(false);
+        worker.start();
+    }
+
+    private static void write(String file, String content) throws IOException {
+        Files.write(Paths.get(file), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.utils.JavaProcessExecutor;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JavaProcessExecutorTest {
+
+    private File directory;
+    private List<URL> classPath;
+
+    @Before
+    public void setup() throws Exception {
+        directory = new File("target/java-process-executor test");
+        classPath = Arrays.asList(new File("target/classes").getAbsoluteFile().toURI().toURL(),
+                new File(directory, "some dependency.jar").getAbsoluteFile().toURI().toURL());
+    }
+
+    @Test
+    public void testClassPathArgumentFile() throws Exception {
+        List<String> args = new ArrayList<>(Arrays.asList("io.vertx.core.Launcher", "run"));
+        new JavaProcessExecutor().withArgs(args).withClassPath(classPath).withClassPathDirectory(directory)
+                .buildCommandLine();
+
+        assertThat(args).hasSize(3);
+        assertThat(args.get(0)).startsWith("@");
+        assertThat(args.subList(1, 3)).containsExactly("io.vertx.core.Launcher", "run");
+        File argumentFile = new File(args.get(0).substring(1));
+        assertThat(argumentFile.getParentFile()).isEqualTo(directory.getAbsoluteFile());
+        long lastModified = argumentFile.lastModified();
+
+        // the Maven classpath is not inherited and the file is read back by the JVM as is
+        Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                args.get(0), "-XshowSettings:properties", "-version").redirectErrorStream(true).start();
+        String settings = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+        assertThat(process.waitFor()).isEqualTo(0);
+        assertThat(settings).contains("some dependency.jar").doesNotContain("plexus-classworlds");
+
+        // the same classpath reuses the same file
+        Thread.sleep(1100);
+        List<String> again = new ArrayList<>(Arrays.asList("io.vertx.core.Launcher"));
+        new JavaProcessExecutor().withArgs(again).withClassPath(classPath).withClassPathDirectory(directory)
+                .buildCommandLine();
+        assertThat(again.get(0)).isEqualTo(args.get(0));
+        assertThat(argumentFile.lastModified()).isEqualTo(lastModified);
+    }
+
+    @Test
+    public void testClassPathPathingJar() throws Exception {
+        List<String> args = new ArrayList<>(Arrays.asList("io.vertx.core.Launcher"));
+        new JavaProcessExecutor() {
+            @Override
+            protected boolean useArgumentFile() {
+                return false;
+            }
+        }.withArgs(args).withClassPath(classPath).withClassPathDirectory(directory).buildCommandLine();
+
+        assertThat(args).hasSize(3);
+        assertThat(args.get(0)).isEqualTo("-cp");
+        try (JarFile jar = new JarFile(args.get(1))) {
+            String manifestClassPath = jar.getManifest().getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+            assertThat(manifestClassPath.split(" ")).containsExactly(classPath.get(0).toURI().toString(),
+                    classPath.get(1).toURI().toString());
+        }
+    }
+
+    @Test
+    public void testNoClassPathForAJar() throws Exception {
+        List<String> args = new ArrayList<>(Arrays.asList("-jar", "application.jar"));
+        new JavaProcessExecutor().withArgs(args).withClassPathDirectory(directory).buildCommandLine();
+
+        assertThat(args).containsExactly("-jar", "application.jar");
+        assertThat(directory.list()).isNull();
+    }
+
+    @Test
+    public void testOutputFile() throws Exception {
+        File output = new File(directory, "output.log");
+        List<String> lines = new CopyOnWriteArrayList<>();
+        new JavaProcessExecutor().withArgs(new ArrayList<>(Arrays.asList("-Dvertx.test=\"quoted value\"",
+                "-XshowSettings:properties", "-version")))
+                .withClassPath(classPath).withClassPathDirectory(directory)
+                .withLogger(new SystemStreamLog())
+                .withOutputFile(output)
+                .withOutputListener(lines::add)
+                .execute();
+
+        // the standard error is appended to the file as well
+        // and the quoted values are unquoted as the shell would do
+        assertThat(new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8)).contains("version")
+                .contains("vertx.test = quoted value");
+        // the listener is given the lines appended to the file
+        assertThat(lines.stream().anyMatch(line -> line.contains("vertx.test = quoted value"))).isTrue();
+    }
+
+    @After
+    public void tearDown() {
+        org.apache.commons.io.FileUtils.deleteQuietly(directory);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.model.OutputPolicy;
+import io.fabric8.vertx.maven.plugin.utils.OutputPump;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OutputPumpTest {
+
+    private final List<String> infos = new CopyOnWriteArrayList<>();
+
+    private final List<String> warnings = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger infoCalls = new AtomicInteger();
+
+    @Test
+    public void testBlockKeepsEveryLine() throws Exception {
+        List<String> heard = new CopyOnWriteArrayList<>();
+        // a slow log, the buffer fills up while a batch is logged
+        OutputPump pump = new OutputPump(new RecordingLog(1), 16, OutputPolicy.block)
+                .withListener(heard::add)
+                .start(new FakeProcess(lines("out", 5000), lines("err", 5000)));
+        pump.awaitCompletion();
+
+        assertThat(infos).hasSize(10000);
+        assertThat(infos.stream().filter(line -> line.startsWith("out")).collect(Collectors.toList()))
+                .isEqualTo(IntStream.range(0, 5000).mapToObj(i -> "out " + i).collect(Collectors.toList()));
+        assertThat(heard).hasSize(10000);
+        // the lines are logged in batches, not one call per line
+        assertThat(infoCalls.get()).isLessThan(5000);
+        assertThat(pump.getDropped()).isZero();
+        assertThat(warnings).isEmpty();
+    }
+
+    @Test
+    public void testDropNeverWaitsForTheLog() throws Exception {
+        OutputPump pump = new OutputPump(new RecordingLog(1), 16, OutputPolicy.drop)
+                .start(new FakeProcess(lines("out", 5000), ""));
+        pump.awaitCompletion();
+
+        assertThat(pump.getDropped()).isPositive();
+        assertThat(infos.size() + pump.getDropped()).isEqualTo(5000);
+        assertThat(warnings).isNotEmpty();
+        assertThat(warnings.get(warnings.size() - 1)).contains("dropped");
+    }
+
+    private static String lines(String prefix, int count) {
+        return IntStream.range(0, count).mapToObj(i -> prefix + " " + i).collect(Collectors.joining("\n"));
+    }
+
+    private final class RecordingLog extends SystemStreamLog {
+
+        private final long delay;
+
+        private RecordingLog(long delay) {
+            this.delay = delay;
+        }
+
+        @Override
+        public void info(CharSequence content) {
+            infoCalls.incrementAndGet();
+            infos.addAll(Arrays.asList(content.toString().split("\n")));
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void warn(CharSequence content) {
+            warnings.add(content.toString());
+        }
+    }
+
+    private static final class FakeProcess extends Process {
+
+        private final InputStream out;
+
+        private final InputStream err;
+
+        private FakeProcess(String out, String err) {
+            this.out = new ByteArrayInputStream(out.getBytes(StandardCharsets.UTF_8));
+            this.err = new ByteArrayInputStream(err.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return null;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return out;
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return err;
+        }
+
+        @Override
+        public int waitFor() {
+            return 0;
+        }
+
+        @Override
+        public int exitValue() {
+            return 0;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.utils.ProcessSignals;
+import io.fabric8.vertx.maven.plugin.utils.VertxDaemon;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ProcessSignalsTest {
+
+    private File directory;
+    private Process process;
+
+    @Before
+    public void setup() {
+        directory = new File("target/process-signals-test");
+        directory.mkdirs();
+    }
+
+    @Test
+    public void testStopsTheProcessOfTheApplication() throws Exception {
+        String id = UUID.randomUUID().toString();
+        File stateFile = new File(directory, "test.daemon");
+        // any long running JVM started the way the vert.x start command does
+        process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Dvertx.id=" + id, "-cp", System.getProperty("java.class.path"), VertxDaemon.class.getName(),
+                stateFile.getAbsolutePath(), "1")
+                .redirectErrorStream(true)
+                .redirectOutput(new File(directory, "output.log"))
+                .start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        Optional<Long> pid = Optional.empty();
+        while (!pid.isPresent()) {
+            if (System.nanoTime() > deadline) {
+                fail("No process of " + id);
+            }
+            pid = ProcessSignals.findPid(ProcessSignals.commandLines(), "-Dvertx.id=" + id);
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        // an id is matched as a whole
+        assertThat(ProcessSignals.findPid(ProcessSignals.commandLines(), "-Dvertx.id=" + id.substring(1)))
+                .isEmpty();
+
+        assertThat(ProcessSignals.isAlive(pid.get())).isTrue();
+        // the start time tells the process from a later one of the same id, it does not change while it runs
+        Optional<Long> startTime = ProcessSignals.startTime(pid.get());
+        assertThat(startTime.get()).isBetween(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1),
+                System.currentTimeMillis());
+        assertThat(ProcessSignals.startTime(pid.get())).isEqualTo(startTime);
+        assertThat(ProcessSignals.stop(pid.get(), 30000)).isTrue();
+        assertThat(process.waitFor(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(ProcessSignals.isAlive(pid.get())).isFalse();
+        // already stopped
+        assertThat(ProcessSignals.stop(pid.get(), 1000)).isTrue();
+        assertThat(ProcessSignals.startTime(pid.get())).isEmpty();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (process != null) {
+            process.destroyForcibly();
+            process.waitFor(10, TimeUnit.SECONDS);
+        }
+        org.apache.commons.io.FileUtils.deleteQuietly(directory);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import com.sun.net.httpserver.HttpServer;
+import io.fabric8.vertx.maven.plugin.utils.ReadinessProbe;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ReadinessProbeTest {
+
+    private File directory;
+
+    @Before
+    public void setup() {
+        directory = new File("target/readiness-probe-test");
+        directory.mkdirs();
+    }
+
+    @Test
+    public void testWaitsForThePort() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+        ServerSocket[] server = new ServerSocket[1];
+        Thread listener = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+                server[0] = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        listener.start();
+        try {
+            ReadinessProbe probe = new ReadinessProbe().withPort("127.0.0.1", port);
+            assertThat(probe.isConfigured()).isTrue();
+            assertThat(probe.await(10000)).isGreaterThanOrEqualTo(250);
+        } finally {
+            listener.join();
+            server[0].close();
+        }
+    }
+
+    @Test
+    public void testWaitsForTheHttpStatus() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/health", exchange -> {
+            exchange.sendResponseHeaders(requests.incrementAndGet() < 3 ? 503 : 204, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            new ReadinessProbe().withPort("127.0.0.1", server.getAddress().getPort()).withHttpPath("health")
+                    .await(10000);
+            assertThat(requests.get()).isEqualTo(3);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testWaitsForTheLogLine() throws Exception {
+        File log = new File(directory, "app.log");
+        // the lines logged before the start are ignored
+        Files.write(log.toPath(), "Succeeded in deploying verticle\n".getBytes(StandardCharsets.UTF_8));
+        ReadinessProbe probe = new ReadinessProbe().withLogPattern(log, Pattern.compile("Succeeded in deploying"));
+
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+                append(log, "Starting\nSucceeded in ");
+                Thread.sleep(200);
+                append(log, "deploying verticle\n");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        try {
+            assertThat(probe.await(10000)).isGreaterThanOrEqualTo(350);
+        } finally {
+            writer.join();
+        }
+    }
+
+    @Test
+    public void testHttpPathWithoutPort() throws Exception {
+        ReadinessProbe probe = new ReadinessProbe().withHttpPath("/health");
+        // never skipped without a word
+        assertThat(probe.isConfigured()).isTrue();
+        try {
+            probe.await(500);
+            fail("The path is checked on a port");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).contains("/health needs a port");
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+        long start = System.currentTimeMillis();
+        try {
+            new ReadinessProbe().withPort("127.0.0.1", port).await(500);
+            fail("Nothing listens on " + port);
+        } catch (IOException e) {
+            assertThat(e.getMessage()).contains("not ready within 500 ms", "127.0.0.1:" + port);
+        }
+        assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+    }
+
+    @After
+    public void tearDown() {
+        org.apache.commons.io.FileUtils.deleteQuietly(directory);
+    }
+
+    private static void append(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.utils.RedeployTimeline;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RedeployTimelineTest {
+
+    private File report;
+
+    private Path source;
+
+    @Before
+    public void setup() throws IOException {
+        report = new File("target/test-redeploy-report.json");
+        report.delete();
+        source = Files.createTempFile(Paths.get("target").toAbsolutePath(), "Source", ".java");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        report.delete();
+        Files.deleteIfExists(source);
+    }
+
+    @Test
+    public void testRedeploysAreReported() throws Exception {
+        RedeployTimeline timeline = new RedeployTimeline(report).withLog(new SystemStreamLog());
+
+        timeline.detected(source);
+        timeline.detected(source);
+        timeline.rebuildStarted();
+        timeline.phase("compile", 120);
+        timeline.classesUpdated();
+        timeline.rebuildFinished();
+        assertFalse("reported once the verticle is ready", report.exists());
+        timeline.onOutput("INFO: Succeeded in deploying verticle");
+
+        // a change that does not update the classes
+        timeline.detected(source);
+        timeline.rebuildStarted();
+        timeline.rebuildFinished();
+
+        JsonArray redeploys = read(report).getJsonArray("redeploys");
+        assertEquals(2, redeploys.size());
+        JsonObject ready = redeploys.getJsonObject(0);
+        assertEquals("ready", ready.getString("outcome"));
+        assertEquals(2, (int) ready.getInteger("files"));
+        assertEquals(120L, (long) ready.getJsonObject("phases").getLong("compile"));
+        assertNotNull(ready.getLong("ready"));
+        assertTrue(ready.getJsonObject("latency").getLong("total") >= 0);
+        assertEquals("unchanged", redeploys.getJsonObject(1).getString("outcome"));
+        assertNull(redeploys.getJsonObject(1).getLong("ready"));
+
+        // the report keeps the redeploys of the previous runs
+        RedeployTimeline next = new RedeployTimeline(report).withLog(new SystemStreamLog());
+        next.detected(source);
+        next.rebuildStarted();
+        next.classesUpdated();
+        next.rebuildFinished();
+        next.detected(source);
+        redeploys = read(report).getJsonArray("redeploys");
+        assertEquals(3, redeploys.size());
+        assertEquals("superseded", redeploys.getJsonObject(2).getString("outcome"));
+    }
+
+    private static JsonObject read(File file) throws IOException {
+        return new JsonObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.utils.ResourceSync;
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ResourceSyncTest {
+
+    private Path root;
+
+    private File classes;
+
+    private MavenProject project;
+
+    @Before
+    public void setup() throws IOException {
+        root = Files.createTempDirectory(Paths.get("target").toAbsolutePath(), "resources");
+        classes = root.resolve("target/classes").toFile();
+        project = new MavenProject();
+        project.setFile(root.resolve("pom.xml").toFile());
+        project.setVersion("1.2.3");
+        project.getProperties().setProperty("greeting", "hello");
+
+        Resource filtered = new Resource();
+        filtered.setDirectory("src/main/resources");
+        filtered.setFiltering(true);
+        filtered.addInclude("**/*.properties");
+        project.getBuild().addResource(filtered);
+
+        Resource webroot = new Resource();
+        webroot.setDirectory("src/main/resources");
+        webroot.addExclude("**/*.properties");
+        project.getBuild().addResource(webroot);
+
+        Files.createDirectories(root.resolve("src/main/resources/webroot"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        org.apache.commons.io.FileUtils.deleteDirectory(root.toFile());
+    }
+
+    @Test
+    public void testOnlyChangedResourcesAreSynced() throws Exception {
+        Path css = write("webroot/app.css", "body { color: ${greeting}; }");
+        Path properties = write("app.properties", "message=${greeting}\nversion=@project.version@\n");
+        Path untouched = write("webroot/other.css", "p {}");
+
+        ResourceSync sync = new ResourceSync(project, classes).withLog(new SystemStreamLog());
+        assertEquals(2, sync.sync(new HashSet<>(Arrays.asList(css, properties)),
+                Collections.emptySet()));
+
+        assertEquals("body { color: ${greeting}; }", read("webroot/app.css"));
+        assertEquals("message=hello\nversion=1.2.3\n", read("app.properties"));
+        assertFalse(new File(classes, "webroot/other.css").exists());
+
+        Files.delete(css);
+        assertEquals(1, sync.sync(Collections.emptySet(), Collections.singleton(css)));
+        assertFalse(new File(classes, "webroot/app.css").exists());
+
+        // not a resource of the project
+        assertEquals(0, sync.sync(Collections.singleton(root.resolve("pom.xml")), Collections.emptySet()));
+        assertEquals(0, sync.sync(Collections.singleton(untouched.resolveSibling("missing.css")),
+                Collections.emptySet()));
+    }
+
+    @Test
+    public void testHardLinks() throws Exception {
+        Path css = write("webroot/app.css", "body {}");
+        new ResourceSync(project, classes).withHardLinks(true).sync(Collections.singleton(css),
+                Collections.emptySet());
+        assertEquals("body {}", read("webroot/app.css"));
+
+        Files.write(css, "body { margin: 0; }".getBytes(StandardCharsets.UTF_8));
+        new ResourceSync(project, classes).withHardLinks(true).sync(Collections.singleton(css),
+                Collections.emptySet());
+        assertEquals("body { margin: 0; }", read("webroot/app.css"));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = root.resolve("src/main/resources").resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private String read(String name) throws IOException {
+        return new String(Files.readAllBytes(classes.toPath().resolve(name)), StandardCharsets.UTF_8);
+    }
+}
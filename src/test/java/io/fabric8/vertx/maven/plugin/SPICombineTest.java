@@ -4,6 +4,7 @@ import io.fabric8.vertx.maven.plugin.utils.ServiceCombinerUtil;
 import org.apache.maven.plugin.logging.SystemStreamLog;
 import org.jboss.shrinkwrap.api.Node;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
 import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 import org.jboss.shrinkwrap.api.importer.ZipImporter;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
@@ -13,7 +14,12 @@ import org.junit.Test;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -85,8 +91,8 @@ public class SPICombineTest {
 
         assertNotNull(combinedSpiArchive);
 
-        String expected = "com.test.demo.DemoSPI.impl.DemoSPIImpl2\n" +
-                "com.test.demo.DemoSPI.impl.DemoSPIImpl";
+        String expected = "com.test.demo.DemoSPI.impl.DemoSPIImpl\n" +
+                "com.test.demo.DemoSPI.impl.DemoSPIImpl2";
 
         assertTrue(Files.exists(Paths.get(outputJar.toString())));
 
@@ -151,8 +157,8 @@ public class SPICombineTest {
         assertNotNull(combinedSpiArchive);
         assertTrue(Files.exists(Paths.get(outputJar.toString())));
 
-        String expected = "com.test.demo.DemoSPI.impl.DemoSPIImpl2\n" +
-                "com.test.demo.DemoSPI.impl.DemoSPIImpl\n" +
+        String expected = "com.test.demo.DemoSPI.impl.DemoSPIImpl\n" +
+                "com.test.demo.DemoSPI.impl.DemoSPIImpl2\n" +
                 "com.test.demo.DemoSPI.impl.DemoSPIImpl4";
 
         JavaArchive acutalOutput = ShrinkWrap.create(JavaArchive.class);
@@ -169,4 +175,42 @@ public class SPICombineTest {
 
         Stream.of(jar1, jar2, jar3, jar4, outputJar).forEach(f -> f.delete());
     }
+
+    @Test
+    public void testMergeKeepsDependencyOrder() throws Exception {
+
+        File jar1 = new File("target/testMerge1.jar");
+        File jar2 = new File("target/testMerge2.jar");
+        File jar3 = new File("target/testMerge3.jar");
+
+        JavaArchive jarArchive1 = ShrinkWrap.create(JavaArchive.class);
+        jarArchive1.add(new StringAsset("# first providers\ncom.test.demo.DemoSPIImpl\n\n"
+                + "com.test.demo.DemoSPIImpl2 # inline comment\n"), "META-INF/services/com.test.demo.DemoSPI");
+        jarArchive1.as(ZipExporter.class).exportTo(jar1, true);
+
+        JavaArchive jarArchive2 = ShrinkWrap.create(JavaArchive.class);
+        jarArchive2.addClass(SPICombineTest.class);
+        jarArchive2.as(ZipExporter.class).exportTo(jar2, true);
+
+        JavaArchive jarArchive3 = ShrinkWrap.create(JavaArchive.class);
+        jarArchive3.add(new StringAsset("com.test.demo.DemoSPIImpl3\r\ncom.test.demo.DemoSPIImpl\r\n"),
+                "META-INF/services/com.test.demo.DemoSPI");
+        jarArchive3.addAsServiceProvider("com.test.demo.DemoSPI2", "com.test.demo.DemoSPI2Impl");
+        jarArchive3.as(ZipExporter.class).exportTo(jar3, true);
+
+        try {
+            Map<String, LinkedHashSet<String>> providers = new ServiceCombinerUtil()
+                    .withLog(new SystemStreamLog())
+                    .merge(Arrays.asList(jar1, jar2, jar3));
+
+            assertEquals(Arrays.asList("com.test.demo.DemoSPI", "com.test.demo.DemoSPI2"),
+                    new ArrayList<>(providers.keySet()));
+            assertEquals(Arrays.asList("com.test.demo.DemoSPIImpl", "com.test.demo.DemoSPIImpl2",
+                    "com.test.demo.DemoSPIImpl3"), new ArrayList<>(providers.get("com.test.demo.DemoSPI")));
+            assertEquals(Collections.singletonList("com.test.demo.DemoSPI2Impl"),
+                    new ArrayList<>(providers.get("com.test.demo.DemoSPI2")));
+        } finally {
+            Stream.of(jar1, jar2, jar3).forEach(File::delete);
+        }
+    }
 }
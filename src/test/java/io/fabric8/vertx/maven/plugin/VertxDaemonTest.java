@@ -0,0 +1,173 @@
+/*
+ *   Copyright 2016 Kamesh Sampath
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package io.fabric8.vertx.maven.plugin;
+
+import io.fabric8.vertx.maven.plugin.utils.DaemonClient;
+import io.fabric8.vertx.maven.plugin.utils.VertxDaemon;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class VertxDaemonTest {
+
+    private File directory;
+    private Process process;
+
+    @Before
+    public void setup() {
+        directory = new File("target/vertx-daemon-test");
+    }
+
+    @Test
+    public void testApplicationsShareTheDaemon() throws Exception {
+        File classes = copyVerticle();
+        Path message = classes.toPath().resolve("reload-message.txt");
+        Files.write(message, "one".getBytes(StandardCharsets.UTF_8));
+        Path config = directory.toPath().resolve("application.json");
+        Files.write(config, "{\"name\":\"config\"}".getBytes(StandardCharsets.UTF_8));
+        File log = new File(directory, "daemon.log");
+        File stateFile = new File(directory, "test.daemon");
+
+        DaemonClient client = startDaemon(stateFile, log);
+
+        client.send("start", "first", classes.getAbsolutePath(), ReloadVerticle.class.getName(),
+                config.toAbsolutePath().toString());
+        Files.write(message, "two".getBytes(StandardCharsets.UTF_8));
+        client.send("start", "second", classes.getAbsolutePath(), ReloadVerticle.class.getName(), "");
+        assertThat(client.send("list")).isEqualTo("first,second");
+        assertThat(read(log)).contains("Started with one and config", "Started with two and null");
+
+        Files.write(message, "three".getBytes(StandardCharsets.UTF_8));
+        client.send("reload", "first");
+        assertThat(read(log)).contains("Started with three and config");
+
+        client.send("stop", "second");
+        assertThat(client.send("list")).isEqualTo("first");
+        try {
+            client.send("stop", "second");
+            fail("The application was already stopped");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).contains("No application second");
+        }
+
+        client.send("shutdown");
+        assertThat(process.waitFor(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(stateFile).doesNotExist();
+        assertThat(client.isAlive()).isFalse();
+    }
+
+    @Test
+    public void testDaemonExitsWhenItsStateFileIsDeleted() throws Exception {
+        File classes = copyVerticle();
+        Files.write(classes.toPath().resolve("reload-message.txt"), "one".getBytes(StandardCharsets.UTF_8));
+        File log = new File(directory, "daemon.log");
+        File stateFile = new File(directory, "test.daemon");
+
+        DaemonClient client = startDaemon(stateFile, log);
+        client.send("start", "first", classes.getAbsolutePath(), ReloadVerticle.class.getName(), "");
+
+        // a running application does not keep an unreachable daemon alive
+        Files.delete(stateFile.toPath());
+        assertThat(process.waitFor(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(read(log)).contains("vert.x daemon state file deleted, exiting");
+    }
+
+    @Test
+    public void testSilentClientDoesNotBlockTheDaemon() throws Exception {
+        File log = new File(directory, "daemon.log");
+        File stateFile = new File(directory, "test.daemon");
+        DaemonClient client = startDaemon(stateFile, log);
+
+        Properties state = new Properties();
+        try (InputStream in = new FileInputStream(stateFile)) {
+            state.load(in);
+        }
+        // connects and never sends its request
+        int port = Integer.parseInt(state.getProperty("port"));
+        try (Socket silent = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            long start = System.nanoTime();
+            assertThat(client.withReadTimeout(30000).send("list")).isEmpty();
+            assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(30);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (process != null) {
+            process.destroy();
+            process.waitFor(10, TimeUnit.SECONDS);
+        }
+        org.apache.commons.io.FileUtils.deleteQuietly(directory);
+    }
+
+    private File copyVerticle() throws IOException {
+        File classes = new File(directory, "classes");
+        Path verticle = classes.toPath().resolve(ReloadVerticle.class.getName().replace('.', '/') + ".class");
+        Files.createDirectories(verticle.getParent());
+        try (InputStream in = ReloadVerticle.class.getResourceAsStream("ReloadVerticle.class")) {
+            Files.copy(in, verticle);
+        }
+        return classes;
+    }
+
+    private DaemonClient startDaemon(File stateFile, File log) throws Exception {
+        Files.createDirectories(directory.toPath());
+        // the project classes are only loaded by the class loader of each application
+        String testClasses = new File("target/test-classes").getAbsolutePath();
+        String classPath = Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> !new File(entry).getAbsolutePath().equals(testClasses))
+                .collect(Collectors.joining(File.pathSeparator));
+
+        process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classPath, VertxDaemon.class.getName(), stateFile.getAbsolutePath(), "1")
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+
+        DaemonClient client = new DaemonClient(stateFile);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!client.isAlive()) {
+            if (System.nanoTime() > deadline) {
+                fail("The daemon did not start:\n" + read(log));
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        return client;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}